@@ -0,0 +1,433 @@
+package com.ramclock;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.jfree.chart.ChartUtils;
+import org.jfree.chart.JFreeChart;
+import org.jfree.data.Range;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+Headless batch mode: capture directories in, chart PNGs and statistics out, no Swing window.
+
+Usage: RamClockerApp --batch [--workers N] [--out DIR] [--width W] [--height H] [--per-block]
+                             [--per-group] [--recursive] [--cache] [--include GLOB]... [--exclude GLOB]...
+                             [--readers N] [--parsers N] DIR...
+
+For each input directory:
+1. ClockCSVParser.parseDirectory ranks and labels its blocks as the GUI would.
+2. All blocks are plotted through Visualizer.createChart (same chart configuration as the GUI),
+   reduced to the image width through the blocks' pyramids, and written to <name>.png.
+3. Per-block statistics go to <name>_stats.csv.
+4. With --per-block, every block also gets its own chart in <name>_blocks/ (BlockChartExporter).
+5. With --per-group, every directory holding blocks gets one chart of all its blocks in
+   <name>_groups/ (with --recursive, one per subdirectory; files directly in DIR form a group
+   named after DIR).
+--recursive, --include and --exclude select the files to parse as in ClockCSVParser.ParseOptions
+(default: every *.csv directly in the directory). --cache reuses and writes the binary cache of
+each file (BinaryBlockCache, in ~/.cache/ramclock), so re-rendering unchanged captures skips parsing.
+
+Directories are processed concurrently on --workers threads (default: available processors), each
+parsed serially so the worker count alone bounds CPU and memory use. With --readers, each directory
+is instead loaded through the reader/parser pipeline (IngestPipeline) with N reader threads and
+--parsers parser threads (default 1), largest files first; --parsers alone uses 2 reader threads,
+and --parsers with --readers 0 is a usage error. The pipeline's per-stage timing is printed
+after the directory. A summary.csv with one row per
+directory is written to the output directory; the exit status is non-zero if any directory failed.
+*/
+public class BatchRenderer {
+    private static final int DEFAULT_WIDTH = 1200;
+    private static final int DEFAULT_HEIGHT = 800;
+    private static final int DEFAULT_READER_THREADS = 2;
+
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private File outputDir = new File(".");
+    private int width = DEFAULT_WIDTH;
+    private int height = DEFAULT_HEIGHT;
+    private boolean perBlockCharts = false;
+    private boolean perGroupCharts = false;
+    private boolean recursive = false;
+    private boolean binaryCache = false;
+    private int readerThreads = 0;
+    private int parserThreads = 1;
+    private final List<String> includePatterns = new ArrayList<>();
+    private final List<String> excludePatterns = new ArrayList<>();
+
+    public static class DirectoryReport {
+        /*
+        Outcome of one input directory: counts on success, the error message on failure.
+        */
+        private final File directory;
+        private final String outputName;
+        private int blockCount;
+        private long sampleCount;
+        private long skippedRowCount;
+        private String error;
+
+        DirectoryReport(File directory, String outputName) {
+            this.directory = directory;
+            this.outputName = outputName;
+        }
+
+        public File getDirectory() { return directory; }
+        public String getOutputName() { return outputName; }
+        public int getBlockCount() { return blockCount; }
+        public long getSampleCount() { return sampleCount; }
+        public long getSkippedRowCount() { return skippedRowCount; }
+        public String getError() { return error; }
+        public boolean isSuccessful() { return error == null; }
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    public static int run(String[] args) {
+        /*
+        Parses the command line, renders every directory and returns the process exit status
+        (0 = all rendered, 1 = some directory failed, 2 = usage error).
+        */
+        System.setProperty("java.awt.headless", "true");
+
+        BatchRenderer renderer = new BatchRenderer();
+        List<File> directories = new ArrayList<>();
+        List<String> includes = new ArrayList<>();
+        List<String> excludes = new ArrayList<>();
+        Integer readers = null;
+        Integer parsers = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--workers":
+                        renderer.setWorkers(Integer.parseInt(requireValue(args, ++i)));
+                        break;
+                    case "--out":
+                        renderer.setOutputDir(new File(requireValue(args, ++i)));
+                        break;
+                    case "--width":
+                        renderer.setImageSize(Integer.parseInt(requireValue(args, ++i)), renderer.height);
+                        break;
+                    case "--height":
+                        renderer.setImageSize(renderer.width, Integer.parseInt(requireValue(args, ++i)));
+                        break;
+                    case "--per-block":
+                        renderer.setPerBlockCharts(true);
+                        break;
+                    case "--per-group":
+                        renderer.setPerGroupCharts(true);
+                        break;
+                    case "--recursive":
+                        renderer.setRecursive(true);
+                        break;
+                    case "--cache":
+                        renderer.setBinaryCache(true);
+                        break;
+                    case "--include":
+                        includes.add(requireValue(args, ++i));
+                        break;
+                    case "--exclude":
+                        excludes.add(requireValue(args, ++i));
+                        break;
+                    case "--readers":
+                        readers = Integer.parseInt(requireValue(args, ++i));
+                        break;
+                    case "--parsers":
+                        parsers = Integer.parseInt(requireValue(args, ++i));
+                        break;
+                    default:
+                        if (args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("Unknown option: " + args[i]);
+                        }
+                        directories.add(new File(args[i]));
+                }
+            }
+            if (directories.isEmpty()) {
+                throw new IllegalArgumentException("No input directories given");
+            }
+            renderer.setFilePatterns(includes, excludes);
+            if (parsers != null && readers != null && readers == 0) {
+                throw new IllegalArgumentException("--parsers needs at least one reader thread (--readers N)");
+            }
+            if (readers != null || parsers != null) {
+                renderer.setPipeline(readers != null ? readers : DEFAULT_READER_THREADS,
+                        parsers != null ? parsers : renderer.parserThreads);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: RamClockerApp --batch [--workers N] [--out DIR] [--width W] [--height H] "
+                    + "[--per-block] [--per-group] [--recursive] [--cache] [--include GLOB]... [--exclude GLOB]... "
+                    + "[--readers N] [--parsers N] DIR...");
+            return 2;
+        }
+
+        try {
+            List<DirectoryReport> reports = renderer.renderAll(directories);
+            renderer.writeSummary(reports);
+            for (DirectoryReport report : reports) {
+                if (!report.isSuccessful()) {
+                    return 1;
+                }
+            }
+            return 0;
+        } catch (IOException e) {
+            System.err.println("Batch rendering failed: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private static String requireValue(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    public void setWorkers(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Worker count must be at least 1: " + workers);
+        }
+        this.workers = workers;
+    }
+
+    public void setOutputDir(File outputDir) {
+        this.outputDir = outputDir;
+    }
+
+    public void setImageSize(int width, int height) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Image size must be positive: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+    }
+
+    public void setPerBlockCharts(boolean perBlockCharts) {
+        this.perBlockCharts = perBlockCharts;
+    }
+
+    public void setPerGroupCharts(boolean perGroupCharts) {
+        this.perGroupCharts = perGroupCharts;
+    }
+
+    public void setRecursive(boolean recursive) {
+        this.recursive = recursive;
+    }
+
+    public void setBinaryCache(boolean binaryCache) {
+        this.binaryCache = binaryCache;
+    }
+
+    public void setPipeline(int readerThreads, int parserThreads) {
+        /*
+        Stage sizes for the reader/parser pipeline; 0 readers parses each directory serially instead.
+        */
+        if (readerThreads < 0 || parserThreads < 1) {
+            throw new IllegalArgumentException("Invalid pipeline size: " + readerThreads + " readers, "
+                    + parserThreads + " parsers");
+        }
+        this.readerThreads = readerThreads;
+        this.parserThreads = parserThreads;
+    }
+
+    public void setFilePatterns(List<String> includePatterns, List<String> excludePatterns) {
+        /*
+        Globs selecting the files to parse; an empty include list keeps the default ("*.csv").
+        */
+        this.includePatterns.clear();
+        this.includePatterns.addAll(includePatterns);
+        this.excludePatterns.clear();
+        this.excludePatterns.addAll(excludePatterns);
+    }
+
+    public List<DirectoryReport> renderAll(List<File> directories) throws IOException {
+        /*
+        Renders all directories on a fixed pool of `workers` threads.
+        1. Creates the output directory and assigns each input a unique output name
+           (its directory name, suffixed with _2, _3, ... on collisions).
+        2. Submits one task per directory; a failing directory is recorded in its report and
+           does not stop the others.
+        3. Returns the reports in input order.
+        */
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Cannot create output directory: " + outputDir.getAbsolutePath());
+        }
+
+        List<DirectoryReport> reports = new ArrayList<>(directories.size());
+        Set<String> usedNames = new HashSet<>();
+        for (File directory : directories) {
+            String baseName = directory.getAbsoluteFile().getName();
+            String name = baseName;
+            for (int n = 2; !usedNames.add(name); n++) {
+                name = baseName + "_" + n;
+            }
+            reports.add(new DirectoryReport(directory, name));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, reports.size()));
+        try {
+            List<Future<?>> futures = new ArrayList<>(reports.size());
+            for (DirectoryReport report : reports) {
+                futures.add(executor.submit(() -> renderDirectory(report)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // renderDirectory records its own failures; nothing else can be thrown here.
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rendering " + reports.size() + " directories");
+        } finally {
+            executor.shutdownNow();
+        }
+        return reports;
+    }
+
+    private void renderDirectory(DirectoryReport report) {
+        /*
+        Parses one directory, writes its chart and statistics, and fills in its report.
+        */
+        try {
+            ClockCSVParser.ParseOptions options = new ClockCSVParser.ParseOptions();
+            options.setRecursive(recursive);
+            options.setBinaryCache(binaryCache);
+            if (!includePatterns.isEmpty()) {
+                options.setIncludePatterns(includePatterns);
+            }
+            options.setExcludePatterns(excludePatterns);
+            if (readerThreads > 0) {
+                options.setPipeline(readerThreads, parserThreads);
+                options.setLargestFirst(true);
+            }
+            ClockCSVParser.ParsedResult result = ClockCSVParser.parseDirectory(report.getDirectory(), options);
+            List<ClockCSVParser.RAMBlockData> blocks = result.getRegistry().getRanked();
+
+            writeChart(blocks, report.getDirectory().getAbsoluteFile().getName(),
+                    new File(outputDir, report.getOutputName() + ".png"));
+            writeStatistics(blocks, new File(outputDir, report.getOutputName() + "_stats.csv"));
+            if (perBlockCharts) {
+                // Directories already run in parallel, so each renders its block charts on one worker.
+                new BlockChartExporter(width, height, 1)
+                        .exportBlocks(blocks, new File(outputDir, report.getOutputName() + "_blocks"));
+            }
+            if (perGroupCharts) {
+                new BlockChartExporter(width, height, 1)
+                        .exportGroups(groupByDirectory(blocks, report.getDirectory().getAbsoluteFile().getName()),
+                                new File(outputDir, report.getOutputName() + "_groups"));
+            }
+
+            report.blockCount = blocks.size();
+            for (ClockCSVParser.RAMBlockData block : blocks) {
+                report.sampleCount += block.getStatistics().getCount();
+                report.skippedRowCount += block.getSkippedRowCount();
+            }
+            System.out.println(String.format("Rendered %s: %d blocks, %d samples -> %s.png",
+                    report.getDirectory().getPath(), report.blockCount, report.sampleCount, report.getOutputName()));
+            if (result.getIngestTimings() != null) {
+                System.out.println("  ingest: " + result.getIngestTimings());
+            }
+        } catch (Exception e) {
+            report.error = e.getMessage() != null ? e.getMessage() : e.toString();
+            System.err.println("Error rendering " + report.getDirectory().getPath() + ": " + report.error);
+        }
+    }
+
+    static Map<String, List<ClockCSVParser.RAMBlockData>> groupByDirectory(List<ClockCSVParser.RAMBlockData> blocks,
+                                                                         String rootName) {
+        /*
+        Groups blocks by the directory part of their source file name (e.g. "rack1" for
+        "rack1/block3.csv"), sorted by directory; files directly in the loaded directory go under
+        rootName. Blocks keep their rank order within a group.
+        */
+        Map<String, List<ClockCSVParser.RAMBlockData>> groups = new TreeMap<>();
+        for (ClockCSVParser.RAMBlockData block : blocks) {
+            String fileName = block.getSourceFileName();
+            int slash = fileName.lastIndexOf('/');
+            String group = slash > 0 ? fileName.substring(0, slash) : rootName;
+            groups.computeIfAbsent(group, key -> new ArrayList<>()).add(block);
+        }
+        return groups;
+    }
+
+    private void writeChart(List<ClockCSVParser.RAMBlockData> blocks, String title, File pngFile) throws IOException {
+        /*
+        Plots every block (rank order) and saves the chart as a PNG.
+        1. Adds each block's pyramid to a PyramidXYDataset.
+        2. Queries the full domain at the image width, so each series holds about two points per pixel.
+        3. Renders through the GUI's chart configuration and palette.
+        */
+        PyramidXYDataset dataset = new PyramidXYDataset();
+        for (ClockCSVParser.RAMBlockData block : blocks) {
+            if (block.hasSeries()) {
+                dataset.addSeries(block.getBlockName(), block.getSeries().getPyramid());
+            }
+        }
+        Range domain = dataset.getDomainBounds(false);
+        if (domain != null) {
+            dataset.setView(domain.getLowerBound(), domain.getUpperBound(), width);
+        }
+
+        JFreeChart chart = Visualizer.createChart(dataset);
+        chart.setTitle("RAM Block Clock Rates - " + title);
+        Visualizer.applySeriesColors(chart);
+        ChartUtils.saveChartAsPNG(pngFile, chart, width, height);
+    }
+
+    private static void writeStatistics(List<ClockCSVParser.RAMBlockData> blocks, File csvFile) throws IOException {
+        /*
+        One row per block in rank order: label, source file, counts, moments and percentiles.
+        */
+        List<String> header = new ArrayList<>(List.of("block", "file", "samples", "skipped_rows",
+                "mean", "min", "max", "range", "stddev"));
+        for (int percent : ClockCSVParser.StatisticsSnapshot.PERCENTILES) {
+            header.add("p" + percent);
+        }
+
+        try (CSVPrinter printer = new CSVPrinter(new FileWriter(csvFile, StandardCharsets.UTF_8),
+                CSVFormat.DEFAULT.builder().setHeader(header.toArray(new String[0])).build())) {
+            for (ClockCSVParser.RAMBlockData block : blocks) {
+                ClockCSVParser.StatisticsSnapshot stats = block.getStatistics();
+                List<Object> row = new ArrayList<>(List.of(block.getBlockName(), block.getSourceFileName(),
+                        stats.getCount(), block.getSkippedRowCount(), stats.getMean(), stats.getMin(),
+                        stats.getMax(), stats.getRange(), stats.getStandardDeviation()));
+                for (int percent : ClockCSVParser.StatisticsSnapshot.PERCENTILES) {
+                    row.add(stats.getPercentile(percent));
+                }
+                printer.printRecord(row);
+            }
+        }
+    }
+
+    private void writeSummary(List<DirectoryReport> reports) throws IOException {
+        /*
+        summary.csv: one row per input directory with its output name, counts and status.
+        */
+        File summaryFile = new File(outputDir, "summary.csv");
+        try (CSVPrinter printer = new CSVPrinter(new FileWriter(summaryFile, StandardCharsets.UTF_8),
+                CSVFormat.DEFAULT.builder()
+                        .setHeader("directory", "output", "blocks", "samples", "skipped_rows", "status")
+                        .build())) {
+            for (DirectoryReport report : reports) {
+                printer.printRecord(report.getDirectory().getPath(), report.getOutputName(), report.getBlockCount(),
+                        report.getSampleCount(), report.getSkippedRowCount(),
+                        report.isSuccessful() ? "ok" : "error: " + report.getError());
+            }
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package com.ramclock;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Binary cache for parsed CSV files, so reopening a capture directory skips text parsing.
+
+Caches live in a cache directory of their own (ParseOptions.setCacheDirectory, by default
+$XDG_CACHE_HOME/ramclock or ~/.cache/ramclock), never in the capture tree, which may be read-only or
+shared. The cache of /captures/run1/data.csv is <cache dir>/<hash of its absolute path>-data.csv.rcache.
+All values are little-endian:
+  magic "RCBC", int version
+  long source size, long source last-modified (ms),
+  long content fingerprint                                <- freshness key
+  long count, double sum, min, max, mean, variance        <- StatisticsSnapshot
+  int percentile count, double[] percentiles
+  int skipped rows
+  int sample count (-1 if only statistics were cached)
+  long[] timestamps, double[] clock rates                 <- raw columns, already sorted
+
+A cache is only used if its key matches the source's current size, mtime and fingerprint and its
+length matches its header; anything else counts as a miss and the CSV is parsed again. The
+fingerprint hashes the first and last FINGERPRINT_BYTES of the source, so a same-size rewrite on a
+filesystem with coarse mtimes (FAT, some network shares) is still noticed without reading the whole
+file. Statistics-only loads read just the header; loads that need samples memory-map the file and
+bulk-copy both columns. Writes go to a temporary file that is atomically renamed, so readers never
+see a half-written cache.
+
+A cache directory is kept under a size cap (ParseOptions.setCacheMaxBytes, by default
+ramclock.cacheMaxMB or DEFAULT_MAX_MB): once a write takes it over, the least recently used caches
+(oldest mtime; a hit refreshes it) are deleted down to 90% of the cap. The directory is scanned once
+per process and then tracked as caches are written, so a write does not list the directory.
+*/
+final class BinaryBlockCache {
+    private static final int MAGIC = 0x43424352; // "RCBC" in little-endian byte order
+    private static final int VERSION = 2;
+    private static final String SUFFIX = ".rcache";
+    private static final int FIXED_HEADER_BYTES = 4 + 4 + 8 + 8 + 8 + 8 + 5 * 8 + 4;
+    static final int FINGERPRINT_BYTES = 4096;
+    static final long DEFAULT_MAX_MB = 4096;
+    // Cache directories a write failure was already reported for, so a bad directory warns only once.
+    private static final Set<File> reportedDirectories = ConcurrentHashMap.newKeySet();
+    // Bytes of cache files per cache directory, scanned on the first write of this process.
+    private static final Map<File, AtomicLong> directoryBytes = new ConcurrentHashMap<>();
+
+    private BinaryBlockCache() {
+    }
+
+    static final class Entry {
+        /*
+        Cached content of one source file; series is null when only statistics were requested or cached.
+        */
+        final long sourceLength;
+        final long sourceModified;
+        final ClockCSVParser.StatisticsSnapshot stats;
+        final int skippedRows;
+        final ClockCSVParser.ClockRateSeries series;
+
+        Entry(long sourceLength, long sourceModified, ClockCSVParser.StatisticsSnapshot stats, int skippedRows,
+              ClockCSVParser.ClockRateSeries series) {
+            this.sourceLength = sourceLength;
+            this.sourceModified = sourceModified;
+            this.stats = stats;
+            this.skippedRows = skippedRows;
+            this.series = series;
+        }
+    }
+
+    static File defaultDirectory() {
+        String xdgCache = System.getenv("XDG_CACHE_HOME");
+        File base = xdgCache != null && !xdgCache.isEmpty()
+                ? new File(xdgCache)
+                : new File(System.getProperty("user.home"), ".cache");
+        return new File(base, "ramclock");
+    }
+
+    static long defaultMaxBytes() {
+        /*
+        The cache size cap: the ramclock.cacheMaxMB system property if set, else DEFAULT_MAX_MB.
+        */
+        return Long.getLong("ramclock.cacheMaxMB", DEFAULT_MAX_MB) << 20;
+    }
+
+    static File cacheFileFor(File cacheDirectory, File sourceFile) {
+        /*
+        The cache file of sourceFile: named by a hash of its absolute path, so files of the same name
+        in different directories never share a cache, plus the file name to keep the directory readable.
+        */
+        String path = sourceFile.getAbsolutePath();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(path.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                name.append(String.format("%02x", digest[i]));
+            }
+            name.append('-').append(sourceFile.getName()).append(SUFFIX);
+            return new File(cacheDirectory, name.toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static Entry read(File cacheDirectory, File sourceFile, boolean needSamples) {
+        /*
+        Returns the cached entry for sourceFile, or null on a miss (no cache, stale key, samples
+        needed but not cached, or a damaged file).
+        1. Reads the header and checks magic, version and the size/mtime key, then the source's
+           fingerprint (only computed once size and mtime match).
+        2. Refreshes the cache file's mtime, which eviction uses as its last use.
+        3. Without needSamples, returns the statistics right away.
+        4. Otherwise maps the column section and copies it into a new ClockRateSeries.
+        */
+        File cacheFile = cacheFileFor(cacheDirectory, sourceFile);
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+            long cacheLength = channel.size();
+            ByteBuffer fixed = ByteBuffer.allocate(FIXED_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (!readFully(channel, fixed, 0)) {
+                return null;
+            }
+            fixed.flip();
+            long sourceLength = sourceFile.length();
+            long sourceModified = sourceFile.lastModified();
+            if (fixed.getInt() != MAGIC || fixed.getInt() != VERSION
+                    || fixed.getLong() != sourceLength || fixed.getLong() != sourceModified
+                    || fixed.getLong() != fingerprint(sourceFile, sourceLength)) {
+                return null;
+            }
+            long count = fixed.getLong();
+            double sum = fixed.getDouble();
+            double min = fixed.getDouble();
+            double max = fixed.getDouble();
+            double mean = fixed.getDouble();
+            double variance = fixed.getDouble();
+            int percentileCount = fixed.getInt();
+            if (percentileCount != ClockCSVParser.StatisticsSnapshot.PERCENTILES.length) {
+                return null;
+            }
+
+            ByteBuffer rest = ByteBuffer.allocate(percentileCount * 8 + 8).order(ByteOrder.LITTLE_ENDIAN);
+            if (!readFully(channel, rest, FIXED_HEADER_BYTES)) {
+                return null;
+            }
+            rest.flip();
+            double[] percentiles = new double[percentileCount];
+            for (int i = 0; i < percentileCount; i++) {
+                percentiles[i] = rest.getDouble();
+            }
+            int skippedRows = rest.getInt();
+            int sampleCount = rest.getInt();
+            long columnsStart = FIXED_HEADER_BYTES + rest.capacity();
+            long expectedLength = columnsStart + (sampleCount > 0 ? 16L * sampleCount : 0);
+            if (cacheLength != expectedLength) {
+                return null;
+            }
+
+            cacheFile.setLastModified(System.currentTimeMillis());
+            ClockCSVParser.StatisticsSnapshot stats = count == 0
+                    ? ClockCSVParser.StatisticsSnapshot.EMPTY
+                    : new ClockCSVParser.StatisticsSnapshot(count, sum, min, max, mean, variance, percentiles);
+            if (!needSamples) {
+                return new Entry(sourceLength, sourceModified, stats, skippedRows, null);
+            }
+            if (sampleCount < 0) {
+                return null;
+            }
+
+            long[] timestamps = new long[sampleCount];
+            double[] clockRates = new double[sampleCount];
+            if (sampleCount > 0) {
+                MappedByteBuffer columns = channel.map(FileChannel.MapMode.READ_ONLY, columnsStart, 16L * sampleCount);
+                columns.order(ByteOrder.LITTLE_ENDIAN);
+                columns.asLongBuffer().get(timestamps);
+                columns.position(8 * sampleCount);
+                columns.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(clockRates);
+            }
+            return new Entry(sourceLength, sourceModified, stats, skippedRows, new ClockCSVParser.ClockRateSeries(timestamps, clockRates));
+        } catch (IOException | RuntimeException e) {
+            // A cache that cannot be read is treated as missing; the CSV is parsed instead.
+            return null;
+        }
+    }
+
+    static void write(File cacheDirectory, long maxBytes, File sourceFile, long sourceLength, long sourceModified,
+                      ClockCSVParser.StatisticsSnapshot stats, int skippedRows, ClockCSVParser.ClockRateSeries series) {
+        /*
+        Writes (or replaces) the cache for sourceFile, creating the cache directory if needed, then
+        evicts old caches if the directory is now over maxBytes; series may be null to cache
+        statistics only. sourceLength/sourceModified must be taken before the source was parsed, so
+        a file that changes during parsing leaves a cache that is already stale rather than one that
+        looks fresh; the fingerprint is taken from the first sourceLength bytes now, and nothing is
+        written if the file has become shorter than that. Failures (e.g. a full disk) are reported
+        once per cache directory and otherwise ignored.
+        */
+        File cacheFile = cacheFileFor(cacheDirectory, sourceFile);
+        Path temp = null;
+        try {
+            if (sourceFile.length() < sourceLength) {
+                return;
+            }
+            long fingerprint = fingerprint(sourceFile, sourceLength);
+            Files.createDirectories(cacheDirectory.toPath());
+            int sampleCount = series != null ? series.size() : -1;
+            int percentileCount = ClockCSVParser.StatisticsSnapshot.PERCENTILES.length;
+            ByteBuffer header = ByteBuffer.allocate(FIXED_HEADER_BYTES + percentileCount * 8 + 8)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION)
+                    .putLong(sourceLength).putLong(sourceModified).putLong(fingerprint)
+                    .putLong(stats.getCount()).putDouble(stats.getSum()).putDouble(stats.getMin())
+                    .putDouble(stats.getMax()).putDouble(stats.getMean()).putDouble(stats.getVariance())
+                    .putInt(percentileCount);
+            for (int percent : ClockCSVParser.StatisticsSnapshot.PERCENTILES) {
+                header.putDouble(stats.getPercentile(percent));
+            }
+            header.putInt(skippedRows).putInt(sampleCount);
+            header.flip();
+
+            temp = Files.createTempFile(cacheFile.getParentFile().toPath(), cacheFile.getName(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                writeFully(channel, header);
+                if (sampleCount > 0) {
+                    writeColumns(channel, series);
+                }
+            }
+            long written = Files.size(temp);
+            long replaced = cacheFile.length();
+            Files.move(temp, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+            enforceLimit(cacheDirectory, maxBytes, cacheFile, written - replaced);
+        } catch (IOException e) {
+            if (reportedDirectories.add(cacheDirectory.getAbsoluteFile())) {
+                System.err.println("Could not write cache for " + sourceFile.getName() + " in "
+                        + cacheDirectory.getPath() + ": " + e + " (further failures there are not reported)");
+            }
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // Best effort; a stray temp file is ignored by readers.
+                }
+            }
+        }
+    }
+
+    static long fingerprint(File sourceFile, long length) throws IOException {
+        /*
+        Hash of the first and last FINGERPRINT_BYTES of the first `length` bytes of a file (the whole
+        range if it is shorter than both together), folded to a long.
+        */
+        try (FileChannel channel = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocate(2 * FINGERPRINT_BYTES);
+            if (length <= 2L * FINGERPRINT_BYTES) {
+                buffer.limit((int) length);
+                readFully(channel, buffer, 0);
+            } else {
+                buffer.limit(FINGERPRINT_BYTES);
+                readFully(channel, buffer, 0);
+                buffer.limit(2 * FINGERPRINT_BYTES);
+                readFully(channel, buffer, length - 2L * FINGERPRINT_BYTES);
+            }
+            buffer.flip();
+            digest.update(buffer);
+            return ByteBuffer.wrap(digest.digest()).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void enforceLimit(File cacheDirectory, long maxBytes, File written, long addedBytes) throws IOException {
+        /*
+        Adds a write to the directory's tracked size (scanning the directory on its first write) and,
+        if that is now over maxBytes, deletes the least recently used caches other than the one just
+        written until at most 90% of maxBytes is left.
+        */
+        File key = cacheDirectory.getAbsoluteFile();
+        AtomicLong[] created = new AtomicLong[1];
+        AtomicLong total = directoryBytes.computeIfAbsent(key, directory -> created[0] = new AtomicLong(scan(directory)));
+        long bytes = total == created[0] ? total.get() : total.addAndGet(addedBytes);
+        if (bytes <= maxBytes) {
+            return;
+        }
+        synchronized (total) {
+            File[] caches = key.listFiles((directory, name) -> name.endsWith(SUFFIX));
+            if (caches == null) {
+                return;
+            }
+            // Sizes and last use are read once: hits touch mtimes concurrently.
+            long[] sizes = new long[caches.length];
+            long[] lastUsed = new long[caches.length];
+            long remaining = 0;
+            for (int i = 0; i < caches.length; i++) {
+                sizes[i] = caches[i].length();
+                lastUsed[i] = caches[i].lastModified();
+                remaining += sizes[i];
+            }
+            long target = maxBytes / 10 * 9;
+            for (int i : IndexSort.stableOrder(caches.length, (a, b) -> Long.compare(lastUsed[a], lastUsed[b]))) {
+                if (remaining <= target) {
+                    break;
+                }
+                if (!caches[i].equals(written.getAbsoluteFile()) && caches[i].delete()) {
+                    remaining -= sizes[i];
+                }
+            }
+            total.set(remaining);
+        }
+    }
+
+    private static long scan(File cacheDirectory) {
+        File[] caches = cacheDirectory.listFiles((directory, name) -> name.endsWith(SUFFIX));
+        long bytes = 0;
+        if (caches != null) {
+            for (File cache : caches) {
+                bytes += cache.length();
+            }
+        }
+        return bytes;
+    }
+
+    private static void writeColumns(FileChannel channel, ClockCSVParser.ClockRateSeries series) throws IOException {
+        /*
+        Streams both columns through one 1 MB buffer: all timestamps, then all clock rates.
+        */
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < series.size(); i++) {
+            if (!buffer.hasRemaining()) {
+                buffer.flip();
+                writeFully(channel, buffer);
+                buffer.clear();
+            }
+            buffer.putLong(series.getTimestamp(i));
+        }
+        for (int i = 0; i < series.size(); i++) {
+            if (!buffer.hasRemaining()) {
+                buffer.flip();
+                writeFully(channel, buffer);
+                buffer.clear();
+            }
+            buffer.putDouble(series.getClockRate(i));
+        }
+        buffer.flip();
+        writeFully(channel, buffer);
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.ramclock;
+
+import org.jfree.chart.JFreeChart;
+import org.jfree.data.Range;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+Batch PNG export of one chart per RAM block, or per named group of blocks, rendered concurrently.
+
+Every chart gets its own JFreeChart and its own thin PyramidXYDataset (which only holds the points
+for one image width), while the samples and their ClockRatePyramid are shared read-only between all
+workers. Each worker thread draws into one BufferedImage that it reuses for every chart it renders,
+so allocation is bounded by the worker count rather than the number of charts. The PNG writer is
+reused per worker as well, at a fast deflate level: encoding otherwise costs about as much as drawing.
+Names are reduced to file-name-safe characters; names that reduce to the same file get a _2, _3, ...
+suffix instead of overwriting each other's images.
+*/
+public class BlockChartExporter {
+    // ImageIO maps quality q to deflate level (1 - q) * 9, so 0.8 selects level 1.
+    private static final float PNG_COMPRESSION_QUALITY = 0.8f;
+
+    private final int width;
+    private final int height;
+    private final int workers;
+    private final ThreadLocal<Canvas> workerCanvas;
+
+    private static final class Canvas {
+        /*
+        One worker's reusable image and PNG writer.
+        */
+        final BufferedImage image;
+        final ImageWriter writer;
+        final ImageWriteParam param;
+
+        Canvas(int width, int height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            writer = ImageIO.getImageWritersByFormatName("png").next();
+            param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(PNG_COMPRESSION_QUALITY);
+        }
+    }
+
+    public BlockChartExporter(int width, int height, int workers) {
+        /*
+        width/height: size of every exported image in pixels.
+        workers: number of charts rendered concurrently.
+        */
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Image size must be positive: " + width + "x" + height);
+        }
+        if (workers < 1) {
+            throw new IllegalArgumentException("Worker count must be at least 1: " + workers);
+        }
+        this.width = width;
+        this.height = height;
+        this.workers = workers;
+        this.workerCanvas = ThreadLocal.withInitial(() -> new Canvas(width, height));
+    }
+
+    public List<File> exportBlocks(List<ClockCSVParser.RAMBlockData> blocks, File outputDir) throws IOException {
+        /*
+        Writes block_<label>.png for every block, each showing that block alone.
+        */
+        List<String> titles = new ArrayList<>(blocks.size());
+        List<String> fileNames = new ArrayList<>(blocks.size());
+        List<List<ClockCSVParser.RAMBlockData>> charts = new ArrayList<>(blocks.size());
+        Set<String> used = new HashSet<>();
+        for (ClockCSVParser.RAMBlockData block : blocks) {
+            titles.add("RAM Block " + block.getBlockName() + " (" + block.getSourceFileName() + ")");
+            fileNames.add(uniqueFileName("block_", block.getBlockName(), used));
+            charts.add(List.of(block));
+        }
+        return exportAll(titles, fileNames, charts, outputDir);
+    }
+
+    public List<File> exportGroups(Map<String, List<ClockCSVParser.RAMBlockData>> groups, File outputDir)
+            throws IOException {
+        /*
+        Writes group_<name>.png for every group, each showing all blocks of that group.
+        */
+        List<String> titles = new ArrayList<>(groups.size());
+        List<String> fileNames = new ArrayList<>(groups.size());
+        List<List<ClockCSVParser.RAMBlockData>> charts = new ArrayList<>(groups.size());
+        Set<String> used = new HashSet<>();
+        for (Map.Entry<String, List<ClockCSVParser.RAMBlockData>> group : groups.entrySet()) {
+            titles.add("RAM Block Clock Rates - " + group.getKey());
+            fileNames.add(uniqueFileName("group_", group.getKey(), used));
+            charts.add(group.getValue());
+        }
+        return exportAll(titles, fileNames, charts, outputDir);
+    }
+
+    private List<File> exportAll(List<String> titles, List<String> fileNames,
+                                 List<List<ClockCSVParser.RAMBlockData>> charts, File outputDir) throws IOException {
+        /*
+        1. Creates the output directory.
+        2. Renders every chart on a fixed pool of `workers` threads.
+        3. Waits for all of them; charts that fail are reported and skipped, and an IOException
+           naming the first failure is thrown once the rest are written.
+        4. Returns the written files in input order.
+        */
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Cannot create output directory: " + outputDir.getAbsolutePath());
+        }
+        if (charts.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, charts.size()));
+        try {
+            List<Future<File>> futures = new ArrayList<>(charts.size());
+            for (int i = 0; i < charts.size(); i++) {
+                String title = titles.get(i);
+                List<ClockCSVParser.RAMBlockData> blocks = charts.get(i);
+                File pngFile = new File(outputDir, fileNames.get(i));
+                futures.add(executor.submit(() -> render(title, blocks, pngFile)));
+            }
+
+            List<File> written = new ArrayList<>(charts.size());
+            int failures = 0;
+            String firstFailure = null;
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    written.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    System.err.println("Error exporting " + fileNames.get(i) + ": " + cause.getMessage());
+                    if (failures++ == 0) {
+                        firstFailure = fileNames.get(i) + ": " + cause.getMessage();
+                    }
+                }
+            }
+            if (failures > 0) {
+                throw new IOException("Failed to export " + failures + " of " + charts.size() + " charts; first: "
+                        + firstFailure);
+            }
+            return written;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while exporting " + charts.size() + " charts");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private File render(String title, List<ClockCSVParser.RAMBlockData> blocks, File pngFile) throws IOException {
+        /*
+        Renders one chart into this worker's image and encodes it as PNG.
+        1. Builds a dataset over the blocks' shared pyramids, reduced to the image width.
+        2. Creates the chart through the GUI's configuration and palette.
+        3. Draws it over the whole reused image (the chart paints its own background) and encodes
+           it with the worker's PNG writer.
+        */
+        PyramidXYDataset dataset = new PyramidXYDataset();
+        for (ClockCSVParser.RAMBlockData block : blocks) {
+            if (block.hasSeries()) {
+                ClockCSVParser.ClockRateSeries series = block.getSeries();
+                if (series != null) {
+                    dataset.addSeries(block.getBlockName(), series.getPyramid());
+                }
+            }
+        }
+        Range domain = dataset.getDomainBounds(false);
+        if (domain != null) {
+            dataset.setView(domain.getLowerBound(), domain.getUpperBound(), width);
+        }
+
+        JFreeChart chart = Visualizer.createChart(dataset);
+        chart.setTitle(title);
+        Visualizer.applySeriesColors(chart);
+
+        Canvas canvas = workerCanvas.get();
+        Graphics2D graphics = canvas.image.createGraphics();
+        try {
+            chart.draw(graphics, new Rectangle2D.Double(0, 0, width, height));
+        } finally {
+            graphics.dispose();
+        }
+
+        Files.deleteIfExists(pngFile.toPath());
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(pngFile)) {
+            canvas.writer.setOutput(output);
+            canvas.writer.write(null, new IIOImage(canvas.image, null, null), canvas.param);
+        } finally {
+            canvas.writer.setOutput(null);
+        }
+        return pngFile;
+    }
+
+    static String uniqueFileName(String prefix, String name, Set<String> used) {
+        /*
+        prefix + the file-name-safe form of name + ".png", with _2, _3, ... appended until it is not in
+        `used` (compared case-insensitively, for case-insensitive file systems); records the result.
+        */
+        String base = prefix + safeFileName(name);
+        String fileName = base + ".png";
+        for (int n = 2; !used.add(fileName.toLowerCase(Locale.ROOT)); n++) {
+            fileName = base + "_" + n + ".png";
+        }
+        return fileName;
+    }
+
+    private static String safeFileName(String name) {
+        return name.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+}
@@ -0,0 +1,306 @@
+package com.ramclock;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/*
+Block selection panel for the filter side of the GUI, replacing one JCheckBox component per block.
+
+A JList with a fixed cell height only lays out and paints the rows that are visible, through a single
+shared checkbox renderer, so the panel costs the same for 10 blocks or 100k. Selection state lives in
+a BitSet indexed by rank (O(1) per block, one bit each) instead of a Map of components.
+
+1. Filter field: type-to-filter on block label or source file name (case-insensitive substring).
+2. Sort box: rank order, or any BlockRanking statistic (highest first).
+3. Regex field: Enter selects exactly the blocks whose label or file name matches the pattern.
+4. Click or Space on a row toggles it; the selection listener runs after every change.
+*/
+public class BlockFilterList extends JPanel {
+    private static final long serialVersionUID = 1L;
+    private static final String RANK_ORDER = "Rank";
+    private static final int CELL_WIDTH = 160;
+
+    private final JTextField filterField = new JTextField();
+    private final JTextField regexField = new JTextField();
+    private final JComboBox<Object> sortBox = new JComboBox<>();
+    private final RowModel rowModel = new RowModel();
+    private final JList<Integer> list = new JList<>(rowModel);
+
+    private List<ClockCSVParser.RAMBlockData> blocks = new ArrayList<>();
+    private final BitSet selected = new BitSet();
+    private int defaultSelectionLimit = Integer.MAX_VALUE;
+    private Runnable selectionListener;
+
+    private static final class RowModel extends AbstractListModel<Integer> {
+        /*
+        Visible rows as block indices (ranks); replaced wholesale when the filter or sort changes.
+        */
+        private static final long serialVersionUID = 1L;
+
+        private int[] rows = new int[0];
+
+        void setRows(int[] rows) {
+            int oldSize = this.rows.length;
+            this.rows = rows;
+            if (oldSize > 0) {
+                fireIntervalRemoved(this, 0, oldSize - 1);
+            }
+            if (rows.length > 0) {
+                fireIntervalAdded(this, 0, rows.length - 1);
+            }
+        }
+
+        void rowsChanged() {
+            if (rows.length > 0) {
+                fireContentsChanged(this, 0, rows.length - 1);
+            }
+        }
+
+        @Override
+        public int getSize() {
+            return rows.length;
+        }
+
+        @Override
+        public Integer getElementAt(int index) {
+            return rows[index];
+        }
+    }
+
+    private final class CheckBoxRenderer extends JCheckBox implements ListCellRenderer<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Component getListCellRendererComponent(JList<? extends Integer> list, Integer block, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            setText(blocks.get(block).getBlockName());
+            setSelected(selected.get(block));
+            setBackground(isSelected ? list.getSelectionBackground() : list.getBackground());
+            setForeground(isSelected ? list.getSelectionForeground() : list.getForeground());
+            return this;
+        }
+    }
+
+    public BlockFilterList() {
+        /*
+        Lays out the filter and sort controls above the scrolling list, and regex selection below it.
+        */
+        super(new BorderLayout());
+
+        sortBox.addItem(RANK_ORDER);
+        for (BlockRanking.Statistic statistic : BlockRanking.Statistic.values()) {
+            sortBox.addItem(statistic);
+        }
+        sortBox.addActionListener(e -> updateRows());
+
+        filterField.setToolTipText("Type to filter blocks by label or file name");
+        filterField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) { updateRows(); }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) { updateRows(); }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) { updateRows(); }
+        });
+
+        regexField.setToolTipText("Regex on label or file name; Enter selects only matching blocks");
+        regexField.addActionListener(e -> selectMatching(regexField.getText()));
+
+        list.setCellRenderer(new CheckBoxRenderer());
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        // Fixed cell sizes stop the list UI from measuring every row; only visible rows are rendered.
+        list.setFixedCellHeight(new JCheckBox("A").getPreferredSize().height);
+        list.setFixedCellWidth(CELL_WIDTH);
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = list.locationToIndex(e.getPoint());
+                if (index >= 0 && list.getCellBounds(index, index).contains(e.getPoint())) {
+                    toggle(rowModel.getElementAt(index));
+                }
+            }
+        });
+        list.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                int index = list.getSelectedIndex();
+                if (e.getKeyCode() == KeyEvent.VK_SPACE && index >= 0) {
+                    toggle(rowModel.getElementAt(index));
+                }
+            }
+        });
+
+        JPanel top = new JPanel(new GridLayout(0, 1));
+        top.add(labelled("Filter:", filterField));
+        top.add(labelled("Sort:", sortBox));
+
+        add(top, BorderLayout.NORTH);
+        add(new JScrollPane(list), BorderLayout.CENTER);
+        add(labelled("Regex:", regexField), BorderLayout.SOUTH);
+    }
+
+    public void setSelectionListener(Runnable selectionListener) {
+        this.selectionListener = selectionListener;
+    }
+
+    public void setDefaultSelectionLimit(int defaultSelectionLimit) {
+        /*
+        Caps how many blocks start selected (default: no cap). Every selected block is drawn, so with
+        lazily loaded samples each one means reading its file; Select All still selects everything.
+        */
+        if (defaultSelectionLimit < 0) {
+            throw new IllegalArgumentException("Selection limit must not be negative: " + defaultSelectionLimit);
+        }
+        this.defaultSelectionLimit = defaultSelectionLimit;
+    }
+
+    public void setBlocks(List<ClockCSVParser.RAMBlockData> rankedBlocks) {
+        /*
+        Shows a new set of blocks (in rank order), keeping the current filter and sort. The first
+        defaultSelectionLimit ranks start selected (all of them unless a limit was set).
+        */
+        blocks = rankedBlocks != null ? new ArrayList<>(rankedBlocks) : new ArrayList<>();
+        selected.clear();
+        selected.set(0, Math.min(blocks.size(), defaultSelectionLimit));
+        updateRows();
+    }
+
+    public void updateBlocks(List<ClockCSVParser.RAMBlockData> rankedBlocks) {
+        /*
+        Shows a changed set of blocks (in rank order) without resetting the selection: blocks already
+        listed keep their state wherever they moved, and blocks new to the list start selected, in
+        rank order, while fewer than defaultSelectionLimit blocks are selected.
+        */
+        Map<ClockCSVParser.RAMBlockData, Integer> previous = new IdentityHashMap<>(blocks.size() * 2);
+        for (int i = 0; i < blocks.size(); i++) {
+            previous.put(blocks.get(i), i);
+        }
+        BitSet updated = new BitSet(rankedBlocks.size());
+        BitSet added = new BitSet(rankedBlocks.size());
+        for (int i = 0; i < rankedBlocks.size(); i++) {
+            Integer index = previous.get(rankedBlocks.get(i));
+            if (index == null) {
+                added.set(i);
+            } else if (selected.get(index)) {
+                updated.set(i);
+            }
+        }
+        int selectedCount = updated.cardinality();
+        for (int i = added.nextSetBit(0); i >= 0 && selectedCount < defaultSelectionLimit; i = added.nextSetBit(i + 1)) {
+            updated.set(i);
+            selectedCount++;
+        }
+
+        blocks = new ArrayList<>(rankedBlocks);
+        selected.clear();
+        selected.or(updated);
+        updateRows();
+    }
+
+    public List<String> getSelectedBlockNames() {
+        List<String> names = new ArrayList<>(selected.cardinality());
+        for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+            names.add(blocks.get(i).getBlockName());
+        }
+        return names;
+    }
+
+    public void setAllSelected(boolean select) {
+        selected.clear();
+        if (select) {
+            selected.set(0, blocks.size());
+        }
+        selectionChanged();
+    }
+
+    public void selectMatching(String regex) {
+        /*
+        Selects exactly the blocks whose label or source file name contains a match for regex.
+        An invalid pattern is reported and leaves the selection unchanged.
+        */
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            JOptionPane.showMessageDialog(this, "Invalid pattern: " + e.getDescription(),
+                    "Regex Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        selected.clear();
+        for (int i = 0; i < blocks.size(); i++) {
+            ClockCSVParser.RAMBlockData block = blocks.get(i);
+            if (pattern.matcher(block.getBlockName()).find() || pattern.matcher(block.getSourceFileName()).find()) {
+                selected.set(i);
+            }
+        }
+        selectionChanged();
+    }
+
+    private void toggle(int block) {
+        selected.flip(block);
+        selectionChanged();
+    }
+
+    private void selectionChanged() {
+        rowModel.rowsChanged();
+        if (selectionListener != null) {
+            selectionListener.run();
+        }
+    }
+
+    private void updateRows() {
+        /*
+        Rebuilds the visible row indices.
+        1. Keeps blocks whose label or file name contains the filter text (all when it is empty).
+        2. Leaves them in rank order, or sorts them by the chosen statistic, highest first
+           (ties stay in rank order).
+        */
+        String filter = filterField.getText().trim().toLowerCase(Locale.ROOT);
+        List<Integer> rows = new ArrayList<>();
+        for (int i = 0; i < blocks.size(); i++) {
+            ClockCSVParser.RAMBlockData block = blocks.get(i);
+            if (filter.isEmpty()
+                    || block.getBlockName().toLowerCase(Locale.ROOT).contains(filter)
+                    || block.getSourceFileName().toLowerCase(Locale.ROOT).contains(filter)) {
+                rows.add(i);
+            }
+        }
+
+        Object sort = sortBox.getSelectedItem();
+        if (sort instanceof BlockRanking.Statistic) {
+            BlockRanking.Statistic statistic = (BlockRanking.Statistic) sort;
+            double[] values = new double[blocks.size()];
+            for (int row : rows) {
+                values[row] = statistic.of(blocks.get(row));
+            }
+            rows.sort(Comparator.comparingDouble((Integer row) -> values[row]).reversed());
+        }
+
+        rowModel.setRows(rows.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private static JPanel labelled(String label, JComponent component) {
+        JPanel panel = new JPanel(new BorderLayout(4, 0));
+        panel.add(new JLabel(label), BorderLayout.WEST);
+        panel.add(component, BorderLayout.CENTER);
+        return panel;
+    }
+}
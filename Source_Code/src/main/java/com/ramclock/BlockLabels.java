@@ -0,0 +1,53 @@
+package com.ramclock;
+
+/*
+Rank <-> label conversion using bijective base-26: A..Z, AA..AZ, BA..ZZ, AAA.. and so on.
+
+Rank r (0-based) maps to the spreadsheet-column style name of r + 1. Every positive integer has
+exactly one representation with digits 1..26 (A..Z) and no zero digit, so the mapping is a
+bijection between ranks and labels: two different ranks can never share a label, however many
+blocks are loaded. Conversion takes one step per letter (O(log26 n)), with no table or state.
+*/
+public final class BlockLabels {
+    private BlockLabels() {
+    }
+
+    public static String forRank(int rank) {
+        /*
+        Returns the label for a 0-based rank (0 -> "A", 25 -> "Z", 26 -> "AA", 701 -> "ZZ", 702 -> "AAA").
+        */
+        if (rank < 0) {
+            throw new IllegalArgumentException("Rank must not be negative: " + rank);
+        }
+        char[] letters = new char[7];
+        int position = letters.length;
+        long value = (long) rank + 1;
+        while (value > 0) {
+            value--;
+            letters[--position] = (char) ('A' + (value % 26));
+            value /= 26;
+        }
+        return new String(letters, position, letters.length - position);
+    }
+
+    public static int toRank(String label) {
+        /*
+        Inverse of forRank. Throws IllegalArgumentException for anything that is not an A-Z label.
+        */
+        if (label == null || label.isEmpty()) {
+            throw new IllegalArgumentException("Not a block label: " + label);
+        }
+        long value = 0;
+        for (int i = 0; i < label.length(); i++) {
+            char letter = label.charAt(i);
+            if (letter < 'A' || letter > 'Z') {
+                throw new IllegalArgumentException("Not a block label: " + label);
+            }
+            value = value * 26 + (letter - 'A' + 1);
+            if (value - 1 > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Block label out of range: " + label);
+            }
+        }
+        return (int) (value - 1);
+    }
+}
@@ -0,0 +1,113 @@
+package com.ramclock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/*
+Top-K / bottom-K selection of RAM blocks by any parse-time statistic, without sorting the whole set.
+
+A bounded heap of size K is kept while scanning the blocks once, so selecting the top few of
+100k blocks costs O(n log K) time and O(K) memory. Ties keep the blocks' input order, which makes
+the result identical to the head of a stable full sort.
+*/
+public final class BlockRanking {
+    public enum Statistic {
+        AVERAGE("Average") {
+            @Override
+            double of(ClockCSVParser.StatisticsSnapshot stats) { return stats.getMean(); }
+        },
+        MIN("Min") {
+            @Override
+            double of(ClockCSVParser.StatisticsSnapshot stats) { return stats.getMin(); }
+        },
+        MAX("Max") {
+            @Override
+            double of(ClockCSVParser.StatisticsSnapshot stats) { return stats.getMax(); }
+        },
+        RANGE("Range") {
+            @Override
+            double of(ClockCSVParser.StatisticsSnapshot stats) { return stats.getRange(); }
+        },
+        STDDEV("Std Dev") {
+            @Override
+            double of(ClockCSVParser.StatisticsSnapshot stats) { return stats.getStandardDeviation(); }
+        };
+
+        private final String displayName;
+
+        Statistic(String displayName) {
+            this.displayName = displayName;
+        }
+
+        abstract double of(ClockCSVParser.StatisticsSnapshot stats);
+
+        public double of(ClockCSVParser.RAMBlockData block) {
+            return of(block.getStatistics());
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
+    private BlockRanking() {
+    }
+
+    public static List<ClockCSVParser.RAMBlockData> topK(Collection<ClockCSVParser.RAMBlockData> blocks,
+                                                         int k, Statistic statistic) {
+        /*
+        Returns the k blocks with the highest statistic, highest first.
+        */
+        return select(blocks, k, statistic, true);
+    }
+
+    public static List<ClockCSVParser.RAMBlockData> bottomK(Collection<ClockCSVParser.RAMBlockData> blocks,
+                                                            int k, Statistic statistic) {
+        /*
+        Returns the k blocks with the lowest statistic, lowest first.
+        */
+        return select(blocks, k, statistic, false);
+    }
+
+    private static List<ClockCSVParser.RAMBlockData> select(Collection<ClockCSVParser.RAMBlockData> blocks,
+                                                            int k, Statistic statistic, boolean highest) {
+        /*
+        1. Scans the blocks once, keeping the best k in a heap whose root is the worst of them.
+        2. A block replaces the root only if it ranks strictly better, so earlier blocks win ties.
+        3. Drains the heap and reverses it into best-first order.
+        */
+        if (k <= 0 || blocks.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Entries are {value, input index}; "better" = higher (or lower) value, then lower index.
+        Comparator<double[]> better = (a, b) -> {
+            int byValue = highest ? Double.compare(a[0], b[0]) : Double.compare(b[0], a[0]);
+            return byValue != 0 ? byValue : Double.compare(b[1], a[1]);
+        };
+        PriorityQueue<double[]> heap = new PriorityQueue<>(Math.min(k, blocks.size()) + 1, better);
+        List<ClockCSVParser.RAMBlockData> indexed = new ArrayList<>(blocks);
+
+        for (int i = 0; i < indexed.size(); i++) {
+            double[] entry = {statistic.of(indexed.get(i)), i};
+            if (heap.size() < k) {
+                heap.add(entry);
+            } else if (better.compare(entry, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+
+        List<ClockCSVParser.RAMBlockData> selected = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            selected.add(indexed.get((int) heap.poll()[1]));
+        }
+        Collections.reverse(selected);
+        return selected;
+    }
+}
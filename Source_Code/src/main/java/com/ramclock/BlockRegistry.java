@@ -0,0 +1,309 @@
+package com.ramclock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+Indexed view of the loaded RAM blocks: by label, by source file name, and in rank order
+(highest average clock rate first, equal averages by source file name; see compareRank), i.e. the
+order labels were assigned in.
+
+Populated once by ClockCSVParser.parseDirectory, so views that need "the block for this label/file"
+or "all blocks in rank order" render in linear time instead of searching loadedData per entry.
+
+A registry created with unranked() ranks lazily: the blocks are heapified by average once (O(n))
+and each rank is popped, and its label assigned, only when something asks for it. Showing the top
+100 of 100k blocks then costs O(n + 100 log n) instead of a full sort, and unseen blocks never get
+a label at all until they are displayed.
+
+update() keeps an existing ranking current as single blocks are added or change (see DirectoryWatcher):
+the old rank is read back from the block's label and the new one binary-searched, both O(log n), and
+only the ranks in between are rotated and relabelled. That range is the set of labels that actually
+change, so an update costs O(log n + k) for k relabelled blocks instead of sorting and labelling
+everything again.
+*/
+public class BlockRegistry {
+    private final List<ClockCSVParser.RAMBlockData> blocks;
+    private final List<ClockCSVParser.RAMBlockData> ranked;
+    private final Map<String, ClockCSVParser.RAMBlockData> byLabel;
+    private final Map<String, ClockCSVParser.RAMBlockData> bySourceFileName;
+    // Source file name -> index into `blocks`, so update() replaces a block without searching.
+    private final Map<String, Integer> blockIndex;
+
+    // Lazy ranking state: a max-heap of indices into `blocks`, in rank order (compareRank).
+    private final double[] means;
+    private final int[] heap;
+    private int heapSize;
+
+    public static class RankChange {
+        /*
+        Result of update(): the block's rank before (-1 if it was added) and after, and the rank range
+        [firstRelabelled, lastRelabelled] whose labels changed.
+        */
+        private final ClockCSVParser.RAMBlockData block;
+        private final int previousRank;
+        private final int rank;
+        private final int firstRelabelled;
+        private final int lastRelabelled;
+
+        RankChange(ClockCSVParser.RAMBlockData block, int previousRank, int rank, int firstRelabelled, int lastRelabelled) {
+            this.block = block;
+            this.previousRank = previousRank;
+            this.rank = rank;
+            this.firstRelabelled = firstRelabelled;
+            this.lastRelabelled = lastRelabelled;
+        }
+
+        public ClockCSVParser.RAMBlockData getBlock() { return block; }
+        public int getPreviousRank() { return previousRank; }
+        public int getRank() { return rank; }
+        public int getFirstRelabelled() { return firstRelabelled; }
+        public int getLastRelabelled() { return lastRelabelled; }
+        public boolean isAdded() { return previousRank < 0; }
+    }
+
+    public BlockRegistry(List<ClockCSVParser.RAMBlockData> rankedBlocks) {
+        /*
+        rankedBlocks must already be in rank order and labelled; the registry keeps its own copy of the list.
+        */
+        this(rankedBlocks, false);
+    }
+
+    private BlockRegistry(List<ClockCSVParser.RAMBlockData> inputBlocks, boolean lazy) {
+        blocks = new ArrayList<>(inputBlocks);
+        ranked = new ArrayList<>(lazy ? 0 : blocks.size());
+        byLabel = new HashMap<>(blocks.size() * 2);
+        bySourceFileName = new HashMap<>(blocks.size() * 2);
+        blockIndex = new HashMap<>(blocks.size() * 2);
+        for (int i = 0; i < blocks.size(); i++) {
+            bySourceFileName.put(blocks.get(i).getSourceFileName(), blocks.get(i));
+            blockIndex.put(blocks.get(i).getSourceFileName(), i);
+        }
+
+        if (!lazy) {
+            means = null;
+            heap = null;
+            for (ClockCSVParser.RAMBlockData block : blocks) {
+                ranked.add(block);
+                byLabel.put(block.getBlockName(), block);
+            }
+            return;
+        }
+
+        means = new double[blocks.size()];
+        heap = new int[blocks.size()];
+        for (int i = 0; i < blocks.size(); i++) {
+            means[i] = blocks.get(i).getStatistics().getMean();
+            heap[i] = i;
+        }
+        heapSize = heap.length;
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    public static BlockRegistry unranked(List<ClockCSVParser.RAMBlockData> blocks) {
+        /*
+        Creates a lazily ranked registry over blocks in any order. Ranks and labels are assigned on
+        demand, and come out exactly as the eager sort in ClockCSVParser would assign them.
+        */
+        return new BlockRegistry(blocks, true);
+    }
+
+    public synchronized List<ClockCSVParser.RAMBlockData> getRanked() {
+        /*
+        All blocks in rank order. On a lazy registry this ranks (and labels) every remaining block.
+        */
+        rankUpTo(blocks.size());
+        return Collections.unmodifiableList(ranked);
+    }
+
+    public synchronized ClockCSVParser.RAMBlockData getRanked(int rank) {
+        rankUpTo(rank + 1);
+        return ranked.get(rank);
+    }
+
+    public synchronized List<ClockCSVParser.RAMBlockData> getTop(int count) {
+        /*
+        The first `count` blocks in rank order, ranking only as far as needed.
+        */
+        rankUpTo(count);
+        return new ArrayList<>(ranked.subList(0, Math.min(count, ranked.size())));
+    }
+
+    public synchronized int getRankedCount() {
+        return ranked.size();
+    }
+
+    public List<ClockCSVParser.RAMBlockData> getTopK(int k, BlockRanking.Statistic statistic) {
+        return BlockRanking.topK(blocks, k, statistic);
+    }
+
+    public List<ClockCSVParser.RAMBlockData> getBottomK(int k, BlockRanking.Statistic statistic) {
+        return BlockRanking.bottomK(blocks, k, statistic);
+    }
+
+    public synchronized ClockCSVParser.RAMBlockData getByLabel(String label) {
+        /*
+        Looks the label up directly, or on a lazy registry ranks up to the rank it encodes.
+        */
+        ClockCSVParser.RAMBlockData block = byLabel.get(label);
+        if (block != null || heap == null) {
+            return block;
+        }
+        int rank;
+        try {
+            rank = BlockLabels.toRank(label);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        rankUpTo(rank + 1);
+        return byLabel.get(label);
+    }
+
+    public synchronized RankChange update(ClockCSVParser.RAMBlockData block) {
+        /*
+        Adds a block, or re-ranks the block registered for the same source file after its statistics
+        changed (replacing it if a different object is passed).
+        1. Ranks any blocks still unranked, so a lazy registry becomes fully ranked first.
+        2. Finds the old rank from the existing block's label (rank and label are a bijection, see
+           BlockLabels), and binary-searches the new rank among the other blocks (compareRank).
+        3. Moves the block by rotating only the ranks between the old and the new one; an added block
+           is inserted, shifting the ranks after it.
+        4. Relabels only the ranks that shifted: those between the old and the new rank, or every rank
+           from the new one on for an added block.
+        */
+        rankUpTo(blocks.size());
+
+        String sourceFileName = block.getSourceFileName();
+        ClockCSVParser.RAMBlockData existing = bySourceFileName.get(sourceFileName);
+        int previousRank = existing != null ? rankOf(existing) : -1;
+        if (existing != null) {
+            blocks.set(blockIndex.get(sourceFileName), block);
+        } else {
+            blockIndex.put(sourceFileName, blocks.size());
+            blocks.add(block);
+        }
+        bySourceFileName.put(sourceFileName, block);
+
+        // Binary search over the ranking without the block's old entry.
+        int others = previousRank < 0 ? ranked.size() : ranked.size() - 1;
+        int low = 0;
+        int high = others;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            ClockCSVParser.RAMBlockData other = ranked.get(previousRank >= 0 && middle >= previousRank ? middle + 1 : middle);
+            if (compareRank(other, block) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        if (previousRank < 0) {
+            ranked.add(low, block);
+        } else {
+            if (low < previousRank) {
+                Collections.rotate(ranked.subList(low, previousRank + 1), 1);
+            } else if (low > previousRank) {
+                Collections.rotate(ranked.subList(previousRank, low + 1), -1);
+            }
+            ranked.set(low, block);
+        }
+
+        int first = previousRank < 0 ? low : Math.min(previousRank, low);
+        int last = previousRank < 0 ? ranked.size() - 1 : Math.max(previousRank, low);
+        for (int rank = first; rank <= last; rank++) {
+            ClockCSVParser.RAMBlockData relabelled = ranked.get(rank);
+            relabelled.setBlockName(BlockLabels.forRank(rank));
+            byLabel.put(relabelled.getBlockName(), relabelled);
+        }
+        return new RankChange(block, previousRank, low, first, last);
+    }
+
+    public synchronized ClockCSVParser.RAMBlockData getBySourceFileName(String sourceFileName) {
+        return bySourceFileName.get(sourceFileName);
+    }
+
+    public int size() {
+        return blocks.size();
+    }
+
+    public boolean isEmpty() {
+        return blocks.isEmpty();
+    }
+
+    private int rankOf(ClockCSVParser.RAMBlockData block) {
+        /*
+        The rank of a ranked block, read back from its label; falls back to a search if the label
+        was changed outside the registry.
+        */
+        try {
+            int rank = BlockLabels.toRank(block.getBlockName());
+            if (rank < ranked.size() && ranked.get(rank) == block) {
+                return rank;
+            }
+        } catch (IllegalArgumentException e) {
+            // Not a rank label; search below.
+        }
+        return ranked.indexOf(block);
+    }
+
+    private void rankUpTo(int count) {
+        /*
+        Pops blocks off the heap until `count` are ranked, labelling each as it is ranked.
+        */
+        while (ranked.size() < count && heapSize > 0) {
+            int best = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(0);
+
+            ClockCSVParser.RAMBlockData block = blocks.get(best);
+            block.setBlockName(BlockLabels.forRank(ranked.size()));
+            ranked.add(block);
+            byLabel.put(block.getBlockName(), block);
+        }
+    }
+
+    private void siftDown(int position) {
+        int index = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && ranksBefore(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!ranksBefore(heap[child], index)) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = index;
+    }
+
+    private boolean ranksBefore(int a, int b) {
+        return compareRank(means[a], blocks.get(a).getSourceFileName(), means[b], blocks.get(b).getSourceFileName()) < 0;
+    }
+
+    private static int compareRank(ClockCSVParser.RAMBlockData a, ClockCSVParser.RAMBlockData b) {
+        return compareRank(a.getStatistics().getMean(), a.getSourceFileName(),
+                b.getStatistics().getMean(), b.getSourceFileName());
+    }
+
+    static int compareRank(double meanA, String sourceFileNameA, double meanB, String sourceFileNameB) {
+        /*
+        The rank order labels are assigned in: higher average first, equal averages by source file
+        name. Averages are exact-sum based (see ClockCSVParser.BlockStatistics), so they are the same
+        in every load mode, and names are unique, so the order never depends on listing or
+        completion order.
+        */
+        int byMean = Double.compare(meanB, meanA);
+        return byMean != 0 ? byMean : sourceFileNameA.compareTo(sourceFileNameB);
+    }
+}
@@ -0,0 +1,138 @@
+package com.ramclock;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/*
+Streams the capture files of a directory to a consumer as they are listed, so parsing can start on
+the first file while a large (or remote) directory is still being enumerated.
+
+Directories are read one entry at a time through DirectoryStream; with recursion, subdirectories are
+queued and listed after the directory that contains them. Symbolic links to directories are not
+followed. Which files are passed on is decided from their path relative to the root:
+  - a file must match at least one include glob and no exclude glob
+  - a glob containing '/' is matched against the relative path (e.g. "rack1/**.csv"),
+    any other glob against the file name only (e.g. "*.csv", "*_old.csv")
+  - a subdirectory matching an exclude glob is skipped entirely, so nothing below it is opened
+*/
+final class CaptureFileLister {
+    private final Path root;
+    private final boolean recursive;
+    private final List<Glob> includes;
+    private final List<Glob> excludes;
+    private volatile int listedCount;
+
+    private static final class Glob {
+        /*
+        One include/exclude pattern and whether it applies to the relative path or the name alone.
+        */
+        final PathMatcher matcher;
+        final boolean matchesPath;
+
+        Glob(FileSystem fileSystem, String pattern) {
+            this.matcher = fileSystem.getPathMatcher("glob:" + pattern);
+            this.matchesPath = pattern.indexOf('/') >= 0;
+        }
+
+        boolean matches(Path relative) {
+            return matcher.matches(matchesPath ? relative : relative.getFileName());
+        }
+    }
+
+    CaptureFileLister(File directory, ClockCSVParser.ParseOptions options) {
+        this.root = directory.toPath();
+        this.recursive = options.isRecursive();
+        this.includes = compile(options.getIncludePatterns());
+        this.excludes = compile(options.getExcludePatterns());
+    }
+
+    private List<Glob> compile(List<String> patterns) {
+        List<Glob> globs = new ArrayList<>(patterns.size());
+        for (String pattern : patterns) {
+            globs.add(new Glob(root.getFileSystem(), pattern));
+        }
+        return globs;
+    }
+
+    void list(Consumer<File> sink) throws IOException {
+        /*
+        Passes every accepted file to sink, in listing order, as soon as it is listed.
+        1. Reads the root directory; failing to read it is an error.
+        2. Regular files that pass the include/exclude globs go to the sink.
+        3. With recursion, subdirectories that are not excluded are queued and listed in turn;
+           a subdirectory that cannot be read is reported and skipped.
+        */
+        Deque<Path> directories = new ArrayDeque<>();
+        directories.add(root);
+        while (!directories.isEmpty()) {
+            Path directory = directories.poll();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    Path relative = root.relativize(entry);
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                        if (recursive && acceptsDirectory(relative)) {
+                            directories.add(entry);
+                        }
+                    } else if (accepts(relative) && Files.isRegularFile(entry)) {
+                        listedCount++;
+                        sink.accept(entry.toFile());
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                IOException cause = e instanceof DirectoryIteratorException
+                        ? ((DirectoryIteratorException) e).getCause() : (IOException) e;
+                if (directory == root) {
+                    throw cause;
+                }
+                System.err.println("Error listing " + directory + ": " + cause.getMessage());
+            }
+        }
+    }
+
+    boolean accepts(Path relative) {
+        return matchesAny(includes, relative) && !matchesAny(excludes, relative);
+    }
+
+    boolean acceptsDirectory(Path relative) {
+        /*
+        Whether a recursive listing descends into this subdirectory, i.e. it matches no exclude glob.
+        */
+        return !matchesAny(excludes, relative);
+    }
+
+    boolean isRecursive() {
+        return recursive;
+    }
+
+    String relativeName(File file) {
+        /*
+        The file's path below the root with '/' separators; just the file name for top-level files.
+        */
+        return root.relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+    }
+
+    int getListedCount() {
+        return listedCount;
+    }
+
+    private static boolean matchesAny(List<Glob> globs, Path relative) {
+        for (Glob glob : globs) {
+            if (glob.matches(relative)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,11 +1,14 @@
 package com.ramclock;
 
 import org.apache.commons.csv.*;
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /*
 For each CSV file found:
@@ -24,88 +27,643 @@ For each CSV file found:
      Third highest → "C"
      ... and so on
      
-  5. If >26 files: "AA", "AB", "AC", etc.
+  5. If >26 files: "AA", "AB", "AC", ..., "ZZ", "AAA", etc. (bijective base-26, see BlockLabels)
 
   Expects Directory of CSV files, each with 2 columns: timestamp, clock rate (MHz)
 */
 
 public class ClockCSVParser {
+    static final String[] TIMESTAMP_COLUMNS = {"timestamp", "time", "cycle", "index", "time_index"};
+    static final String[] CLOCK_RATE_COLUMNS = {"clock_rate", "rate", "mhz", "frequency", "clock", "clock_rate_mhz"};
+
     public static class ParsedResult {
         private List<RAMBlockData> blockDataList;
         private Map<String, String> fileLabelMap;
+        private BlockRegistry registry;
+        private IngestTimings ingestTimings;
 
         public ParsedResult(List<RAMBlockData> blockDataList, Map<String, String> fileLabelMap) {
             this.blockDataList = blockDataList;
             this.fileLabelMap = fileLabelMap;
+            this.registry = new BlockRegistry(blockDataList);
+        }
+
+        ParsedResult(List<RAMBlockData> blockDataList, BlockRegistry registry) {
+            /*
+            Lazily labelled result: the label map is only built if someone asks for it.
+            */
+            this.blockDataList = blockDataList;
+            this.registry = registry;
         }
 
         public List<RAMBlockData> getBlockDataList() {
             return blockDataList;
         }
 
-        public Map<String, String> getFileLabelMap() {
+        public synchronized Map<String, String> getFileLabelMap() {
+            if (fileLabelMap == null) {
+                fileLabelMap = new HashMap<>();
+                for (RAMBlockData block : registry.getRanked()) {
+                    fileLabelMap.put(block.getSourceFileName(), block.getBlockName());
+                }
+            }
             return fileLabelMap;
         }
+
+        public BlockRegistry getRegistry() {
+            return registry;
+        }
+
+        public IngestTimings getIngestTimings() {
+            /*
+            Per-stage timing of the load, or null if it did not use the reader/parser pipeline.
+            */
+            return ingestTimings;
+        }
+
+        void setIngestTimings(IngestTimings ingestTimings) {
+            this.ingestTimings = ingestTimings;
+        }
+    }
+
+    public static class ParseOptions {
+        /*
+        Tuning options for directory ingestion.
+        parallelism: number of worker threads (1 = serial, on the calling thread). Files run on one
+                     work-stealing ForkJoinPool of this size, and that pool is the only source of
+                     threads: large files split into subtasks on it instead of getting threads of their own.
+        mappedReadThreshold: files at least this large (bytes) are memory-mapped in line-aligned
+                             segments; on the ingest pool these are chunks of splitChunkSize that any
+                             idle worker can take, so a single huge file ends up spread over every worker.
+        largestFirst: list the whole directory before parsing and start on the largest files first
+                      (longest-processing-time order), so no big file is left for the end; in pipeline
+                      mode files are handed to the readers in that order.
+        statisticsOnly: stream every file through BlockStatistics without keeping any samples;
+                        the resulting RAMBlockData carry statistics and labels but no series.
+        lazySeries: ingest statistics only, but let each RAMBlockData load its samples from the
+                    source file on first getSeries() call, through seriesCache (LRU, size-bounded).
+        binaryCache: reuse (and write) a BinaryBlockCache file per CSV file, so unchanged files are
+                     loaded from their cached statistics/columns instead of re-parsed. Off by default;
+                     caches are written to cacheDirectory (default ~/.cache/ramclock), never next to
+                     the CSV files, and the least recently used are deleted once the directory holds
+                     more than cacheMaxBytes (default: ramclock.cacheMaxMB, else 4 GB).
+        lazyLabels: skip the up-front rank sort. Blocks come back in listing order without labels;
+                    the result's BlockRegistry ranks and labels them on demand (see BlockRegistry.unranked),
+                    so only blocks that are actually displayed or looked up are ever labelled.
+        recursive: also parse files in subdirectories; their source file name is the path below the
+                   loaded directory (e.g. "rack1/block3.csv").
+        includePatterns / excludePatterns: globs selecting the files to parse (default: include "*.csv");
+                   see CaptureFileLister. Excluded files and directories are never opened.
+        readerThreads / parserThreads: with readerThreads > 0, files are loaded through IngestPipeline:
+                   readerThreads read files into pooled buffers, parserThreads parse them, and files of
+                   at least mappedReadThreshold are memory-mapped in segments on a ForkJoin pool of
+                   parserThreads workers instead (parallelism is then not used). Per-stage timing is
+                   in the result's IngestTimings. pipelineQueueCapacity (chunks waiting for a parser,
+                   default twice the parser threads) and pipelineBufferSize (bytes per chunk) bound
+                   its memory.
+        progressListener: notified after each file and polled for cancellation (may be null).
+        */
+        private int parallelism = 1;
+        private long mappedReadThreshold = 64L << 20;
+        private boolean statisticsOnly = false;
+        private boolean lazySeries = false;
+        private boolean lazyLabels = false;
+        private boolean binaryCache = false;
+        private File cacheDirectory = BinaryBlockCache.defaultDirectory();
+        private long cacheMaxBytes = BinaryBlockCache.defaultMaxBytes();
+        private boolean recursive = false;
+        private List<String> includePatterns = List.of("*.csv");
+        private List<String> excludePatterns = List.of();
+        private boolean largestFirst = false;
+        private long splitChunkSize = 16L << 20;
+        private int readerThreads = 0;
+        private int parserThreads = Runtime.getRuntime().availableProcessors();
+        private int pipelineQueueCapacity = 0;
+        private int pipelineBufferSize = 1 << 20;
+        private SeriesCache seriesCache;
+        private ProgressListener progressListener;
+
+        public int getParallelism() { return parallelism; }
+        public void setParallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+            }
+            this.parallelism = parallelism;
+        }
+
+        public long getMappedReadThreshold() { return mappedReadThreshold; }
+        public void setMappedReadThreshold(long mappedReadThreshold) { this.mappedReadThreshold = mappedReadThreshold; }
+        public boolean isStatisticsOnly() { return statisticsOnly; }
+        public void setStatisticsOnly(boolean statisticsOnly) { this.statisticsOnly = statisticsOnly; }
+        public boolean isLazySeries() { return lazySeries; }
+        public void setLazySeries(boolean lazySeries) { this.lazySeries = lazySeries; }
+        public boolean isLazyLabels() { return lazyLabels; }
+        public boolean isBinaryCache() { return binaryCache; }
+        public void setBinaryCache(boolean binaryCache) { this.binaryCache = binaryCache; }
+        public File getCacheDirectory() { return cacheDirectory; }
+        public void setCacheDirectory(File cacheDirectory) { this.cacheDirectory = cacheDirectory; }
+        public long getCacheMaxBytes() { return cacheMaxBytes; }
+        public void setCacheMaxBytes(long cacheMaxBytes) {
+            if (cacheMaxBytes < 0) {
+                throw new IllegalArgumentException("Cache size must not be negative: " + cacheMaxBytes);
+            }
+            this.cacheMaxBytes = cacheMaxBytes;
+        }
+        public void setLazyLabels(boolean lazyLabels) { this.lazyLabels = lazyLabels; }
+        public boolean isRecursive() { return recursive; }
+        public void setRecursive(boolean recursive) { this.recursive = recursive; }
+        public List<String> getIncludePatterns() { return includePatterns; }
+        public void setIncludePatterns(List<String> includePatterns) { this.includePatterns = List.copyOf(includePatterns); }
+        public List<String> getExcludePatterns() { return excludePatterns; }
+        public void setExcludePatterns(List<String> excludePatterns) { this.excludePatterns = List.copyOf(excludePatterns); }
+
+        public boolean isLargestFirst() { return largestFirst; }
+        public void setLargestFirst(boolean largestFirst) { this.largestFirst = largestFirst; }
+        public long getSplitChunkSize() { return splitChunkSize; }
+        public void setSplitChunkSize(long splitChunkSize) {
+            if (splitChunkSize < 4096) {
+                throw new IllegalArgumentException("Chunk size must be at least 4096 bytes: " + splitChunkSize);
+            }
+            this.splitChunkSize = splitChunkSize;
+        }
+
+        public int getReaderThreads() { return readerThreads; }
+        public int getParserThreads() { return parserThreads; }
+        public boolean isPipelined() { return readerThreads > 0; }
+
+        public void setPipeline(int readerThreads, int parserThreads) {
+            /*
+            Enables the reader/parser pipeline with the given stage sizes; (0, n) disables it again.
+            */
+            if (readerThreads < 0 || parserThreads < 1) {
+                throw new IllegalArgumentException("Invalid pipeline size: " + readerThreads + " readers, "
+                        + parserThreads + " parsers");
+            }
+            this.readerThreads = readerThreads;
+            this.parserThreads = parserThreads;
+        }
+
+        public int getPipelineQueueCapacity() {
+            return pipelineQueueCapacity > 0 ? pipelineQueueCapacity : 2 * parserThreads;
+        }
+
+        public void setPipelineQueueCapacity(int pipelineQueueCapacity) {
+            if (pipelineQueueCapacity < 1) {
+                throw new IllegalArgumentException("Queue capacity must be at least 1: " + pipelineQueueCapacity);
+            }
+            this.pipelineQueueCapacity = pipelineQueueCapacity;
+        }
+
+        public int getPipelineBufferSize() { return pipelineBufferSize; }
+        public void setPipelineBufferSize(int pipelineBufferSize) {
+            if (pipelineBufferSize < 4096) {
+                throw new IllegalArgumentException("Buffer size must be at least 4096 bytes: " + pipelineBufferSize);
+            }
+            this.pipelineBufferSize = pipelineBufferSize;
+        }
+
+        public SeriesCache getSeriesCache() {
+            if (seriesCache == null) {
+                seriesCache = new SeriesCache(SeriesCache.DEFAULT_MAX_SAMPLES, parallelism,
+                        binaryCache ? cacheDirectory : null);
+            }
+            return seriesCache;
+        }
+
+        public void setSeriesCache(SeriesCache seriesCache) { this.seriesCache = seriesCache; }
+
+        public ProgressListener getProgressListener() { return progressListener; }
+        public void setProgressListener(ProgressListener progressListener) { this.progressListener = progressListener; }
+
+        boolean keepsSamples() {
+            return !statisticsOnly && !lazySeries;
+        }
+    }
+
+    public interface ProgressListener {
+        /*
+        Receives per-file ingestion progress. fileParsed may be called from worker threads, in
+        completion order. Files are parsed while the directory is still being listed, so total is
+        the number of files found so far and only reaches its final value once listing is done.
+        Returning true from isCancelled makes parseDirectory stop early and
+        throw a CancellationException.
+        */
+        void fileParsed(File file, int completed, int total);
+
+        default boolean isCancelled() {
+            return false;
+        }
     }
 
     public static ParsedResult parseDirectory(File directory) throws IOException {
+        return parseDirectory(directory, new ParseOptions());
+    }
+
+    public static ParsedResult parseDirectory(File directory, ParseOptions options) throws IOException {
         /*
         Parses all CSV files in the given directory and returns structured RAM block data along with file-to-label mappings.
         1. Validates the directory.
-        2. Iterates over each CSV file, parsing clock rate records and computing statistics.
-        3. Assigns labels based on average clock rates.
-        4. Returns a ParsedResult containing RAM block data and label mappings.
+        2. Streams the directory listing (optionally recursive, filtered by the options' globs) and
+           parses each CSV file as soon as it is listed (serially or concurrently, per options),
+           computing clock rate records and statistics, reporting progress and honouring
+           cancellation through the options' ProgressListener.
+        3. Assigns labels based on average clock rates (deferred to the registry with lazyLabels).
+        4. Returns a ParsedResult containing RAM block data (in rank order, or listing order with
+           lazyLabels), label mappings, and a BlockRegistry indexing the blocks by label, source file and rank.
         */
         if (!directory.exists() || !directory.isDirectory()) {
             throw new IllegalArgumentException("Not a valid directory: " + directory.getAbsolutePath());
         }
 
-        Collection<File> csvFiles = FileUtils.listFiles(directory, new String[]{"csv"}, false);
+        CaptureFileLister lister = new CaptureFileLister(directory, options);
+        IngestTimings timings = null;
+        List<FileData> allFileData;
+        if (options.isPipelined()) {
+            timings = new IngestTimings(options.getReaderThreads(), options.getParserThreads());
+            allFileData = parseFilesPipelined(lister, options, timings);
+        } else if (options.getParallelism() > 1 && options.isLargestFirst()) {
+            allFileData = parseFilesScheduled(lister, options);
+        } else if (options.getParallelism() > 1) {
+            allFileData = parseFilesParallel(lister, options);
+        } else {
+            allFileData = parseFilesSerial(lister, options);
+        }
 
-        if (csvFiles.isEmpty()) {
+        if (lister.getListedCount() == 0) {
             throw new IllegalArgumentException("No CSV files found in directory: " + directory.getAbsolutePath());
         }
 
+        List<RAMBlockData> blockDataList = new ArrayList<>();
+        Map<String, String> fileLabelMap = options.isLazyLabels() ? null : assignLabels(allFileData);
+        
+        for (FileData fileData : allFileData) {
+            RAMBlockData blockData = toBlockData(fileData, options);
+            if (fileLabelMap != null) {
+                blockData.setBlockName(fileLabelMap.get(fileData.getFileName()));
+            }
+            blockDataList.add(blockData);
+        }
+        
+        ParsedResult result = fileLabelMap == null
+                ? new ParsedResult(blockDataList, BlockRegistry.unranked(blockDataList))
+                : new ParsedResult(blockDataList, fileLabelMap);
+        result.setIngestTimings(timings);
+        return result;
+    }
+
+    static RAMBlockData parseBlock(File csvFile, ParseOptions options) throws IOException {
+        /*
+        Parses a single file into an unlabelled RAMBlockData, exactly as parseDirectory would for that
+        file (used by DirectoryWatcher to pick up new and changed files one at a time).
+        */
+        return toBlockData(parseCSVFile(csvFile, options), options);
+    }
+
+    private static RAMBlockData toBlockData(FileData fileData, ParseOptions options) {
+        RAMBlockData blockData = new RAMBlockData();
+        blockData.setSourceFileName(fileData.getFileName());  // Store original filename
+        blockData.setSourceFile(fileData.getFile());
+        blockData.setSeries(fileData.getSeries());
+        if (options.isLazySeries()) {
+            blockData.setSeriesCache(options.getSeriesCache());
+        }
+        blockData.setStatistics(fileData.getStats());
+        blockData.setSkippedRowCount(fileData.getSkippedRows());
+        blockData.setSourceLength(fileData.getSourceLength());
+        blockData.setSourceModified(fileData.getSourceModified());
+        return blockData;
+    }
+
+    private static List<FileData> parseFilesSerial(CaptureFileLister lister, ParseOptions options) throws IOException {
+        /*
+        Parses files one at a time on the calling thread as they are listed, skipping (and reporting)
+        files that fail.
+        */
         List<FileData> allFileData = new ArrayList<>();
+        int[] completed = {0};
 
-        for (File csvFile : csvFiles) {
+        lister.list(csvFile -> {
+            checkCancelled(options);
             try {
-                FileData fileData = parseCSVFile(csvFile);
-                allFileData.add(fileData);
+                allFileData.add(parseListedFile(lister, csvFile, options));
             } catch (Exception e) {
                 System.err.println("Error parsing file " + csvFile.getName() + ": " + e.getMessage());
             }
+            reportProgress(options, csvFile, ++completed[0], lister.getListedCount());
+        });
+        return allFileData;
+    }
+
+    private static List<FileData> parseFilesParallel(CaptureFileLister lister, ParseOptions options) throws IOException {
+        /*
+        Parses files concurrently on the ingest pool (see newIngestPool), fed by the directory listing.
+        1. Submits one task per file as soon as it is listed, keeping the futures in listing order,
+           so workers start on the first file while the rest of the directory is still being read.
+        2. Collects results in that same order, so the merged list (and therefore the stable
+           sort in assignLabels) is identical to the serial path regardless of completion order.
+        3. Files that fail are reported and skipped, as in the serial path.
+        4. Polls for cancellation while listing and while waiting; on cancel, pending tasks are
+           dropped and running ones interrupted.
+        */
+        ForkJoinPool pool = newIngestPool(options.getParallelism());
+
+        AtomicInteger completed = new AtomicInteger();
+        List<File> csvFiles = new ArrayList<>();
+        List<Future<FileData>> futures = new ArrayList<>();
+
+        try {
+            lister.list(csvFile -> {
+                checkCancelled(options);
+                csvFiles.add(csvFile);
+                futures.add(pool.submit(() -> {
+                    try {
+                        checkCancelled(options);
+                        return parseListedFile(lister, csvFile, options);
+                    } finally {
+                        reportProgress(options, csvFile, completed.incrementAndGet(), lister.getListedCount());
+                    }
+                }));
+            });
+
+            List<FileData> allFileData = new ArrayList<>(csvFiles.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    allFileData.add(awaitFile(futures.get(i), options));
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    System.err.println("Error parsing file " + csvFiles.get(i).getName() + ": " + cause.getMessage());
+                }
+            }
+            return allFileData;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while parsing " + csvFiles.size() + " files");
+        } finally {
+            pool.shutdownNow();
         }
+    }
 
-        List<RAMBlockData> blockDataList = new ArrayList<>();
-        Map<String, String> fileLabelMap = assignLabels(allFileData);
-        
-        for (FileData fileData : allFileData) {
-            RAMBlockData blockData = new RAMBlockData();
-            String label = fileLabelMap.get(fileData.getFileName());
-            blockData.setBlockName(label);
-            blockData.setSourceFileName(fileData.getFileName());  // Store original filename
-            blockData.setClockRateRecords(fileData.getRecords());
-            blockDataList.add(blockData);
+    private static List<FileData> parseFilesPipelined(CaptureFileLister lister, ParseOptions options,
+                                                      IngestTimings timings) throws IOException {
+        /*
+        Feeds the directory listing into an IngestPipeline (reader threads -> bounded chunk queue ->
+        parser threads) and collects the results in listing order, like parseFilesParallel.
+        With largestFirst, the whole listing is taken first and files are submitted largest first.
+        Failed files are reported and skipped; cancellation closes the pipeline.
+        */
+        AtomicInteger completed = new AtomicInteger();
+        List<File> csvFiles = new ArrayList<>();
+        List<Future<FileData>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+
+        try (IngestPipeline pipeline = new IngestPipeline(options, timings)) {
+            Function<File, Future<FileData>> submit = csvFile -> pipeline.submit(csvFile).whenComplete(
+                    (fileData, error) -> reportProgress(options, csvFile, completed.incrementAndGet(),
+                            lister.getListedCount()));
+            if (options.isLargestFirst()) {
+                csvFiles.addAll(listAll(lister, options));
+                futures.addAll(Collections.nCopies(csvFiles.size(), null));
+                for (int index : largestFirstOrder(csvFiles)) {
+                    futures.set(index, submit.apply(csvFiles.get(index)));
+                }
+            } else {
+                lister.list(csvFile -> {
+                    checkCancelled(options);
+                    csvFiles.add(csvFile);
+                    futures.add(submit.apply(csvFile));
+                });
+            }
+
+            List<FileData> allFileData = new ArrayList<>(csvFiles.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    FileData fileData = awaitFile(futures.get(i), options);
+                    fileData.setFileName(lister.relativeName(csvFiles.get(i)));
+                    allFileData.add(fileData);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    System.err.println("Error parsing file " + csvFiles.get(i).getName() + ": " + cause.getMessage());
+                }
+            }
+            return allFileData;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while parsing " + csvFiles.size() + " files");
+        } finally {
+            timings.setWallNanos(System.nanoTime() - start);
         }
-        
-        return new ParsedResult(blockDataList, fileLabelMap);
     }
 
-    private static FileData parseCSVFile(File csvFile) throws IOException {
+    private static List<FileData> parseFilesScheduled(CaptureFileLister lister, ParseOptions options)
+            throws IOException {
         /*
-        Parses a single CSV file into a FileData object containing records and statistics.
-        1. Reads the CSV file using Apache Commons CSV.
-        2. Extracts timestamp and clock rate values from each record.
-        3. Computes statistics (min, max, average, count) for the clock rates
+        Largest-file-first scheduling on a work-stealing pool, so a run does not end with one core
+        still busy on a big file while the others are idle.
+        1. Lists the whole directory first; the order needs every file's size up front.
+        2. Submits one task per file to the ingest pool (see newIngestPool), largest file first,
+           so the big files start early and the small ones fill in around them.
+        3. Files of at least mappedReadThreshold are split into byte-range chunks of splitChunkSize
+           (see NumericCSVReader.readMapped), forked as subtasks that idle workers steal, so a single
+           huge file ends up spread over every core.
+        4. Collects results in listing order, like parseFilesParallel; failed files are reported and
+           skipped, and cancellation drops whatever has not started.
+        */
+        List<File> csvFiles = listAll(lister, options);
+        ForkJoinPool pool = newIngestPool(options.getParallelism());
+
+        AtomicInteger completed = new AtomicInteger();
+        List<Future<FileData>> futures = new ArrayList<>(Collections.nCopies(csvFiles.size(), null));
+        try {
+            for (int index : largestFirstOrder(csvFiles)) {
+                File csvFile = csvFiles.get(index);
+                futures.set(index, pool.submit(() -> {
+                    try {
+                        checkCancelled(options);
+                        return parseListedFile(lister, csvFile, options);
+                    } finally {
+                        reportProgress(options, csvFile, completed.incrementAndGet(), csvFiles.size());
+                    }
+                }));
+            }
+
+            List<FileData> allFileData = new ArrayList<>(csvFiles.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    allFileData.add(awaitFile(futures.get(i), options));
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    System.err.println("Error parsing file " + csvFiles.get(i).getName() + ": " + cause.getMessage());
+                }
+            }
+            return allFileData;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while parsing " + csvFiles.size() + " files");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    static ForkJoinPool newIngestPool(int parallelism) {
+        /*
+        The one thread pool a parallel load runs on: `parallelism` work-stealing workers (daemon
+        threads named csv-ingest-N). Files are its tasks, and large files fork their segments onto
+        it (see NumericCSVReader.readMapped), so nested parallelism never adds threads.
+        */
+        return new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("csv-ingest-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    private static List<File> listAll(CaptureFileLister lister, ParseOptions options) throws IOException {
+        List<File> csvFiles = new ArrayList<>();
+        lister.list(csvFile -> {
+            checkCancelled(options);
+            csvFiles.add(csvFile);
+        });
+        return csvFiles;
+    }
+
+    private static int[] largestFirstOrder(List<File> csvFiles) {
+        /*
+        Indices into csvFiles by decreasing file size; equal sizes keep listing order.
         */
+        long[] sizes = new long[csvFiles.size()];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = csvFiles.get(i).length();
+        }
+        return IndexSort.stableOrder(sizes.length, (a, b) -> Long.compare(sizes[b], sizes[a]));
+    }
+
+    private static FileData parseListedFile(CaptureFileLister lister, File csvFile, ParseOptions options)
+            throws IOException {
+        /*
+        Parses one listed file and names it by its path below the loaded directory, which is just the
+        file name unless the listing is recursive (keeps names unique across subdirectories).
+        */
+        FileData fileData = parseCSVFile(csvFile, options);
+        fileData.setFileName(lister.relativeName(csvFile));
+        return fileData;
+    }
+
+    private static FileData awaitFile(Future<FileData> future, ParseOptions options)
+            throws InterruptedException, ExecutionException {
+        /*
+        Waits for one file's result, checking for cancellation every 100 ms.
+        */
+        while (true) {
+            checkCancelled(options);
+            try {
+                return future.get(100, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Still parsing; poll cancellation again
+            }
+        }
+    }
+
+    private static void checkCancelled(ParseOptions options) {
+        ProgressListener listener = options.getProgressListener();
+        if (listener != null && listener.isCancelled()) {
+            throw new CancellationException("Directory load cancelled");
+        }
+    }
+
+    private static void reportProgress(ParseOptions options, File csvFile, int completed, int total) {
+        ProgressListener listener = options.getProgressListener();
+        if (listener != null) {
+            listener.fileParsed(csvFile, completed, total);
+        }
+    }
+
+    private static FileData parseCSVFile(File csvFile, ParseOptions options) throws IOException {
+        /*
+        Loads a single CSV file, from its binary cache (BinaryBlockCache) when that is enabled and fresh.
+        1. Returns the cached statistics (and samples, if this load keeps them) on a cache hit.
+        2. Otherwise parses the CSV text and writes a new cache for the next load.
+        */
+        FileData cached = readCache(csvFile, options);
+        if (cached != null) {
+            return cached;
+        }
+
+        long sourceModified = csvFile.lastModified();
+        FileData fileData = parseCSVText(csvFile, csvFile.length(), options);
+        fileData.setSourceModified(sourceModified);
+        writeCache(csvFile, fileData, options);
+        return fileData;
+    }
+
+    static FileData readCache(File csvFile, ParseOptions options) {
+        /*
+        Returns the file's data from its binary cache, or null on a miss or if caching is off.
+        */
+        if (!options.isBinaryCache()) {
+            return null;
+        }
+        BinaryBlockCache.Entry cached = BinaryBlockCache.read(options.getCacheDirectory(), csvFile,
+                options.keepsSamples());
+        if (cached == null) {
+            return null;
+        }
         FileData fileData = new FileData();
         fileData.setFileName(csvFile.getName());
+        fileData.setFile(csvFile);
+        fileData.setSourceLength(cached.sourceLength);
+        fileData.setSourceModified(cached.sourceModified);
+        fileData.setSeries(cached.series);
+        fileData.setStats(cached.stats);
+        fileData.setSkippedRows(cached.skippedRows);
+        return fileData;
+    }
+
+    static void writeCache(File csvFile, FileData fileData, ParseOptions options) {
+        if (options.isBinaryCache()) {
+            BinaryBlockCache.write(options.getCacheDirectory(), options.getCacheMaxBytes(), csvFile,
+                    fileData.getSourceLength(), fileData.getSourceModified(),
+                    fileData.getStats(), fileData.getSkippedRows(), fileData.getSeries());
+        }
+    }
 
-        List<ClockRateRecord> records = new ArrayList<>();
+    private static FileData parseCSVText(File csvFile, long sourceLength, ParseOptions options) throws IOException {
+        /*
+        Parses a single CSV file into a FileData object containing records and statistics.
+        1. Tries the byte-level fast path (NumericCSVReader) for plain two-column numeric files,
+           memory-mapped in parallel segments when the file is above the mapped-read threshold.
+        2. Otherwise reads the CSV file using Apache Commons CSV.
+        3. Extracts timestamp and clock rate values from each record.
+        4. Computes statistics (min, max, average, count) for the clock rates
+        Only the first sourceLength bytes are read (normally the length when parsing starts), so a
+        file that is still being appended to can be followed from exactly there (see LiveTail).
+        */
+        ClockRateSeries series = options.keepsSamples() ? new ClockRateSeries() : null;
         BlockStatistics stats = new BlockStatistics();
 
-        try (Reader reader = new FileReader(csvFile, StandardCharsets.UTF_8)) {
+        boolean fastPath = sourceLength >= options.getMappedReadThreshold()
+                ? NumericCSVReader.readMapped(csvFile, sourceLength, options.getSplitChunkSize(), series, stats)
+                : NumericCSVReader.read(csvFile, sourceLength, series, stats);
+        if (fastPath) {
+            return toFileData(csvFile, sourceLength, series, stats, 0);
+        }
+
+        // Not a plain numeric file: discard any partial fast-path results and use Commons CSV.
+        return parseWithCommonsCSV(csvFile, sourceLength, options);
+    }
+
+    static FileData parseWithCommonsCSV(File csvFile, long sourceLength, ParseOptions options) throws IOException {
+        /*
+        General CSV path for files the byte-level fast path does not accept (quoting, extra columns,
+        unparseable rows, ...): rows that cannot be parsed are counted and skipped.
+        Values are parsed as Long.parseLong / Double.parseDouble would (see parseTimestamp and
+        parseClockRate), so tokens the fast path rejects, such as NaN, Infinity or 1f, are still read.
+        */
+        ClockRateSeries series = options.keepsSamples() ? new ClockRateSeries() : null;
+        BlockStatistics stats = new BlockStatistics();
+        int skippedRows = 0;
+
+        try (Reader reader = new InputStreamReader(
+                new BoundedInputStream(new FileInputStream(csvFile), sourceLength), StandardCharsets.UTF_8)) {
             CSVFormat format = CSVFormat.DEFAULT
                     .withFirstRecordAsHeader()
                     .withIgnoreHeaderCase()
@@ -113,30 +671,147 @@ public class ClockCSVParser {
                     .withIgnoreEmptyLines();
             CSVParser parser = new CSVParser(reader, format);
 
+            // Resolve the column aliases once from the header; rows are then read by index.
+            int timestampColumn = resolveColumn(parser.getHeaderMap(), TIMESTAMP_COLUMNS);
+            int clockRateColumn = resolveColumn(parser.getHeaderMap(), CLOCK_RATE_COLUMNS);
+
             for (CSVRecord csvRecord : parser) {
-                ClockRateRecord record = new ClockRateRecord();
+                long timestamp = 0;
+                double clockRate = 0.;
 
-                long timestamp = getLongValue(csvRecord, "timestamp", "time", "cycle", "index", "time_index");
-                double clockRate = getDoubleValue(csvRecord, "clock_rate", "rate", "mhz", "frequency", "clock", "clock_rate_mhz");
+                if (timestampColumn >= 0) {
+                    Long parsed = timestampColumn < csvRecord.size()
+                            ? parseTimestamp(csvRecord.get(timestampColumn))
+                            : null;
+                    if (parsed == null) {
+                        skippedRows++;
+                        continue;
+                    }
+                    timestamp = parsed;
+                }
+                if (clockRateColumn >= 0) {
+                    Double parsed = clockRateColumn < csvRecord.size()
+                            ? parseClockRate(csvRecord.get(clockRateColumn))
+                            : null;
+                    if (parsed == null) {
+                        skippedRows++;
+                        continue;
+                    }
+                    clockRate = parsed;
+                }
         
-                record.setTimestamp(timestamp);
-                record.setClockRate(clockRate);
-                records.add(record);
+                if (series != null) {
+                    series.add(timestamp, clockRate);
+                }
                 stats.update(clockRate);
             }
         }
 
+        if (skippedRows > 0) {
+            System.err.println("Skipped " + skippedRows + " unparseable rows in " + csvFile.getName());
+        }
+        return toFileData(csvFile, sourceLength, series, stats, skippedRows);
+    }
+
+    private static Long parseTimestamp(String value) {
+        /*
+        Parses a timestamp field with the fast byte parser, falling back to Long.parseLong for
+        anything it rejects; returns null if neither accepts the value.
+        */
+        long timestamp = NumericCSVReader.parseLong(value);
+        if (timestamp != Long.MIN_VALUE) {
+            return timestamp;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
 
-        fileData.setRecords(records);
-        fileData.setStats(stats);
+    private static Double parseClockRate(String value) {
+        /*
+        Parses a clock rate field with the fast byte parser, falling back to Double.parseDouble for
+        anything it rejects (NaN, Infinity, hex or suffixed literals); returns null if neither accepts it.
+        */
+        double clockRate = NumericCSVReader.parseDouble(value);
+        if (!Double.isNaN(clockRate)) {
+            return clockRate;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static FileData toFileData(File csvFile, long sourceLength, ClockRateSeries series, BlockStatistics stats,
+                               int skippedRows) {
+        /*
+        Wraps one parsed file; the series (if kept) is trimmed and sorted by timestamp.
+        */
+        if (series != null) {
+            series.trimToSize();
+            series.sortByTimestamp();
+        }
+        FileData fileData = new FileData();
+        fileData.setFileName(csvFile.getName());
+        fileData.setFile(csvFile);
+        fileData.setSourceLength(sourceLength);
+        fileData.setSeries(series);
+        fileData.setStats(stats.snapshot());
+        fileData.setSkippedRows(skippedRows);
         return fileData;
     }
 
+    public static ClockRateSeries loadSeries(File csvFile, long sourceLength, File cacheDirectory) throws IOException {
+        /*
+        Loads the sample series of the first sourceLength bytes of a single file (used for lazily
+        loaded blocks, whose statistics describe exactly those bytes even if the file grew since),
+        building its zoom pyramid right away so the first chart draw does not pay for it.
+        The binary cache in cacheDirectory (null = none) is only used while the file still has that
+        length. A large file is
+        split over the caller's ForkJoinPool when called on one (see SeriesCache).
+        */
+        long length = csvFile.length();
+        if (sourceLength > length) {
+            throw new IOException("file shrank from " + sourceLength + " to " + length + " bytes since it was loaded");
+        }
+        ParseOptions options = new ParseOptions();
+        options.setBinaryCache(cacheDirectory != null);
+        options.setCacheDirectory(cacheDirectory);
+        FileData fileData = sourceLength == length
+                ? parseCSVFile(csvFile, options)
+                : parseCSVText(csvFile, sourceLength, options);
+        ClockRateSeries series = fileData.getSeries();
+        series.getPyramid();
+        return series;
+    }
+
+    private static int resolveColumn(Map<String, Integer> headerMap, String[] aliases) {
+        /*
+        Maps the first alias present in the header to its column index (-1 if none is present).
+        The header map is case-insensitive because the format ignores header case.
+        */
+        if (headerMap == null) {
+            return -1;
+        }
+        for (String alias : aliases) {
+            Integer index = headerMap.get(alias);
+            if (index != null) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
     private static Map<String, String> assignLabels(List<FileData> fileDataList) {
         /*
         Assigns labels to files based on average clock rates.
-        1. Sorts files by average clock rate in descending order.
-        2. Assigns labels "A", "B", ..., "Z", "AA", "AB", etc. based on rank.
+        1. Sorts files by average clock rate in descending order, equal averages by file name
+           (BlockRegistry.compareRank), so every load mode assigns the same labels.
+        2. Assigns labels "A", "B", ..., "Z", "AA", "AB", etc. based on rank (BlockLabels.forRank),
+           which gives every rank a distinct label for any number of files.
         3. Returns a mapping of file names to assigned labels.
         */
         Map<String, String> fileLabelMap = new HashMap<>();
@@ -145,28 +820,44 @@ public class ClockCSVParser {
             return fileLabelMap;
         }
 
-        fileDataList.sort((f1, f2) -> Double.compare(f2.getStats().getAverage(), f1.getStats().getAverage()));
+        fileDataList.sort((f1, f2) -> BlockRegistry.compareRank(f1.getStats().getMean(), f1.getFileName(),
+                f2.getStats().getMean(), f2.getFileName()));
 
-        char currentLabel = 'A';
-        for (FileData fileData : fileDataList) {
-            if (currentLabel > 'Z') {
-                String label = "A" + (char)('A' + ((currentLabel - 'A') % 26));
-                fileLabelMap.put(fileData.getFileName(), label);
-            } else {
-                fileLabelMap.put(fileData.getFileName(), String.valueOf(currentLabel));
-            }
-            currentLabel++;
+        for (int rank = 0; rank < fileDataList.size(); rank++) {
+            fileLabelMap.put(fileDataList.get(rank).getFileName(), BlockLabels.forRank(rank));
         }
         return fileLabelMap;
     }
 
-    private static class FileData {
+    static class FileData {
         /*
-        Represents a parsed CSV file with its associated clock rate records and statistics.
+        Represents a parsed CSV file with its associated clock rate samples and statistics.
+        skippedRows counts data rows dropped because a resolved column was missing or unparseable.
+        sourceLength/sourceModified are the file's length and modification time taken before parsing.
         */
         private String fileName;
-        private List<ClockRateRecord> records;
-        private BlockStatistics stats;
+        private File file;
+        private ClockRateSeries series;
+        private StatisticsSnapshot stats;
+        private int skippedRows;
+        private long sourceLength;
+        private long sourceModified;
+
+        public long getSourceLength() {
+            return sourceLength;
+        }
+
+        public void setSourceLength(long sourceLength) {
+            this.sourceLength = sourceLength;
+        }
+
+        public long getSourceModified() {
+            return sourceModified;
+        }
+
+        public void setSourceModified(long sourceModified) {
+            this.sourceModified = sourceModified;
+        }
 
         public String getFileName() {
             return fileName;
@@ -176,66 +867,658 @@ public class ClockCSVParser {
             this.fileName = fileName;
         }
 
-        public List<ClockRateRecord> getRecords() {
-            return records;
+        public File getFile() {
+            return file;
         }
 
-        public void setRecords(List<ClockRateRecord> records) {
-            this.records = records;
+        public void setFile(File file) {
+            this.file = file;
         }
 
-        public BlockStatistics getStats() {
+        public ClockRateSeries getSeries() {
+            return series;
+        }
+
+        public void setSeries(ClockRateSeries series) {
+            this.series = series;
+        }
+
+        public StatisticsSnapshot getStats() {
             return stats;
         }
 
-        public void setStats(BlockStatistics stats) {
+        public void setStats(StatisticsSnapshot stats) {
             this.stats = stats;
         }
+
+        public int getSkippedRows() {
+            return skippedRows;
+        }
+
+        public void setSkippedRows(int skippedRows) {
+            this.skippedRows = skippedRows;
+        }
     }
 
-    private static class BlockStatistics {
+    static class BlockStatistics {
         /*
-        Represents statistical data for a RAM block's clock rates.
-        Tracks sum, min, max, and count of clock rates.
+        Mutable accumulator for a RAM block's clock rate statistics, fed one sample at a time.
+        Tracks count, sum, min, max, the running variance (Welford), and a fixed-size uniform
+        reservoir of samples for percentile estimates (exact while count <= RESERVOIR_SIZE).
+        Accumulators over disjoint samples can be merged; snapshot() freezes the result.
+
+        The sum is kept exactly, as non-overlapping partial sums (Shewchuk's algorithm, as in
+        Python's math.fsum), and rounded once when read. Sum and mean therefore do not depend on the
+        order samples are added or accumulators merged: a file split into chunks (see
+        NumericCSVReader.readMapped, IngestPipeline) gets bit-for-bit the mean of a serial parse, and
+        blocks are ranked the same in every load mode. A sum that overflows is reported as infinite.
         */
-        private double sum = 0.;
-        private double min = Double.MAX_VALUE;
-        private double max = Double.MIN_VALUE;
-        private int count = 0;
+        static final int RESERVOIR_SIZE = 4096;
+
+        private double[] partials = new double[4];
+        private int partialCount = 0;
+        private double nonFiniteSum = 0.;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private long count = 0;
+        private double mean = 0.;
+        private double m2 = 0.;
+
+        private double[] reservoir = new double[16];
+        private int reservoirSize = 0;
+        private final Random random = new Random(0x5EED);
+        private double skipWeight;
+        private long nextReplacement;
+
+        static BlockStatistics fromSnapshot(StatisticsSnapshot snapshot) {
+            /*
+            Resumes accumulating from frozen statistics, so samples appended to a file can be added
+            without re-reading what was already parsed (see LiveTail).
+            Count, sum, extremes, mean and variance carry over exactly. The reservoir is rebuilt from
+            the snapshot's percentile curve (linear between min, the percentiles and max), so later
+            percentiles keep the snapshot's shape but are estimates even for small blocks.
+            */
+            BlockStatistics stats = new BlockStatistics();
+            long count = snapshot.getCount();
+            if (count == 0) {
+                return stats;
+            }
+            stats.count = count;
+            double[] sumPartials = snapshot.getSumPartials();
+            for (double partial : sumPartials) {
+                stats.addToSum(partial);
+            }
+            if (sumPartials.length == 0) {
+                stats.addToSum(snapshot.getSum());
+            }
+            stats.min = snapshot.getMin();
+            stats.max = snapshot.getMax();
+            stats.mean = snapshot.getMean();
+            stats.m2 = snapshot.getVariance() * (count - 1);
+
+            int[] knotPercents = new int[StatisticsSnapshot.PERCENTILES.length + 2];
+            double[] knotValues = new double[knotPercents.length];
+            knotPercents[knotPercents.length - 1] = 100;
+            knotValues[0] = snapshot.getMin();
+            knotValues[knotValues.length - 1] = snapshot.getMax();
+            for (int i = 0; i < StatisticsSnapshot.PERCENTILES.length; i++) {
+                knotPercents[i + 1] = StatisticsSnapshot.PERCENTILES[i];
+                knotValues[i + 1] = snapshot.getPercentile(StatisticsSnapshot.PERCENTILES[i]);
+            }
+
+            int size = (int) Math.min(count, RESERVOIR_SIZE);
+            stats.reservoir = new double[size];
+            int knot = 0;
+            for (int i = 0; i < size; i++) {
+                double percent = size > 1 ? 100.0 * i / (size - 1) : 0.;
+                while (knot < knotPercents.length - 2 && percent > knotPercents[knot + 1]) {
+                    knot++;
+                }
+                double span = knotPercents[knot + 1] - knotPercents[knot];
+                double fraction = span > 0 ? (percent - knotPercents[knot]) / span : 0.;
+                stats.reservoir[i] = knotValues[knot] + (knotValues[knot + 1] - knotValues[knot]) * fraction;
+            }
+            stats.reservoirSize = size;
+            if (size == RESERVOIR_SIZE) {
+                stats.resetSkip();
+            }
+            return stats;
+        }
 
         public void update(double clockRate) {
-            sum += clockRate;
+            addToSum(clockRate);
             min = Math.min(min, clockRate);
             max = Math.max(max, clockRate);
             count++;
+
+            double delta = clockRate - mean;
+            mean += delta / count;
+            m2 += delta * (clockRate - mean);
+
+            sample(clockRate);
+        }
+
+        private void addToSum(double value) {
+            /*
+            Adds value to the exact sum: each partial is combined with it by an error-free
+            two-sum, nonzero rounding errors are kept as the smaller partials and the rounded
+            total becomes the largest. Non-finite values (and overflow) go to nonFiniteSum.
+            */
+            if (!Double.isFinite(value)) {
+                nonFiniteSum += value;
+                return;
+            }
+            double x = value;
+            int kept = 0;
+            for (int i = 0; i < partialCount; i++) {
+                double y = partials[i];
+                if (Math.abs(x) < Math.abs(y)) {
+                    double swap = x;
+                    x = y;
+                    y = swap;
+                }
+                double high = x + y;
+                double low = y - (high - x);
+                if (low != 0.) {
+                    partials[kept++] = low;
+                }
+                x = high;
+            }
+            if (Double.isInfinite(x)) {
+                nonFiniteSum += x;
+                partialCount = 0;
+                return;
+            }
+            if (kept == partials.length) {
+                partials = Arrays.copyOf(partials, kept * 2);
+            }
+            partials[kept++] = x;
+            partialCount = kept;
+        }
+
+        private double sum() {
+            /*
+            The exact sum rounded to the nearest double (ties to even).
+            */
+            if (nonFiniteSum != 0. || Double.isNaN(nonFiniteSum)) {
+                return nonFiniteSum;
+            }
+            int n = partialCount;
+            if (n == 0) {
+                return 0.;
+            }
+            double high = partials[--n];
+            double low = 0.;
+            while (n > 0) {
+                double x = high;
+                double y = partials[--n];
+                high = x + y;
+                low = y - (high - x);
+                if (low != 0.) {
+                    break;
+                }
+            }
+            // The rest is below half an ulp of high unless it pushes low exactly onto a halfway point.
+            if (n > 0 && ((low < 0 && partials[n - 1] < 0) || (low > 0 && partials[n - 1] > 0))) {
+                double y = low * 2;
+                double x = high + y;
+                if (y == x - high) {
+                    high = x;
+                }
+            }
+            return high;
+        }
+
+        private void sample(double clockRate) {
+            /*
+            Reservoir sampling (Algorithm L): fills the reservoir, then replaces a random slot only at
+            geometrically distributed skip positions, so the per-sample cost stays a compare.
+            */
+            if (reservoirSize < RESERVOIR_SIZE) {
+                if (reservoirSize == reservoir.length) {
+                    reservoir = Arrays.copyOf(reservoir, Math.min(RESERVOIR_SIZE, reservoirSize * 2));
+                }
+                reservoir[reservoirSize++] = clockRate;
+                if (reservoirSize == RESERVOIR_SIZE) {
+                    resetSkip();
+                }
+                return;
+            }
+            if (count == nextReplacement) {
+                reservoir[random.nextInt(RESERVOIR_SIZE)] = clockRate;
+                skipWeight *= Math.exp(Math.log(random.nextDouble()) / RESERVOIR_SIZE);
+                scheduleNextReplacement();
+            }
+        }
+
+        private void resetSkip() {
+            skipWeight = Math.exp(Math.log(random.nextDouble()) / RESERVOIR_SIZE);
+            scheduleNextReplacement();
+        }
+
+        private void scheduleNextReplacement() {
+            nextReplacement = count + (long) Math.floor(Math.log(random.nextDouble()) / Math.log(1 - skipWeight)) + 1;
+        }
+
+        public void merge(BlockStatistics other) {
+            /*
+            Combines statistics computed over a disjoint set of samples (e.g. another file segment).
+            Variance uses the parallel (Chan et al.) update; reservoirs are combined by drawing from
+            each side in proportion to the number of samples it represents.
+            */
+            if (other.count == 0) {
+                return;
+            }
+            long combined = count + other.count;
+            double delta = other.mean - mean;
+            m2 += other.m2 + delta * delta * ((double) count * other.count / combined);
+            mean += delta * other.count / combined;
+
+            if (reservoirSize + other.reservoirSize <= RESERVOIR_SIZE) {
+                reservoir = Arrays.copyOf(reservoir, Math.max(reservoir.length, reservoirSize + other.reservoirSize));
+                System.arraycopy(other.reservoir, 0, reservoir, reservoirSize, other.reservoirSize);
+                reservoirSize += other.reservoirSize;
+            } else {
+                int fromOther = (int) Math.round(RESERVOIR_SIZE * ((double) other.count / combined));
+                fromOther = Math.min(other.reservoirSize, Math.max(RESERVOIR_SIZE - reservoirSize, fromOther));
+                int fromThis = Math.min(reservoirSize, RESERVOIR_SIZE - fromOther);
+                double[] merged = new double[RESERVOIR_SIZE];
+                double[] mine = Arrays.copyOf(reservoir, reservoirSize);
+                double[] theirs = Arrays.copyOf(other.reservoir, other.reservoirSize);
+                shuffle(mine);
+                shuffle(theirs);
+                System.arraycopy(mine, 0, merged, 0, fromThis);
+                System.arraycopy(theirs, 0, merged, fromThis, fromOther);
+                reservoir = merged;
+                reservoirSize = fromThis + fromOther;
+            }
+
+            for (int i = 0; i < other.partialCount; i++) {
+                addToSum(other.partials[i]);
+            }
+            nonFiniteSum += other.nonFiniteSum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            count = combined;
+            if (reservoirSize == RESERVOIR_SIZE) {
+                resetSkip();
+            }
+        }
+
+        private void shuffle(double[] values) {
+            for (int i = values.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                double swap = values[i];
+                values[i] = values[j];
+                values[j] = swap;
+            }
         }
 
         public double getAverage() {
-            return count > 0 ? sum / count : 0; 
+            return count > 0 ? sum() / count : 0; 
+        }
+
+        public double getMin() { return min; }
+        public double getMax() { return max; }
+        public double getRange() { return max - min; }
+        public long getCount() { return count; }
+
+        public StatisticsSnapshot snapshot() {
+            /*
+            Freezes the current state into an immutable StatisticsSnapshot.
+            */
+            if (count == 0) {
+                return StatisticsSnapshot.EMPTY;
+            }
+            double[] sorted = Arrays.copyOf(reservoir, reservoirSize);
+            Arrays.sort(sorted);
+            double[] percentiles = new double[StatisticsSnapshot.PERCENTILES.length];
+            for (int i = 0; i < percentiles.length; i++) {
+                percentiles[i] = percentile(sorted, StatisticsSnapshot.PERCENTILES[i]);
+            }
+            double variance = count > 1 ? m2 / (count - 1) : 0.;
+            double sum = sum();
+            double[] sumPartials = nonFiniteSum == 0. ? Arrays.copyOf(partials, partialCount) : new double[0];
+            return new StatisticsSnapshot(count, sum, min, max, sum / count, variance, percentiles, sumPartials);
+        }
+
+        private static double percentile(double[] sorted, int percent) {
+            /*
+            Linear interpolation between closest ranks.
+            */
+            double rank = percent / 100.0 * (sorted.length - 1);
+            int lower = (int) Math.floor(rank);
+            int upper = Math.min(sorted.length - 1, lower + 1);
+            return sorted[lower] + (sorted[upper] - sorted[lower]) * (rank - lower);
+        }
+    }
+
+    public static final class StatisticsSnapshot {
+        /*
+        Immutable statistics of one RAM block, computed once while parsing.
+        Percentiles are exact for blocks of up to BlockStatistics.RESERVOIR_SIZE samples and
+        estimated from a uniform sample beyond that. Empty blocks report zeros.
+        Snapshots taken by BlockStatistics also keep the exact partial sums behind getSum(), so
+        statistics resumed from them (see BlockStatistics.fromSnapshot) stay exact.
+        */
+        static final int[] PERCENTILES = {1, 5, 25, 50, 75, 95, 99};
+        static final StatisticsSnapshot EMPTY =
+                new StatisticsSnapshot(0, 0., 0., 0., 0., 0., new double[PERCENTILES.length]);
+
+        private final long count;
+        private final double sum;
+        private final double min;
+        private final double max;
+        private final double mean;
+        private final double variance;
+        private final double[] percentiles;
+        private final double[] sumPartials;
+
+        StatisticsSnapshot(long count, double sum, double min, double max, double mean, double variance,
+                           double[] percentiles) {
+            this(count, sum, min, max, mean, variance, percentiles, new double[0]);
+        }
+
+        StatisticsSnapshot(long count, double sum, double min, double max, double mean, double variance,
+                           double[] percentiles, double[] sumPartials) {
+            this.sumPartials = sumPartials;
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+            this.mean = mean;
+            this.variance = variance;
+            this.percentiles = percentiles;
         }
 
+        public long getCount() { return count; }
+        public double getSum() { return sum; }
         public double getMin() { return min; }
         public double getMax() { return max; }
         public double getRange() { return max - min; }
-        public int getCount() { return count; }
+        public double getMean() { return mean; }
+        public double getVariance() { return variance; }
+        public double getStandardDeviation() { return Math.sqrt(variance); }
+        public double getMedian() { return getPercentile(50); }
+        double[] getSumPartials() { return sumPartials; }
+
+        public double getPercentile(int percent) {
+            /*
+            Returns one of the precomputed percentiles (1, 5, 25, 50, 75, 95, 99).
+            */
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                if (PERCENTILES[i] == percent) {
+                    return percentiles[i];
+                }
+            }
+            throw new IllegalArgumentException("Percentile not precomputed: " + percent);
+        }
     }
 
     public static class RAMBlockData {
         /*
         Represents the clock rate data for a specific RAM block.
-        Contains the block name, source file name, and a list of clock rate records.
+        Contains the block name, source file name, statistics, and the columnar clock rate samples.
+        getClockRateRecords() is kept as a read-only compatibility view over the columns;
+        hot paths should read getSeries() directly.
+        Blocks parsed in statistics-only mode have no series (hasSeries() is false).
+        Lazily loaded blocks keep only their source file and statistics; getSeries() loads the
+        samples on first use through the shared SeriesCache, which may evict them again later.
+        getSeries() may therefore read a whole file; Swing code uses peekSeries() and loads
+        missing series in the background (see Visualizer).
+        sourceLength is how many bytes of the source file the samples and statistics cover, and
+        sourceModified the file's modification time when it was parsed (see DirectoryWatcher.start).
         */
         private String blockName;
         private String sourceFileName;
-        private List<ClockRateRecord> clockRateRecords;
+        private File sourceFile;
+        private ClockRateSeries series = new ClockRateSeries();
+        private SeriesCache seriesCache;
+        private StatisticsSnapshot statistics;
+        private int skippedRowCount;
+        private long sourceLength;
+        private long sourceModified;
 
         public String getBlockName() { return blockName; }
         public void setBlockName(String blockName) { this.blockName = blockName; }
         public String getSourceFileName() { return sourceFileName; }
         public void setSourceFileName(String sourceFileName) { this.sourceFileName = sourceFileName; }
-        public List<ClockRateRecord> getClockRateRecords() { return clockRateRecords; }
-        public void setClockRateRecords(List<ClockRateRecord> clockRateRecords) { this.clockRateRecords = clockRateRecords; }
+        public File getSourceFile() { return sourceFile; }
+        public void setSourceFile(File sourceFile) { this.sourceFile = sourceFile; }
+        public void setSeries(ClockRateSeries series) { this.series = series; }
+        public void setSeriesCache(SeriesCache seriesCache) { this.seriesCache = seriesCache; }
+        public boolean isLazy() { return series == null && seriesCache != null && sourceFile != null; }
+        public boolean hasSeries() { return series != null || isLazy(); }
+
+        public ClockRateSeries getSeries() {
+            /*
+            Returns the in-memory series, or loads it through the cache for lazily loaded blocks.
+            May return null for statistics-only blocks or if a lazy load fails.
+            */
+            if (isLazy()) {
+                return seriesCache.get(sourceFile, sourceLength);
+            }
+            return series;
+        }
+
+        public ClockRateSeries peekSeries() {
+            /*
+            Returns the series only if it is available without reading the source file: the in-memory
+            series, or the cached one of a lazily loaded block (null if it is not cached right now).
+            */
+            if (isLazy()) {
+                return seriesCache.peek(sourceFile, sourceLength);
+            }
+            return series;
+        }
+
+        public boolean pinSeries() {
+            /*
+            Keeps a lazily loaded block's series in memory, outside the SeriesCache bound, while it is
+            being appended to and shown (see LiveTail). Returns whether the series is now in memory:
+            true for blocks that were not loaded lazily, false if the series is not cached right now
+            (nothing is read from the file).
+            */
+            if (isLazy()) {
+                series = seriesCache.remove(sourceFile, sourceLength);
+            }
+            return series != null;
+        }
 
+        public boolean isPinned() {
+            return series != null && seriesCache != null && sourceFile != null;
+        }
+
+        public void unpinSeries() {
+            /*
+            Hands a pinned series back to the SeriesCache at the current source length, so it counts
+            against the cache bound (and may be evicted) again.
+            */
+            if (isPinned()) {
+                seriesCache.put(sourceFile, sourceLength, series);
+                series = null;
+            }
+        }
+        public StatisticsSnapshot getStatistics() { return statistics; }
+        public void setStatistics(StatisticsSnapshot statistics) { this.statistics = statistics; }
+        public int getSkippedRowCount() { return skippedRowCount; }
+        public void setSkippedRowCount(int skippedRowCount) { this.skippedRowCount = skippedRowCount; }
+        public long getSourceLength() { return sourceLength; }
+        public void setSourceLength(long sourceLength) { this.sourceLength = sourceLength; }
+        public long getSourceModified() { return sourceModified; }
+        public void setSourceModified(long sourceModified) { this.sourceModified = sourceModified; }
+
+        void reloadFrom(RAMBlockData parsed) {
+            /*
+            Takes over the samples and statistics of a re-parsed copy of this block's file, keeping this
+            block's identity and label. Samples cached for a lazily loaded block are dropped, so the
+            next getSeries() reads the changed file.
+            */
+            if (seriesCache != null && sourceFile != null) {
+                seriesCache.invalidate(sourceFile);
+            }
+            series = parsed.series;
+            seriesCache = parsed.seriesCache;
+            statistics = parsed.statistics;
+            skippedRowCount = parsed.skippedRowCount;
+            sourceLength = parsed.sourceLength;
+            sourceModified = parsed.sourceModified;
+        }
+
+        public List<ClockRateRecord> getClockRateRecords() {
+            /*
+            Lazy view: each ClockRateRecord is created on access from the underlying columns.
+            */
+            ClockRateSeries loaded = getSeries();
+            final ClockRateSeries view = loaded != null ? loaded : new ClockRateSeries(1);
+            return new AbstractList<ClockRateRecord>() {
+                @Override
+                public ClockRateRecord get(int index) {
+                    ClockRateRecord record = new ClockRateRecord();
+                    record.setTimestamp(view.getTimestamp(index));
+                    record.setClockRate(view.getClockRate(index));
+                    return record;
+                }
+
+                @Override
+                public int size() {
+                    return view.size();
+                }
+            };
+        }
+
+        public void setClockRateRecords(List<ClockRateRecord> clockRateRecords) {
+            ClockRateSeries converted = new ClockRateSeries(clockRateRecords.size());
+            for (ClockRateRecord record : clockRateRecords) {
+                converted.add(record.getTimestamp(), record.getClockRate());
+            }
+            this.series = converted;
+        }
+    }
+
+    public static class ClockRateSeries {
+        /*
+        Columnar storage for a block's samples: parallel primitive arrays of timestamps and clock rates.
+        Avoids one object (plus list pointer) per sample; arrays grow by 1.5x like ArrayList.
+        The zoom pyramid is built on first use. Samples appended in timestamp order are folded into it
+        incrementally on the next getPyramid(); anything that breaks the order discards it.
+        */
+        private long[] timestamps;
+        private double[] clockRates;
+        private int size;
+        private ClockRatePyramid pyramid;
+
+        public ClockRateSeries() {
+            this(16);
+        }
+
+        public ClockRateSeries(int initialCapacity) {
+            int capacity = Math.max(initialCapacity, 1);
+            timestamps = new long[capacity];
+            clockRates = new double[capacity];
+        }
+
+        ClockRateSeries(long[] timestamps, double[] clockRates) {
+            /*
+            Adopts already sorted columns of equal length without copying (used by BinaryBlockCache).
+            */
+            this.timestamps = timestamps.length > 0 ? timestamps : new long[1];
+            this.clockRates = clockRates.length > 0 ? clockRates : new double[1];
+            this.size = timestamps.length;
+        }
+
+        public void add(long timestamp, double clockRate) {
+            if (size == timestamps.length) {
+                grow(size + 1);
+            }
+            if (size > 0 && timestamp < timestamps[size - 1]) {
+                pyramid = null;
+            }
+            timestamps[size] = timestamp;
+            clockRates[size] = clockRate;
+            size++;
+        }
+
+        public void addAll(ClockRateSeries other) {
+            if (size + other.size > timestamps.length) {
+                grow(size + other.size);
+            }
+            if (pyramid != null) {
+                long previous = size > 0 ? timestamps[size - 1] : Long.MIN_VALUE;
+                for (int i = 0; i < other.size && pyramid != null; i++) {
+                    if (other.timestamps[i] < previous) {
+                        pyramid = null;
+                    }
+                    previous = other.timestamps[i];
+                }
+            }
+            System.arraycopy(other.timestamps, 0, timestamps, size, other.size);
+            System.arraycopy(other.clockRates, 0, clockRates, size, other.size);
+            size += other.size;
+        }
+
+        public int size() { return size; }
+        public boolean isEmpty() { return size == 0; }
+
+        public long getTimestamp(int index) {
+            Objects.checkIndex(index, size);
+            return timestamps[index];
+        }
+
+        public double getClockRate(int index) {
+            Objects.checkIndex(index, size);
+            return clockRates[index];
+        }
+
+        public void trimToSize() {
+            if (size < timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size);
+                clockRates = Arrays.copyOf(clockRates, size);
+            }
+        }
+
+        public synchronized ClockRatePyramid getPyramid() {
+            if (pyramid == null) {
+                pyramid = new ClockRatePyramid(this);
+            } else {
+                pyramid.extend();
+            }
+            return pyramid;
+        }
+
+        public void sortByTimestamp() {
+            /*
+            Stable-sorts samples by timestamp; a no-op (single pass) for the usual already-sorted capture.
+            Otherwise the columns are permuted through a primitive index sort (IndexSort), so no
+            per-sample objects are allocated.
+            */
+            boolean sorted = true;
+            for (int i = 1; i < size && sorted; i++) {
+                sorted = timestamps[i - 1] <= timestamps[i];
+            }
+            if (sorted) {
+                return;
+            }
+
+            long[] unsorted = timestamps;
+            int[] order = IndexSort.stableOrder(size, (a, b) -> Long.compare(unsorted[a], unsorted[b]));
+
+            long[] sortedTimestamps = new long[timestamps.length];
+            double[] sortedClockRates = new double[clockRates.length];
+            for (int i = 0; i < size; i++) {
+                sortedTimestamps[i] = timestamps[order[i]];
+                sortedClockRates[i] = clockRates[order[i]];
+            }
+            timestamps = sortedTimestamps;
+            clockRates = sortedClockRates;
+            pyramid = null;
+        }
+
+        private void grow(int minCapacity) {
+            int newCapacity = Math.max(minCapacity, timestamps.length + (timestamps.length >> 1));
+            timestamps = Arrays.copyOf(timestamps, newCapacity);
+            clockRates = Arrays.copyOf(clockRates, newCapacity);
+        }
     }
 
     public static class ClockRateRecord {
@@ -250,42 +1533,4 @@ public class ClockCSVParser {
         public double getClockRate() { return clockRate; }
         public void setClockRate(double clockRate) { this.clockRate = clockRate; }
     }
-
-    private static long getLongValue(CSVRecord record, String... possibleNames) {
-        /*
-        Helper function to extract a long value from a CSVRecord given multiple possible column names.
-        1. Iterates over possible column names.
-        2. Returns the first successfully parsed long value.
-        3. Returns 0 if none found or parsable.
-        */
-        for (String name : possibleNames) {
-            if (record.isSet(name)) {
-                try {
-                    return Long.parseLong(record.get(name));
-                } catch (NumberFormatException e) {
-                    // Try next name
-                }
-            }
-        }
-        return 0;
-    }
-    
-    private static double getDoubleValue(CSVRecord record, String... possibleNames) {
-        /*
-        Helper function to extract a double value from a CSVRecord given multiple possible column names.
-        1. Iterates over possible column names.
-        2. Returns the first successfully parsed double value.
-        3. Returns 0.0 if none found or parsable.
-        */
-        for (String name : possibleNames) {
-            if (record.isSet(name)) {
-                try {
-                    return Double.parseDouble(record.get(name));
-                } catch (NumberFormatException e) {
-                    // Try next name
-                }
-            }
-        }
-        return 0.;
-    }
-}
+}
\ No newline at end of file
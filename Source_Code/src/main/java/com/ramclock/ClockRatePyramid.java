@@ -0,0 +1,279 @@
+package com.ramclock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+Multi-resolution min/max/mean index over one block's samples.
+
+Level 0 is the raw series. Level k (k >= 1) groups FANOUT^k consecutive samples into one bucket and
+keeps that bucket's minimum, maximum and mean, plus the sample indices of the extremes (so each
+extreme is drawn at the time it actually happened). Any visible time range can then be answered
+from the level whose bucket count is closest to the screen width, which makes a zoom/pan cost
+proportional to pixels instead of samples. The means answer getMean() over a range from whole
+buckets, which the chart shows for the pixel column under the mouse (see PyramidXYDataset).
+
+Samples must be in ascending timestamp order (ClockCSVParser sorts them when they are not).
+Memory overhead is roughly 1/(FANOUT-1) of the raw series times the per-bucket size.
+Samples appended later (follow mode) are folded in by extend(), which only touches the tail
+buckets of each level; appends and queries must happen on the same thread (the EDT for charts).
+*/
+public class ClockRatePyramid {
+    static final int FANOUT = 8;
+    private static final int MIN_TOP_LEVEL_BUCKETS = 64;
+
+    private final ClockCSVParser.ClockRateSeries samples;
+    private final List<Level> levels = new ArrayList<>();
+    private int indexedSamples;
+
+    private static final class Level {
+        final int bucketSize;
+        int count;
+        double[] min;
+        double[] max;
+        double[] mean;
+        int[] minIndex;
+        int[] maxIndex;
+
+        Level(int bucketSize, int capacity) {
+            this.bucketSize = bucketSize;
+            min = new double[capacity];
+            max = new double[capacity];
+            mean = new double[capacity];
+            minIndex = new int[capacity];
+            maxIndex = new int[capacity];
+        }
+
+        void ensureCapacity(int buckets) {
+            if (buckets <= min.length) {
+                return;
+            }
+            int capacity = Math.max(buckets, min.length + (min.length >> 1));
+            min = Arrays.copyOf(min, capacity);
+            max = Arrays.copyOf(max, capacity);
+            mean = Arrays.copyOf(mean, capacity);
+            minIndex = Arrays.copyOf(minIndex, capacity);
+            maxIndex = Arrays.copyOf(maxIndex, capacity);
+        }
+    }
+
+    public interface PointSink {
+        void add(double x, double y);
+    }
+
+    public ClockRatePyramid(ClockCSVParser.ClockRateSeries samples) {
+        this.samples = samples;
+        extend();
+    }
+
+    public synchronized void extend() {
+        /*
+        Brings the levels up to date with samples appended since the last build (the constructor
+        builds everything this way, from zero).
+        1. Level 1: recomputes from the bucket holding the first new sample (it may have been partial)
+           to the end, straight from the raw samples.
+        2. Every further level: recomputes from the bucket holding the first changed bucket below,
+           merging FANOUT buckets of the level below, and adds levels on top until one has few
+           enough buckets.
+        Appending k samples therefore costs O(k + number of levels), not a rebuild. Samples must
+        still be in ascending timestamp order; after re-sorting, build a new pyramid instead.
+        */
+        int size = samples.size();
+        if (size == indexedSamples || size <= MIN_TOP_LEVEL_BUCKETS) {
+            indexedSamples = size;
+            return;
+        }
+
+        if (levels.isEmpty()) {
+            levels.add(new Level(FANOUT, (size + FANOUT - 1) / FANOUT));
+            indexedSamples = 0;
+        }
+        Level first = levels.get(0);
+        int changed = Math.min(indexedSamples / FANOUT, first.count);
+        int buckets = (size + FANOUT - 1) / FANOUT;
+        first.ensureCapacity(buckets);
+        for (int b = changed; b < buckets; b++) {
+            int start = b * FANOUT;
+            int end = Math.min(size, start + FANOUT);
+            int minIndex = start;
+            int maxIndex = start;
+            double sum = 0;
+            for (int i = start; i < end; i++) {
+                double rate = samples.getClockRate(i);
+                sum += rate;
+                if (rate < samples.getClockRate(minIndex)) minIndex = i;
+                if (rate > samples.getClockRate(maxIndex)) maxIndex = i;
+            }
+            first.min[b] = samples.getClockRate(minIndex);
+            first.max[b] = samples.getClockRate(maxIndex);
+            first.mean[b] = sum / (end - start);
+            first.minIndex[b] = minIndex;
+            first.maxIndex[b] = maxIndex;
+        }
+        first.count = buckets;
+
+        Level below = first;
+        for (int k = 1; below.count > MIN_TOP_LEVEL_BUCKETS && (long) below.bucketSize * FANOUT <= Integer.MAX_VALUE; k++) {
+            if (k == levels.size()) {
+                levels.add(new Level(below.bucketSize * FANOUT, (below.count + FANOUT - 1) / FANOUT));
+            }
+            Level next = levels.get(k);
+            changed = Math.min(changed / FANOUT, next.count);
+            buckets = (below.count + FANOUT - 1) / FANOUT;
+            next.ensureCapacity(buckets);
+            for (int b = changed; b < buckets; b++) {
+                int start = b * FANOUT;
+                int end = Math.min(below.count, start + FANOUT);
+                int minBucket = start;
+                int maxBucket = start;
+                double weightedSum = 0;
+                long count = 0;
+                for (int c = start; c < end; c++) {
+                    int childCount = Math.min(below.bucketSize, size - c * below.bucketSize);
+                    weightedSum += below.mean[c] * childCount;
+                    count += childCount;
+                    if (below.min[c] < below.min[minBucket]) minBucket = c;
+                    if (below.max[c] > below.max[maxBucket]) maxBucket = c;
+                }
+                next.min[b] = below.min[minBucket];
+                next.max[b] = below.max[maxBucket];
+                next.mean[b] = weightedSum / count;
+                next.minIndex[b] = below.minIndex[minBucket];
+                next.maxIndex[b] = below.maxIndex[maxBucket];
+            }
+            next.count = buckets;
+            below = next;
+        }
+        indexedSamples = size;
+    }
+
+    public ClockCSVParser.ClockRateSeries getSamples() {
+        return samples;
+    }
+
+    public synchronized int getLevelCount() {
+        return levels.size() + 1;
+    }
+
+    public boolean isEmpty() {
+        return samples.isEmpty();
+    }
+
+    public long getFirstTimestamp() {
+        return samples.getTimestamp(0);
+    }
+
+    public long getLastTimestamp() {
+        return samples.getTimestamp(samples.size() - 1);
+    }
+
+    public synchronized void query(double from, double to, int pixels, PointSink sink) {
+        /*
+        Emits the points needed to draw [from, to] at a width of `pixels`.
+        1. Finds the sample index range covering [from, to], widened by one sample on each side
+           so lines still run to the plot edges.
+        2. Picks the coarsest level that still has at least `pixels` buckets in that range;
+           if even raw samples fit (<= 2 per pixel) they are emitted directly.
+        3. For each bucket in range emits its min and max sample in the order they occurred,
+           so spikes and droops are never averaged away.
+        */
+        int size = samples.size();
+        if (size == 0) {
+            return;
+        }
+
+        int start = Math.max(0, lowerBound(from) - 1);
+        int end = Math.min(size, upperBound(to) + 1);
+        long count = end - start;
+        int target = Math.max(1, pixels);
+
+        Level level = null;
+        for (Level candidate : levels) {
+            if (count / candidate.bucketSize >= target) {
+                level = candidate;
+            }
+        }
+
+        if (level == null) {
+            if (count <= 2L * target || levels.isEmpty()) {
+                for (int i = start; i < end; i++) {
+                    sink.add(samples.getTimestamp(i), samples.getClockRate(i));
+                }
+                return;
+            }
+            level = levels.get(0);
+        }
+
+        int firstBucket = start / level.bucketSize;
+        int lastBucket = (end - 1) / level.bucketSize;
+        for (int b = firstBucket; b <= lastBucket; b++) {
+            int first = Math.min(level.minIndex[b], level.maxIndex[b]);
+            int second = Math.max(level.minIndex[b], level.maxIndex[b]);
+            sink.add(samples.getTimestamp(first), samples.getClockRate(first));
+            if (second != first) {
+                sink.add(samples.getTimestamp(second), samples.getClockRate(second));
+            }
+        }
+    }
+
+    public synchronized double getMean(double from, double to) {
+        /*
+        Mean clock rate of the samples with timestamps in [from, to] (NaN if there are none).
+        Walks the range left to right, adding each time the largest whole bucket that starts at the
+        current sample (its mean times its size) and single samples elsewhere, so the cost is about
+        FANOUT buckets per level rather than one per sample.
+        */
+        int start = lowerBound(from);
+        int end = upperBound(to);
+        if (end <= start) {
+            return Double.NaN;
+        }
+        double sum = 0;
+        int i = start;
+        while (i < end) {
+            Level best = null;
+            for (Level candidate : levels) {
+                if (i % candidate.bucketSize == 0 && i + candidate.bucketSize <= end) {
+                    best = candidate;
+                }
+            }
+            if (best == null) {
+                sum += samples.getClockRate(i);
+                i++;
+            } else {
+                sum += best.mean[i / best.bucketSize] * best.bucketSize;
+                i += best.bucketSize;
+            }
+        }
+        return sum / (end - start);
+    }
+
+    int lowerBound(double x) {
+        /*
+        First index whose timestamp is >= x.
+        */
+        int low = 0;
+        int high = samples.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (samples.getTimestamp(mid) < x) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    int upperBound(double x) {
+        /*
+        First index whose timestamp is > x.
+        */
+        int low = 0;
+        int high = samples.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (samples.getTimestamp(mid) <= x) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+}
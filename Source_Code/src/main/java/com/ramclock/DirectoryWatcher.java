@@ -0,0 +1,278 @@
+package com.ramclock;
+
+import javax.swing.SwingUtilities;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/*
+Watches a loaded capture directory and parses CSV files as they are created or modified, so new
+sweeps show up without selecting the directory again or re-running parseDirectory.
+
+A daemon thread waits on a WatchService for create/modify events on files that pass the parse
+options' include/exclude globs (see CaptureFileLister). For a recursive load every subdirectory that
+is not excluded is watched too, including ones created later. A file is parsed once it has had no
+events for settleMillis (a writer usually produces a burst of modify events), and only if its length
+or modification time differs from the version parsed last. Watching starts from the versions the
+loaded blocks were parsed from, so files created or appended to while the load was running are
+parsed as well. Parsed files are handed to the listener on the EDT as unlabelled blocks, named by
+their path below the directory like parseDirectory does, in batches, for merging into the loaded
+data (see BlockRegistry.update). An event overflow rescans the directory, so no change is lost,
+only coalesced.
+*/
+public class DirectoryWatcher {
+    public static final int DEFAULT_SETTLE_MS = 500;
+
+    public interface ChangeListener {
+        /*
+        Runs on the EDT with the files parsed since the last call, as unlabelled blocks.
+        */
+        void filesParsed(List<ClockCSVParser.RAMBlockData> blocks);
+    }
+
+    private final File directory;
+    private final ClockCSVParser.ParseOptions options;
+    private final int settleMillis;
+    private final CaptureFileLister lister;
+    // Relative file name -> {length, last modified} of the version last parsed (or loaded).
+    private final Map<String, long[]> parsedVersions = new HashMap<>();
+    // Watched directory of each key, to resolve the file names in its events.
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    // Files listed when watching started, checked against parsedVersions once they settle.
+    private final List<String> initialFiles = new ArrayList<>();
+    private WatchService watchService;
+    private Thread thread;
+    private ChangeListener listener;
+
+    public DirectoryWatcher(File directory, ClockCSVParser.ParseOptions options, int settleMillis) {
+        /*
+        options: how changed files are parsed (e.g. lazy series through the load's SeriesCache);
+                 its progress listener is not used.
+        settleMillis: how long a file must go without events before it is parsed.
+        */
+        if (settleMillis < 0) {
+            throw new IllegalArgumentException("Settle time must not be negative: " + settleMillis);
+        }
+        this.directory = directory;
+        this.options = options;
+        this.settleMillis = settleMillis;
+        this.lister = new CaptureFileLister(directory, options);
+    }
+
+    public void setChangeListener(ChangeListener listener) {
+        this.listener = listener;
+    }
+
+    public synchronized void start(List<ClockCSVParser.RAMBlockData> loadedBlocks) throws IOException {
+        /*
+        Registers the directory and starts the watch thread.
+        loadedBlocks: the blocks loaded from this directory. Each records the length and modification
+                      time its file had before it was parsed, which count as already parsed.
+        1. Seeds parsedVersions from the loaded blocks.
+        2. Registers the directory (and, for a recursive load, its subdirectories) before listing it,
+           so no file written from now on is missed.
+        3. Every listed file is queued once; a file that is unchanged since the load is skipped, one
+           that was written during the load (or was not loaded at all) is parsed after it settles.
+        */
+        if (thread != null) {
+            return;
+        }
+        for (ClockCSVParser.RAMBlockData block : loadedBlocks) {
+            parsedVersions.put(block.getSourceFileName(),
+                    new long[]{block.getSourceLength(), block.getSourceModified()});
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        registerTree(directory.toPath(), initialFiles::add);
+
+        thread = new Thread(this::watch, "csv-watch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        /*
+        Stops the watch thread; files that changed but had not settled yet are not parsed.
+        */
+        if (thread == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Error closing watch service for " + directory.getName() + ": " + e.getMessage());
+        }
+        thread.interrupt();
+        thread = null;
+    }
+
+    private void watch() {
+        /*
+        Watch loop.
+        1. Waits for events (indefinitely while nothing is pending, else up to settleMillis).
+        2. Records the time of the latest event per CSV file; a new subdirectory of a recursive load is
+           registered and its files marked, and an overflow re-registers and marks everything.
+        3. Parses the files that have settled and hands them to the listener in one batch.
+        */
+        Map<String, Long> pending = new LinkedHashMap<>();
+        Path root = directory.toPath();
+        try {
+            long started = System.nanoTime();
+            for (String name : initialFiles) {
+                pending.put(name, started);
+            }
+            initialFiles.clear();
+            while (true) {
+                WatchKey key = pending.isEmpty()
+                        ? watchService.take()
+                        : watchService.poll(settleMillis, TimeUnit.MILLISECONDS);
+                long now = System.nanoTime();
+                Consumer<String> mark = name -> pending.put(name, now);
+                if (key != null) {
+                    Path watched = watchedDirectories.get(key);
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            registerTree(root, mark);
+                        } else if (watched != null) {
+                            Path entry = watched.resolve((Path) event.context());
+                            Path relative = root.relativize(entry);
+                            if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                                        && lister.isRecursive() && lister.acceptsDirectory(relative)) {
+                                    try {
+                                        registerTree(entry, mark);
+                                    } catch (IOException e) {
+                                        System.err.println("Error watching " + entry + ": " + e.getMessage());
+                                    }
+                                }
+                            } else if (lister.accepts(relative)) {
+                                mark.accept(lister.relativeName(entry.toFile()));
+                            }
+                        }
+                    }
+                    if (!key.reset()) {
+                        watchedDirectories.remove(key);
+                        if (root.equals(watched)) {
+                            System.err.println("Stopped watching " + directory.getPath() + ": directory is no longer accessible");
+                            return;
+                        }
+                    }
+                }
+
+                List<ClockCSVParser.RAMBlockData> parsed = new ArrayList<>();
+                for (Iterator<Map.Entry<String, Long>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+                    Map.Entry<String, Long> entry = it.next();
+                    if (now - entry.getValue() >= TimeUnit.MILLISECONDS.toNanos(settleMillis)) {
+                        it.remove();
+                        ClockCSVParser.RAMBlockData block = parseIfChanged(entry.getKey());
+                        if (block != null) {
+                            parsed.add(block);
+                        }
+                    }
+                }
+                if (!parsed.isEmpty() && listener != null) {
+                    ChangeListener target = listener;
+                    SwingUtilities.invokeLater(() -> target.filesParsed(parsed));
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // stop() was called.
+        } catch (IOException e) {
+            System.err.println("Stopped watching " + directory.getPath() + ": " + e.getMessage());
+        }
+    }
+
+    private ClockCSVParser.RAMBlockData parseIfChanged(String name) {
+        /*
+        Parses a settled file unless it is gone, still empty, or unchanged since it was last parsed.
+        Failures are reported and the file is retried on its next change.
+        */
+        File csvFile = new File(directory, name);
+        if (!csvFile.isFile() || csvFile.length() == 0) {
+            return null;
+        }
+        long[] version = versionOf(csvFile);
+        if (Arrays.equals(version, parsedVersions.get(name))) {
+            return null;
+        }
+        try {
+            ClockCSVParser.RAMBlockData block = ClockCSVParser.parseBlock(csvFile, options);
+            block.setSourceFileName(name);
+            parsedVersions.put(name, version);
+            return block;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error parsing file " + name + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void registerTree(Path top, Consumer<String> files) throws IOException {
+        /*
+        Registers top and, for a recursive load, every subdirectory below it that is not excluded, then
+        passes the relative name of each accepted file found in them to files. Registering a directory
+        that is already watched keeps its key. Failing to read top is an error; a subdirectory below
+        it that cannot be read is reported and skipped.
+        */
+        Path root = directory.toPath();
+        Files.walkFileTree(top, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!dir.equals(top) && !(lister.isRecursive() && lister.acceptsDirectory(root.relativize(dir)))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                try {
+                    WatchKey key = dir.register(watchService,
+                            StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                    watchedDirectories.put(key, dir);
+                    return FileVisitResult.CONTINUE;
+                } catch (IOException e) {
+                    if (dir.equals(top)) {
+                        throw e;
+                    }
+                    System.err.println("Error watching " + dir + ": " + e.getMessage());
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (lister.accepts(root.relativize(file)) && Files.isRegularFile(file)) {
+                    files.accept(lister.relativeName(file.toFile()));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                if (file.equals(top)) {
+                    throw e;
+                }
+                System.err.println("Error watching " + file + ": " + e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static long[] versionOf(File file) {
+        return new long[]{file.length(), file.lastModified()};
+    }
+}
@@ -0,0 +1,52 @@
+package com.ramclock;
+
+import java.util.function.IntBinaryOperator;
+
+/*
+Stable sort of the indices 0..n-1 by a caller-supplied comparison, on primitive int arrays.
+
+Used to order parallel primitive columns (ClockRateSeries) and file lists by a key held elsewhere
+without boxing an Integer per element. Bottom-up merge sort: O(n log n) compares, one scratch
+int[] of n, and adjacent runs that are already in order are copied instead of merged, so nearly
+sorted input costs little more than a scan.
+*/
+final class IndexSort {
+    private IndexSort() {
+    }
+
+    static int[] stableOrder(int size, IntBinaryOperator compare) {
+        /*
+        Returns the indices 0..size-1 ordered so that compare(order[i], order[i + 1]) <= 0;
+        indices that compare equal keep their natural order. compare returns <0, 0 or >0 like
+        Comparator.compare.
+        */
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        int[] scratch = new int[size];
+        for (int width = 1; width < size; width <<= 1) {
+            for (int low = 0; low < size; low += width << 1) {
+                int middle = Math.min(low + width, size);
+                int high = Math.min(low + (width << 1), size);
+                if (middle == high || compare.applyAsInt(order[middle - 1], order[middle]) <= 0) {
+                    System.arraycopy(order, low, scratch, low, high - low);
+                    continue;
+                }
+                int left = low;
+                int right = middle;
+                for (int out = low; out < high; out++) {
+                    if (right >= high || (left < middle && compare.applyAsInt(order[left], order[right]) <= 0)) {
+                        scratch[out] = order[left++];
+                    } else {
+                        scratch[out] = order[right++];
+                    }
+                }
+            }
+            int[] swap = order;
+            order = scratch;
+            scratch = swap;
+        }
+        return order;
+    }
+}
@@ -0,0 +1,423 @@
+package com.ramclock;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+Two-stage ingestion: reader threads do the file I/O, parser threads do the number parsing, so slow
+storage (NFS) and slow parsing (fast local disks) can each be given the threads they need.
+
+  reader stage  one task per submitted file: checks the binary cache, then fills pooled buffers
+                from the FileChannel and cuts each one after its last '\n' (the partial line is
+                carried into the next buffer), so every chunk holds whole lines only
+  chunk queue   bounded; a reader blocks when it is full, or when no buffer is free, until the
+                parsers catch up (backpressure), so memory stays at a fixed number of buffers
+  parser stage  parses chunks with NumericCSVReader.parseLines into per-chunk parts; whoever
+                finishes a file's last part appends the parts in file order, sorts, writes the
+                cache and completes the file's future
+  mapped stage  files of at least mappedReadThreshold skip the buffers: the reader hands them to
+                a ForkJoin pool of parserThreads workers (see ClockCSVParser.newIngestPool), where
+                NumericCSVReader.readMapped forks their line-aligned segments over every worker
+
+Results match ClockCSVParser.parseCSVFile: a file whose header or rows are not plain (or that has
+a line longer than a buffer) is re-parsed through Commons CSV once all of its queued chunks are
+done. As with NumericCSVReader.readMapped segments, per-chunk statistics are merged: sums and
+means are exact and match the serial path bit for bit (see ClockCSVParser.BlockStatistics), so
+labels do too; only percentile estimates come from a different reservoir draw.
+*/
+final class IngestPipeline implements Closeable {
+    private final ClockCSVParser.ParseOptions options;
+    private final IngestTimings timings;
+    private final int bufferSize;
+    private final int maxBuffers;
+    private final BlockingQueue<ByteBuffer> freeBuffers;
+    private final AtomicInteger allocatedBuffers = new AtomicInteger();
+    private final BlockingQueue<Chunk> chunks;
+    private final ExecutorService readers;
+    private final ExecutorService parsers;
+    private final ForkJoinPool mappedPool;
+
+    private static final class FileJob {
+        /*
+        One file in flight. pending counts its unparsed chunks plus one for the reader, so the thread
+        that brings it to zero knows every part is in and assembles the result.
+        */
+        final File file;
+        final CompletableFuture<ClockCSVParser.FileData> result = new CompletableFuture<>();
+        final List<Part> parts = new ArrayList<>();
+        final AtomicInteger pending = new AtomicInteger(1);
+        long sourceLength;
+        long sourceModified;
+        volatile ClockCSVParser.FileData mapped;
+        volatile boolean notPlain;
+        volatile Throwable error;
+
+        FileJob(File file) {
+            this.file = file;
+        }
+    }
+
+    private static final class Part {
+        ClockCSVParser.ClockRateSeries series;
+        ClockCSVParser.BlockStatistics stats;
+    }
+
+    private static final class Chunk {
+        /*
+        Whole lines [start, end) of buffer, to be parsed into parts[index] of job.
+        */
+        final FileJob job;
+        final int index;
+        final ByteBuffer buffer;
+        final int start;
+        final int end;
+        final NumericCSVReader.Layout layout;
+
+        Chunk(FileJob job, int index, ByteBuffer buffer, int start, int end, NumericCSVReader.Layout layout) {
+            this.job = job;
+            this.index = index;
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+            this.layout = layout;
+        }
+    }
+
+    IngestPipeline(ClockCSVParser.ParseOptions options, IngestTimings timings) {
+        /*
+        Starts the parser threads; reader threads, and the workers of the mapped-file pool, are
+        started as files need them.
+        A reader holds at most two buffers (the chunk being filled and the one receiving its partial
+        last line), so 2 * readers + queue capacity + parsers buffers always let some stage proceed.
+        */
+        this.options = options;
+        this.timings = timings;
+        this.bufferSize = options.getPipelineBufferSize();
+        int readerThreads = options.getReaderThreads();
+        int parserThreads = options.getParserThreads();
+        int queueCapacity = options.getPipelineQueueCapacity();
+        this.maxBuffers = 2 * readerThreads + queueCapacity + parserThreads;
+        this.freeBuffers = new ArrayBlockingQueue<>(maxBuffers);
+        this.chunks = new ArrayBlockingQueue<>(queueCapacity);
+        this.readers = Executors.newFixedThreadPool(readerThreads, runnable -> daemon(runnable, "csv-read"));
+        this.parsers = Executors.newFixedThreadPool(parserThreads, runnable -> daemon(runnable, "csv-parse"));
+        this.mappedPool = ClockCSVParser.newIngestPool(parserThreads);
+        for (int i = 0; i < parserThreads; i++) {
+            parsers.execute(this::parseLoop);
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    CompletableFuture<ClockCSVParser.FileData> submit(File csvFile) {
+        /*
+        Queues a file for reading; the future completes (on a pipeline thread) with its parsed data,
+        or exceptionally if it could not be read.
+        */
+        FileJob job = new FileJob(csvFile);
+        readers.execute(() -> read(job));
+        return job.result;
+    }
+
+    @Override
+    public void close() {
+        /*
+        Stops both stages, interrupting any file still in flight.
+        */
+        readers.shutdownNow();
+        parsers.shutdownNow();
+        mappedPool.shutdownNow();
+    }
+
+    private void read(FileJob job) {
+        /*
+        Reader task for one file.
+        1. Completes the file from its binary cache if that is fresh.
+        2. Otherwise records the source length/mtime (the cache key). A file of at least
+           mappedReadThreshold is handed to the mapped pool (see readMapped) and the reader moves on.
+        3. Otherwise reads up to the recorded length. Each filled buffer: on the first, resolves the header layout; then finds the last '\n',
+           copies the partial line after it into the next buffer and queues the whole lines as a chunk.
+        4. Stops early if the file turns out not to be plain; assembly then falls back to Commons CSV.
+        */
+        ByteBuffer buffer = null;
+        try {
+            long start = System.nanoTime();
+            ClockCSVParser.FileData cached = ClockCSVParser.readCache(job.file, options);
+            timings.addRead(System.nanoTime() - start, 0);
+            if (cached != null) {
+                timings.addFile();
+                job.result.complete(cached);
+                return;
+            }
+
+            job.sourceModified = job.file.lastModified();
+            job.sourceLength = job.file.length();
+            if (job.sourceLength >= options.getMappedReadThreshold()) {
+                job.pending.incrementAndGet();
+                mappedPool.execute(() -> readMapped(job));
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(job.file.toPath(), StandardOpenOption.READ)) {
+                long size = Math.min(channel.size(), job.sourceLength);
+                long position = 0;
+                NumericCSVReader.Layout layout = null;
+                int index = 0;
+                buffer = acquireBuffer();
+
+                while (buffer != null && !job.notPlain) {
+                    start = System.nanoTime();
+                    int carried = buffer.position();
+                    buffer.limit((int) Math.min(buffer.capacity(), carried + size - position));
+                    boolean eof = false;
+                    while (buffer.hasRemaining() && !eof) {
+                        int read = channel.read(buffer, position);
+                        eof = read < 0;
+                        if (!eof) {
+                            position += read;
+                        }
+                    }
+                    eof |= position >= size;
+                    timings.addRead(System.nanoTime() - start, buffer.position() - carried);
+                    buffer.flip();
+
+                    int chunkStart = 0;
+                    if (layout == null) {
+                        int headerEnd = NumericCSVReader.findLineEnd(buffer, 0, buffer.limit());
+                        if (headerEnd < 0 && !eof) {
+                            job.notPlain = true;
+                            break;
+                        }
+                        layout = NumericCSVReader.readHeader(buffer, 0, headerEnd < 0 ? buffer.limit() : headerEnd);
+                        if (layout == null) {
+                            job.notPlain = true;
+                            break;
+                        }
+                        chunkStart = layout.dataStart;
+                    }
+
+                    int chunkEnd = eof ? buffer.limit() : lastLineEnd(buffer, chunkStart, buffer.limit());
+                    ByteBuffer next = null;
+                    if (!eof) {
+                        if (buffer.limit() - chunkEnd == buffer.capacity()) {
+                            // One line fills a whole buffer: not a plain numeric row.
+                            job.notPlain = true;
+                            break;
+                        }
+                        next = acquireBuffer();
+                        next.put(buffer.duplicate().position(chunkEnd));
+                    }
+                    ByteBuffer filled = buffer;
+                    buffer = next;
+                    if (chunkEnd > chunkStart) {
+                        synchronized (job) {
+                            job.parts.add(null);
+                        }
+                        job.pending.incrementAndGet();
+                        try {
+                            putChunk(new Chunk(job, index++, filled, chunkStart, chunkEnd, layout));
+                        } catch (InterruptedException e) {
+                            job.pending.decrementAndGet();
+                            throw e;
+                        }
+                    } else {
+                        releaseBuffer(filled);
+                    }
+                }
+            }
+        } catch (Throwable e) {
+            job.error = e;
+        } finally {
+            if (buffer != null) {
+                releaseBuffer(buffer);
+            }
+            partDone(job);
+        }
+    }
+
+    private void readMapped(FileJob job) {
+        /*
+        Mapped-pool task for one large file: NumericCSVReader.readMapped, called on a worker of
+        mappedPool, forks the file's segments as subtasks that the pool's idle workers steal. A file
+        that is not plain falls back to Commons CSV in partDone, like a buffered one.
+        */
+        long start = System.nanoTime();
+        try {
+            ClockCSVParser.ClockRateSeries series = options.keepsSamples() ? new ClockCSVParser.ClockRateSeries() : null;
+            ClockCSVParser.BlockStatistics stats = new ClockCSVParser.BlockStatistics();
+            if (NumericCSVReader.readMapped(job.file, job.sourceLength, options.getSplitChunkSize(), series, stats)) {
+                job.mapped = ClockCSVParser.toFileData(job.file, job.sourceLength, series, stats, 0);
+            } else {
+                job.notPlain = true;
+            }
+        } catch (Throwable e) {
+            job.error = e;
+        } finally {
+            timings.addMapped(System.nanoTime() - start, job.sourceLength);
+            partDone(job);
+        }
+    }
+
+    private void parseLoop() {
+        /*
+        Parser thread: takes chunks until the pipeline is closed. Chunks of a file already known not
+        to be plain are dropped unparsed.
+        */
+        try {
+            while (true) {
+                long start = System.nanoTime();
+                Chunk chunk = chunks.take();
+                timings.addParserIdle(System.nanoTime() - start);
+
+                start = System.nanoTime();
+                FileJob job = chunk.job;
+                try {
+                    if (!job.notPlain && job.error == null) {
+                        Part part = new Part();
+                        int length = chunk.end - chunk.start;
+                        part.series = options.keepsSamples() ? new ClockCSVParser.ClockRateSeries(length / 16) : null;
+                        part.stats = new ClockCSVParser.BlockStatistics();
+                        if (NumericCSVReader.parseLines(chunk.buffer, chunk.start, chunk.end, true, chunk.layout,
+                                part.series, part.stats) < 0) {
+                            job.notPlain = true;
+                        } else {
+                            synchronized (job) {
+                                job.parts.set(chunk.index, part);
+                            }
+                        }
+                    }
+                    timings.addChunk();
+                } catch (Throwable e) {
+                    job.error = e;
+                } finally {
+                    releaseBuffer(chunk.buffer);
+                    timings.addParse(System.nanoTime() - start);
+                    partDone(job);
+                }
+            }
+        } catch (InterruptedException e) {
+            // close() was called.
+        }
+    }
+
+    private void partDone(FileJob job) {
+        /*
+        Counts down one chunk (or the reader) of a file; the last one assembles the file:
+        the mapped result, the parts appended in file order, or a Commons CSV re-parse if the file
+        is not plain.
+        The re-parse and the cache write are timed as their own phases, not as parse time.
+        */
+        if (job.pending.decrementAndGet() != 0) {
+            return;
+        }
+        if (job.result.isDone()) {
+            return; // completed from the cache
+        }
+        long start = System.nanoTime();
+        long otherPhases = 0;
+        try {
+            if (job.error != null) {
+                job.result.completeExceptionally(job.error);
+                return;
+            }
+            ClockCSVParser.FileData fileData;
+            if (job.notPlain) {
+                long fallbackStart = System.nanoTime();
+                try {
+                    fileData = ClockCSVParser.parseWithCommonsCSV(job.file, job.sourceLength, options);
+                } finally {
+                    long elapsed = System.nanoTime() - fallbackStart;
+                    timings.addFallback(elapsed);
+                    otherPhases += elapsed;
+                }
+            } else if (job.mapped != null) {
+                fileData = job.mapped;
+            } else {
+                ClockCSVParser.ClockRateSeries series = options.keepsSamples() ? new ClockCSVParser.ClockRateSeries() : null;
+                ClockCSVParser.BlockStatistics stats = new ClockCSVParser.BlockStatistics();
+                synchronized (job) {
+                    for (Part part : job.parts) {
+                        if (series != null) {
+                            series.addAll(part.series);
+                        }
+                        stats.merge(part.stats);
+                    }
+                    job.parts.clear();
+                }
+                fileData = ClockCSVParser.toFileData(job.file, job.sourceLength, series, stats, 0);
+            }
+            fileData.setSourceModified(job.sourceModified);
+            long cacheStart = System.nanoTime();
+            try {
+                ClockCSVParser.writeCache(job.file, fileData, options);
+            } finally {
+                long elapsed = System.nanoTime() - cacheStart;
+                timings.addCacheWrite(elapsed);
+                otherPhases += elapsed;
+            }
+            timings.addFile();
+            job.result.complete(fileData);
+        } catch (Throwable e) {
+            job.result.completeExceptionally(e);
+        } finally {
+            timings.addParse(System.nanoTime() - start - otherPhases);
+        }
+    }
+
+    private ByteBuffer acquireBuffer() throws InterruptedException {
+        /*
+        Takes a free buffer, allocating one while fewer than maxBuffers exist, else waits for one.
+        */
+        ByteBuffer buffer = freeBuffers.poll();
+        if (buffer == null) {
+            if (allocatedBuffers.getAndUpdate(n -> n < maxBuffers ? n + 1 : n) < maxBuffers) {
+                return ByteBuffer.allocate(bufferSize);
+            }
+            long start = System.nanoTime();
+            buffer = freeBuffers.take();
+            timings.addReaderBlocked(System.nanoTime() - start);
+        }
+        return buffer;
+    }
+
+    private void releaseBuffer(ByteBuffer buffer) {
+        buffer.clear();
+        freeBuffers.offer(buffer);
+    }
+
+    private void putChunk(Chunk chunk) throws InterruptedException {
+        if (!chunks.offer(chunk)) {
+            long start = System.nanoTime();
+            chunks.put(chunk);
+            timings.addReaderBlocked(System.nanoTime() - start);
+        }
+    }
+
+    private static int lastLineEnd(ByteBuffer buffer, int start, int end) {
+        /*
+        Offset just past the last '\n' in [start, end), or start if there is none.
+        */
+        for (int i = end - 1; i >= start; i--) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return start;
+    }
+}
@@ -0,0 +1,122 @@
+package com.ramclock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Per-stage timing of a pipelined directory load (see ParseOptions.setPipeline and IngestPipeline),
+summed over all threads of a stage, for sizing the two stages to the storage being read.
+
+  read         time reader threads spent in FileChannel reads (and binary cache lookups)
+  readerBlocked time reader threads waited for a free buffer or for room in the chunk queue,
+               i.e. the parsers could not keep up (backpressure)
+  parse        time parser threads spent parsing chunks and assembling files
+  mapped       time spent memory-mapping and parsing files of at least mappedReadThreshold on the
+               pipeline's ForkJoin pool (summed over the files, not over the segments' workers)
+  fallback     time parser threads spent re-parsing files that are not plain numeric CSV with
+               Commons CSV (these files are read a second time, outside the reader stage)
+  cacheWrite   time parser threads spent writing binary caches (see ParseOptions.setBinaryCache)
+  parserIdle   time parser threads waited for a chunk, i.e. the readers could not keep up
+
+High readerBlocked means more parser threads will help (typical for local NVMe); high parserIdle
+with busy readers means more reader threads, to keep more requests in flight (typical for NFS).
+High fallback or cacheWrite is not fixed by either: it points at the input format or the cache disk.
+*/
+public class IngestTimings {
+    private final int readerThreads;
+    private final int parserThreads;
+    private final LongAdder readNanos = new LongAdder();
+    private final LongAdder readerBlockedNanos = new LongAdder();
+    private final LongAdder parseNanos = new LongAdder();
+    private final LongAdder mappedNanos = new LongAdder();
+    private final LongAdder mappedFileCount = new LongAdder();
+    private final LongAdder fallbackNanos = new LongAdder();
+    private final LongAdder cacheWriteNanos = new LongAdder();
+    private final LongAdder parserIdleNanos = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder chunkCount = new LongAdder();
+    private final LongAdder fileCount = new LongAdder();
+    private volatile long wallNanos;
+
+    IngestTimings(int readerThreads, int parserThreads) {
+        this.readerThreads = readerThreads;
+        this.parserThreads = parserThreads;
+    }
+
+    void addRead(long nanos, long bytes) {
+        readNanos.add(nanos);
+        bytesRead.add(bytes);
+    }
+
+    void addReaderBlocked(long nanos) {
+        readerBlockedNanos.add(nanos);
+    }
+
+    void addParse(long nanos) {
+        parseNanos.add(nanos);
+    }
+
+    void addMapped(long nanos, long bytes) {
+        mappedNanos.add(nanos);
+        mappedFileCount.increment();
+        bytesRead.add(bytes);
+    }
+
+    void addFallback(long nanos) {
+        fallbackNanos.add(nanos);
+    }
+
+    void addCacheWrite(long nanos) {
+        cacheWriteNanos.add(nanos);
+    }
+
+    void addParserIdle(long nanos) {
+        parserIdleNanos.add(nanos);
+    }
+
+    void addChunk() {
+        chunkCount.increment();
+    }
+
+    void addFile() {
+        fileCount.increment();
+    }
+
+    void setWallNanos(long wallNanos) {
+        this.wallNanos = wallNanos;
+    }
+
+    public int getReaderThreads() { return readerThreads; }
+    public int getParserThreads() { return parserThreads; }
+    public long getReadNanos() { return readNanos.sum(); }
+    public long getReaderBlockedNanos() { return readerBlockedNanos.sum(); }
+    public long getParseNanos() { return parseNanos.sum(); }
+    public long getMappedNanos() { return mappedNanos.sum(); }
+    public long getMappedFileCount() { return mappedFileCount.sum(); }
+    public long getFallbackNanos() { return fallbackNanos.sum(); }
+    public long getCacheWriteNanos() { return cacheWriteNanos.sum(); }
+    public long getParserIdleNanos() { return parserIdleNanos.sum(); }
+    public long getBytesRead() { return bytesRead.sum(); }
+    public long getChunkCount() { return chunkCount.sum(); }
+    public long getFileCount() { return fileCount.sum(); }
+    public long getWallNanos() { return wallNanos; }
+
+    @Override
+    public String toString() {
+        double seconds = wallNanos / 1e9;
+        return String.format("%d files, %.1f MB in %d chunks, %.0f ms wall (%.1f MB/s); "
+                        + "%d readers: read %d ms, blocked %d ms; "
+                        + "%d parsers: parse %d ms, fallback %d ms, cache write %d ms, idle %d ms; "
+                        + "%d mapped files: %d ms",
+                getFileCount(), getBytesRead() / 1e6, getChunkCount(), seconds * 1000,
+                seconds > 0 ? getBytesRead() / 1e6 / seconds : 0.0,
+                readerThreads, millis(getReadNanos()), millis(getReaderBlockedNanos()),
+                parserThreads, millis(getParseNanos()), millis(getFallbackNanos()),
+                millis(getCacheWriteNanos()), millis(getParserIdleNanos()),
+                getMappedFileCount(), millis(getMappedNanos()));
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
@@ -0,0 +1,436 @@
+package com.ramclock;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+Follow mode for capture CSVs that are still being written: rows appended to the source files after
+they were loaded are parsed and added to their blocks while the chart is showing them.
+
+Each followed block keeps the byte offset up to which its file has been parsed, starting at the
+block's source length, so the bytes parsed by the load are never read again. A background thread
+polls the files, parses only complete lines appended past that offset (through the NumericCSVReader
+fast path, row by row, so a bad line is counted as skipped instead of aborting) and folds them into
+the block's running BlockStatistics, resumed from the load's statistics snapshot. Parsed rows are collected per block, and a Swing timer hands
+all collected batches to the EDT at a fixed rate: each block's series gets one addAll per tick, its
+pyramid is extended incrementally on the next chart query, and the listener runs once per tick for
+all updated blocks. Chart cost therefore scales with the tick rate, not with the append rate.
+
+Lazily loaded blocks stay under the SeriesCache bound: only the blocks named in setPinnedBlocks
+(the ones shown on the chart) are kept in memory and appended to. The others only get their
+statistics and source length updated, so their next load reads the grown file.
+
+Only files in the plain two-column format can be followed; others keep their loaded data. A file
+that shrinks (rewritten or rotated) stops being followed. Block labels keep their load-time rank.
+
+stop() never waits on the EDT: the poll thread is interrupted, and a short-lived thread waits for it
+before the last rows are applied back on the EDT. Until its onStopped callback has run, the blocks
+may still be updated, so a new LiveTail over the same blocks must not start before then.
+*/
+public class LiveTail {
+    public static final int DEFAULT_INTERVAL_MS = 250;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int HEADER_WINDOW = 64 << 10;
+    private static final int STOP_TIMEOUT_SECONDS = 5;
+
+    public interface UpdateListener {
+        /*
+        Runs on the EDT after appended rows were added to the given blocks (series, statistics and
+        skipped row counts are already updated).
+        */
+        void blocksUpdated(List<ClockCSVParser.RAMBlockData> blocks);
+    }
+
+    private final List<Follower> followers = new ArrayList<>();
+    private final Set<Follower> pending = new LinkedHashSet<>();
+    private final int intervalMillis;
+    private final Timer publishTimer;
+    private ScheduledExecutorService poller;
+    private boolean stopped;
+    private UpdateListener listener;
+
+    private static final class Follower {
+        /*
+        Tail state of one block. pinned belongs to the EDT, the pending* fields are guarded by
+        LiveTail.pending, and everything else belongs to the poll thread.
+        */
+        final ClockCSVParser.RAMBlockData block;
+        final File file;
+        final ClockCSVParser.StatisticsSnapshot loadedStats;
+        NumericCSVReader.Layout layout;
+        long offset;
+        boolean stopped;
+        ClockCSVParser.BlockStatistics stats;
+        long lastTimestamp = Long.MIN_VALUE;
+        int skippedRows;
+        boolean pinned;
+
+        ClockCSVParser.ClockRateSeries pendingRows;
+        boolean pendingUnsorted;
+        ClockCSVParser.StatisticsSnapshot pendingStats;
+        int pendingSkippedRows;
+        long pendingOffset;
+
+        Follower(ClockCSVParser.RAMBlockData block) {
+            this.block = block;
+            this.file = block.getSourceFile();
+            this.loadedStats = block.getStatistics();
+            this.offset = block.getSourceLength();
+            this.skippedRows = block.getSkippedRowCount();
+        }
+    }
+
+    public LiveTail(List<ClockCSVParser.RAMBlockData> blocks, int intervalMillis) {
+        /*
+        blocks: the loaded blocks to follow (blocks without a source file or samples are ignored).
+        intervalMillis: how often files are polled and updates are handed to the EDT.
+        */
+        if (intervalMillis < 1) {
+            throw new IllegalArgumentException("Interval must be positive: " + intervalMillis);
+        }
+        for (ClockCSVParser.RAMBlockData block : blocks) {
+            if (block.getSourceFile() != null && block.hasSeries()) {
+                followers.add(new Follower(block));
+            }
+        }
+        this.intervalMillis = intervalMillis;
+        this.publishTimer = new Timer(intervalMillis, e -> publish());
+    }
+
+    public void setUpdateListener(UpdateListener listener) {
+        this.listener = listener;
+    }
+
+    public void setPinnedBlocks(Collection<String> blockNames) {
+        /*
+        Names the followed blocks whose series are kept in memory and appended to (the displayed or
+        selected ones); every other followed block hands its series back to the SeriesCache.
+        A named block whose series is not cached yet is pinned on the first publish after a load
+        put it there (e.g. the Visualizer's background load). Must be called on the EDT.
+        */
+        Set<String> names = new HashSet<>(blockNames);
+        for (Follower follower : followers) {
+            follower.pinned = names.contains(follower.block.getBlockName());
+            if (follower.pinned) {
+                follower.block.pinSeries();
+            } else {
+                follower.block.unpinSeries();
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return poller != null;
+    }
+
+    public void start() {
+        /*
+        Starts polling on a daemon thread and publishing on the EDT. Must be called on the EDT; a
+        stopped LiveTail cannot be started again.
+        */
+        if (stopped) {
+            throw new IllegalStateException("LiveTail was stopped");
+        }
+        if (poller != null) {
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "csv-tail");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::pollAll, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        publishTimer.start();
+    }
+
+    public void stop() {
+        stop(null);
+    }
+
+    public void stop(Runnable onStopped) {
+        /*
+        Stops following without blocking the caller. Must be called on the EDT.
+        1. Stops the publish timer and interrupts the poll thread (a read in progress is abandoned).
+        2. A daemon thread waits up to STOP_TIMEOUT_SECONDS for the poll thread to finish.
+        3. Back on the EDT, applies whatever was parsed but not yet published, hands pinned series
+           back to the SeriesCache and runs onStopped (may be null).
+        If the tail is not running, onStopped runs right away.
+        */
+        if (poller == null) {
+            stopped = true;
+            if (onStopped != null) {
+                onStopped.run();
+            }
+            return;
+        }
+        ScheduledExecutorService stopping = poller;
+        poller = null;
+        stopped = true;
+        publishTimer.stop();
+        stopping.shutdownNow();
+        Thread waiter = new Thread(() -> {
+            try {
+                if (!stopping.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    System.err.println("Follow thread did not stop within " + STOP_TIMEOUT_SECONDS
+                            + " s; its last rows are dropped");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            SwingUtilities.invokeLater(() -> finishStop(onStopped));
+        }, "csv-tail-stop");
+        waiter.setDaemon(true);
+        waiter.start();
+    }
+
+    private void finishStop(Runnable onStopped) {
+        publish();
+        for (Follower follower : followers) {
+            follower.pinned = false;
+            follower.block.unpinSeries();
+        }
+        if (onStopped != null) {
+            onStopped.run();
+        }
+    }
+
+    private void pollAll() {
+        for (Follower follower : followers) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            if (follower.stopped) {
+                continue;
+            }
+            try {
+                if (follower.layout == null) {
+                    begin(follower);
+                } else {
+                    poll(follower);
+                }
+            } catch (ClosedByInterruptException e) {
+                return; // stop() was called while this file was being read.
+            } catch (IOException e) {
+                System.err.println("Stopped following " + follower.file.getName() + ": " + e.getMessage());
+                follower.stopped = true;
+            }
+        }
+    }
+
+    private void begin(Follower follower) throws IOException {
+        /*
+        Sets a follower up on its first poll, without re-reading what the load parsed.
+        1. Resolves the header layout; files that are not plain two-column CSVs are not followed.
+        2. Starts at the block's source length. If the load stopped inside a row that was still being
+           written, the rest of that row is skipped (counted as a skipped row) once its '\n' arrives;
+           the load parsed or skipped its first part. Until then, setup is retried on the next poll.
+        3. Resumes the running statistics from the block's statistics snapshot.
+        */
+        try (FileChannel channel = FileChannel.open(follower.file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            ByteBuffer head = ByteBuffer.allocate((int) Math.min(HEADER_WINDOW, Math.max(length, 1)));
+            channel.read(head, 0);
+            head.flip();
+            int headerEnd = NumericCSVReader.findLineEnd(head, 0, head.limit());
+            NumericCSVReader.Layout layout = headerEnd < 0 ? null : NumericCSVReader.readHeader(head, 0, headerEnd);
+            if (layout == null) {
+                System.err.println("Not following " + follower.file.getName()
+                        + ": only plain timestamp/clock rate files can be followed");
+                follower.stopped = true;
+                return;
+            }
+            if (follower.offset > length) {
+                throw new IOException("file shrank from " + follower.offset + " to " + length + " bytes");
+            }
+
+            long offset = Math.max(follower.offset, layout.dataStart);
+            int skipped = 0;
+            if (offset > layout.dataStart && !endsLine(channel, offset)) {
+                long rowEnd = findLineEnd(channel, offset, length);
+                if (rowEnd < 0) {
+                    return; // The partly loaded row is still being written.
+                }
+                offset = rowEnd + 1;
+                skipped = 1;
+            }
+
+            follower.offset = offset;
+            follower.skippedRows += skipped;
+            follower.stats = ClockCSVParser.BlockStatistics.fromSnapshot(follower.loadedStats);
+            follower.layout = layout;
+        }
+    }
+
+    private static boolean endsLine(FileChannel channel, long offset) throws IOException {
+        ByteBuffer previous = ByteBuffer.allocate(1);
+        return channel.read(previous, offset - 1) == 1 && previous.get(0) == '\n';
+    }
+
+    private static long findLineEnd(FileChannel channel, long from, long length) throws IOException {
+        /*
+        Returns the position of the first '\n' in [from, length), or -1 if there is none yet.
+        */
+        ByteBuffer window = ByteBuffer.allocate(HEADER_WINDOW);
+        for (long start = from; start < length; start += window.limit()) {
+            window.clear();
+            window.limit((int) Math.min(window.capacity(), length - start));
+            while (window.hasRemaining() && channel.read(window, start + window.position()) > 0) {
+                // Keep reading until the window is full.
+            }
+            for (int i = 0; i < window.position(); i++) {
+                if (window.get(i) == '\n') {
+                    return start + i;
+                }
+            }
+            if (window.position() < window.limit()) {
+                break;
+            }
+        }
+        return -1;
+    }
+
+    private void poll(Follower follower) throws IOException {
+        /*
+        Parses the complete lines appended since the last poll.
+        1. Compares the file length with the offset (nothing to do, or the file shrank).
+        2. Reads [offset, length) in buffer-sized chunks; only lines ending in '\n' are consumed,
+           so a row that is still being written is picked up whole on a later poll.
+        3. Hands the parsed rows and a statistics snapshot over for the next publish tick.
+        */
+        long length = follower.file.length();
+        if (length == follower.offset) {
+            return;
+        }
+        if (length < follower.offset) {
+            throw new IOException("file shrank from " + follower.offset + " to " + length + " bytes");
+        }
+
+        ClockCSVParser.ClockRateSeries rows = new ClockCSVParser.ClockRateSeries();
+        int skippedBefore = follower.skippedRows;
+        boolean unsorted = false;
+        try (FileChannel channel = FileChannel.open(follower.file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, length - follower.offset));
+            while (follower.offset < length) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), length - follower.offset));
+                while (buffer.hasRemaining() && channel.read(buffer, follower.offset + buffer.position()) > 0) {
+                    // Keep reading until the chunk is full.
+                }
+                int end = buffer.position();
+
+                int lineStart = 0;
+                int lineEnd;
+                while ((lineEnd = NumericCSVReader.findLineEnd(buffer, lineStart, end)) >= 0) {
+                    int before = rows.size();
+                    if (!NumericCSVReader.parseRow(buffer, lineStart, lineEnd, follower.layout, rows, follower.stats)) {
+                        follower.skippedRows++;
+                    } else if (rows.size() > before) {
+                        long timestamp = rows.getTimestamp(before);
+                        unsorted |= timestamp < follower.lastTimestamp;
+                        follower.lastTimestamp = Math.max(follower.lastTimestamp, timestamp);
+                    }
+                    lineStart = lineEnd + 1;
+                }
+                if (lineStart == 0) {
+                    if (end == buffer.capacity()) {
+                        throw new IOException("line at byte " + follower.offset + " is longer than "
+                                + buffer.capacity() + " bytes");
+                    }
+                    break; // Only an incomplete line is left; wait for the writer.
+                }
+                follower.offset += lineStart;
+            }
+        }
+
+        if (rows.isEmpty() && follower.skippedRows == skippedBefore) {
+            return;
+        }
+        ClockCSVParser.StatisticsSnapshot snapshot = follower.stats.snapshot();
+        synchronized (pending) {
+            if (follower.pendingRows == null) {
+                follower.pendingRows = rows;
+            } else {
+                follower.pendingRows.addAll(rows);
+            }
+            follower.pendingUnsorted |= unsorted;
+            follower.pendingStats = snapshot;
+            follower.pendingSkippedRows = follower.skippedRows;
+            follower.pendingOffset = follower.offset;
+            pending.add(follower);
+        }
+    }
+
+    private void publish() {
+        /*
+        Runs on the EDT: applies every follower's collected changes to its block, then notifies the
+        listener once for all of them.
+        1. Appends the rows to the block's series if it is in memory: loaded eagerly, or pinned
+           (pinning a lazily loaded block as soon as its series is cached). Rows older than the
+           series' last sample trigger a re-sort.
+        2. Otherwise leaves the series alone; the SeriesCache entry no longer matches the new source
+           length, so the next load reads the grown file.
+        3. Always updates statistics, skipped row count and source length.
+        */
+        List<Follower> ready;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            ready = new ArrayList<>(pending);
+            pending.clear();
+        }
+
+        List<ClockCSVParser.RAMBlockData> updated = new ArrayList<>(ready.size());
+        for (Follower follower : ready) {
+            ClockCSVParser.ClockRateSeries rows;
+            boolean unsorted;
+            ClockCSVParser.StatisticsSnapshot stats;
+            int skippedRows;
+            long offset;
+            synchronized (pending) {
+                rows = follower.pendingRows;
+                unsorted = follower.pendingUnsorted;
+                stats = follower.pendingStats;
+                skippedRows = follower.pendingSkippedRows;
+                offset = follower.pendingOffset;
+                follower.pendingRows = null;
+                follower.pendingUnsorted = false;
+                follower.pendingStats = null;
+            }
+
+            ClockCSVParser.RAMBlockData block = follower.block;
+            boolean inMemory = !block.isLazy() || (follower.pinned && block.pinSeries());
+            if (inMemory && !rows.isEmpty()) {
+                ClockCSVParser.ClockRateSeries series = block.getSeries();
+                unsorted |= !series.isEmpty() && rows.getTimestamp(0) < series.getTimestamp(series.size() - 1);
+                series.addAll(rows);
+                if (unsorted) {
+                    series.sortByTimestamp();
+                }
+            }
+            block.setStatistics(stats);
+            block.setSkippedRowCount(skippedRows);
+            block.setSourceLength(offset);
+            updated.add(block);
+        }
+
+        if (listener != null) {
+            listener.blocksUpdated(updated);
+        }
+    }
+}
@@ -0,0 +1,565 @@
+package com.ramclock;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+
+/*
+Zero-allocation fast path for the plain two-column numeric format (timestamp,clock_rate_mhz).
+
+The file is read through a reusable ByteBuffer and every field is parsed straight from bytes
+into a long / double, so no String, CSVRecord or boxed value is created per row.
+
+The fast path only accepts "clean" input:
+  - a header of exactly two unquoted column names, one timestamp alias and one clock rate alias
+  - rows of exactly two unquoted numeric fields (surrounding spaces/tabs and CRLF allowed)
+  - empty lines, which are skipped like in the Commons CSV path
+Anything else (quotes, extra columns, unparseable numbers, ...) makes the reader give up so the
+caller can re-parse the whole file through Commons CSV, which keeps the original semantics.
+*/
+final class NumericCSVReader {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final long MAX_SEGMENT_SIZE = 256L << 20;
+    private static final int SCAN_WINDOW = 64 << 10;
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private NumericCSVReader() {
+    }
+
+    static final class Layout {
+        /*
+        Column positions resolved from the header line, and the byte offset where data rows start.
+        */
+        final int timestampColumn;
+        final int clockRateColumn;
+        final int dataStart;
+
+        Layout(int timestampColumn, int clockRateColumn, int dataStart) {
+            this.timestampColumn = timestampColumn;
+            this.clockRateColumn = clockRateColumn;
+            this.dataStart = dataStart;
+        }
+    }
+
+    private static final class Part {
+        /*
+        Partial result of one mapped segment; series is null in statistics-only reads.
+        */
+        final ClockCSVParser.ClockRateSeries series;
+        final ClockCSVParser.BlockStatistics stats;
+
+        Part(ClockCSVParser.ClockRateSeries series, ClockCSVParser.BlockStatistics stats) {
+            this.series = series;
+            this.stats = stats;
+        }
+    }
+
+    static boolean read(File csvFile, long limit, ClockCSVParser.ClockRateSeries series,
+                        ClockCSVParser.BlockStatistics stats) throws IOException {
+        /*
+        Reads the first `limit` bytes of a file through the fast path (anything appended later is
+        left for a follow-mode reader, see LiveTail).
+        1. Fills a heap ByteBuffer from the FileChannel.
+        2. Resolves the header layout from the first line (returns false if it is not trivial).
+        3. Parses every complete line in the buffer, carrying a partial last line over to the next read.
+        4. Returns false as soon as a row is not clean; series/stats are then in an undefined state
+           and must be discarded by the caller.
+        */
+        try (FileChannel channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ)) {
+            long size = Math.min(channel.size(), limit);
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(size, 64)));
+            Layout layout = null;
+            boolean eof = false;
+            long readPosition = 0;
+
+            while (!eof) {
+                if (!buffer.hasRemaining()) {
+                    // A single line is longer than the buffer; grow it.
+                    ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                    buffer.flip();
+                    larger.put(buffer);
+                    buffer = larger;
+                }
+                // Never read past `size`, even if the file has grown since.
+                int allowed = (int) Math.min(buffer.remaining(), size - readPosition);
+                buffer.limit(buffer.position() + allowed);
+                int read = allowed > 0 ? channel.read(buffer, readPosition) : -1;
+                eof = read < 0;
+                if (!eof) {
+                    readPosition += read;
+                }
+                buffer.flip();
+
+                int position = 0;
+                if (layout == null) {
+                    int headerEnd = findLineEnd(buffer, 0, buffer.limit());
+                    if (headerEnd < 0 && !eof) {
+                        buffer.position(buffer.limit());
+                        buffer.limit(buffer.capacity());
+                        continue;
+                    }
+                    layout = readHeader(buffer, 0, headerEnd < 0 ? buffer.limit() : headerEnd);
+                    if (layout == null) {
+                        return false;
+                    }
+                    position = layout.dataStart;
+                }
+
+                int consumed = parseLines(buffer, position, buffer.limit(), eof, layout, series, stats);
+                if (consumed < 0) {
+                    return false;
+                }
+                buffer.position(consumed);
+                buffer.compact();
+            }
+            return layout != null;
+        }
+    }
+
+    static boolean readMapped(File csvFile, long limit, long forkedSegmentSize,
+                              ClockCSVParser.ClockRateSeries series, ClockCSVParser.BlockStatistics stats)
+            throws IOException {
+        /*
+        Reads the first `limit` bytes of a large file by memory-mapping them in line-aligned segments.
+        1. Maps the start of the file and resolves the header layout (returns false if not trivial).
+        2. Splits the data region into line-aligned segments, moving each boundary forward to just
+           after the next '\n' so no row is cut in half:
+           - called from a ForkJoinPool worker (see ClockCSVParser.newIngestPool): segments of about
+             forkedSegmentSize, forked as subtasks of the caller, so idle workers of that same pool
+             steal them; a file never gets threads of its own, so the pool size bounds all threads
+           - otherwise: segments of at most MAX_SEGMENT_SIZE, parsed one after another on the caller
+        3. Appends the partial results in file order, so the output is identical to read().
+        Returns false (leaving series/stats untouched) if any segment contains a row that is not clean.
+        */
+        try (FileChannel channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ)) {
+            long size = Math.min(channel.size(), limit);
+            Layout layout = mapHeader(channel, size);
+            if (layout == null) {
+                return false;
+            }
+
+            boolean forked = ForkJoinTask.inForkJoinPool();
+            long dataLength = size - layout.dataStart;
+            long segmentSize = forked ? Math.min(forkedSegmentSize, MAX_SEGMENT_SIZE) : MAX_SEGMENT_SIZE;
+            long count = (dataLength + segmentSize - 1) / segmentSize;
+            List<long[]> segments = splitSegments(channel, layout.dataStart, size, count);
+            if (segments.isEmpty()) {
+                return true;
+            }
+
+            List<Part> parts = forked
+                    ? parseForked(csvFile, channel, segments, layout, series != null)
+                    : parseInline(channel, segments, layout, series != null);
+            if (parts == null) {
+                return false;
+            }
+            for (Part part : parts) {
+                if (series != null) {
+                    series.addAll(part.series);
+                }
+                stats.merge(part.stats);
+            }
+            return true;
+        }
+    }
+
+    private static List<Part> parseInline(FileChannel channel, List<long[]> segments, Layout layout,
+                                          boolean keepSamples) throws IOException {
+        /*
+        Parses the segments one after another on the calling thread; returns the parts in file
+        order, or null if a segment is not clean.
+        */
+        List<Part> parts = new ArrayList<>(segments.size());
+        for (long[] segment : segments) {
+            Part part = parseSegment(channel, segment[0], segment[1], layout, keepSamples);
+            if (part == null) {
+                return null;
+            }
+            parts.add(part);
+        }
+        return parts;
+    }
+
+    private static List<Part> parseForked(File csvFile, FileChannel channel, List<long[]> segments, Layout layout,
+                                          boolean keepSamples) throws IOException {
+        /*
+        Parses the segments as subtasks of the calling ForkJoin task. They are pushed onto this
+        worker's deque, where idle workers steal them; invokeAll works through the rest itself.
+        Returns the parts in file order, or null if a segment is not clean.
+        */
+        List<ForkJoinTask<Part>> tasks = new ArrayList<>(segments.size());
+        for (long[] segment : segments) {
+            tasks.add(ForkJoinTask.adapt(() -> parseSegment(channel, segment[0], segment[1], layout, keepSamples)));
+        }
+        try {
+            ForkJoinTask.invokeAll(tasks);
+        } catch (RuntimeException e) {
+            throw segmentError(csvFile, e);
+        }
+
+        List<Part> parts = new ArrayList<>(tasks.size());
+        for (ForkJoinTask<Part> task : tasks) {
+            Part part = task.join();
+            if (part == null) {
+                return null;
+            }
+            parts.add(part);
+        }
+        return parts;
+    }
+
+    private static IOException segmentError(File csvFile, Throwable error) {
+        /*
+        The IOException behind a failed segment task (possibly wrapped by the pool), or a new one.
+        */
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return (IOException) cause;
+            }
+        }
+        return new IOException("Error reading segment of " + csvFile.getName(), error);
+    }
+
+    private static Layout mapHeader(FileChannel channel, long size) throws IOException {
+        /*
+        Maps growing windows from the start of the file until the header line is complete.
+        */
+        long window = Math.min(size, SCAN_WINDOW);
+        while (true) {
+            MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, window);
+            int headerEnd = findLineEnd(head, 0, (int) window);
+            if (headerEnd >= 0 || window == size) {
+                return readHeader(head, 0, headerEnd < 0 ? (int) window : headerEnd);
+            }
+            if (window >= MAX_SEGMENT_SIZE) {
+                return null;
+            }
+            window = Math.min(size, window * 2);
+        }
+    }
+
+    private static List<long[]> splitSegments(FileChannel channel, long dataStart, long size, long count)
+            throws IOException {
+        /*
+        Computes about `count` line-aligned [start, end) byte ranges covering the data region.
+        */
+        List<long[]> segments = new ArrayList<>();
+        long dataLength = size - dataStart;
+        long target = Math.max(1, dataLength / Math.max(1, count));
+
+        long start = dataStart;
+        while (start < size) {
+            long end = start + target >= size ? size : nextLineStart(channel, start + target, size);
+            segments.add(new long[]{start, end});
+            start = end;
+        }
+        return segments;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        /*
+        Returns the offset just after the first '\n' at or after position (or size if there is none).
+        */
+        while (position < size) {
+            long window = Math.min(SCAN_WINDOW, size - position);
+            MappedByteBuffer scan = channel.map(FileChannel.MapMode.READ_ONLY, position, window);
+            int lineEnd = findLineEnd(scan, 0, (int) window);
+            if (lineEnd >= 0) {
+                return position + lineEnd + 1;
+            }
+            position += window;
+        }
+        return size;
+    }
+
+    private static Part parseSegment(FileChannel channel, long start, long end, Layout layout, boolean keepSamples)
+            throws IOException {
+        /*
+        Maps and parses one segment. Returns its partial result, or null if a row is not clean.
+        */
+        int length = (int) (end - start);
+        MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        ClockCSVParser.ClockRateSeries part = keepSamples ? new ClockCSVParser.ClockRateSeries(length / 16) : null;
+        ClockCSVParser.BlockStatistics partStats = new ClockCSVParser.BlockStatistics();
+        if (parseLines(segment, 0, length, true, layout, part, partStats) < 0) {
+            return null;
+        }
+        return new Part(part, partStats);
+    }
+
+    static Layout readHeader(ByteBuffer buffer, int start, int lineEnd) {
+        /*
+        Resolves the header line [start, lineEnd) into a Layout, or null if the header is not a plain
+        two-column header naming one timestamp alias and one clock rate alias.
+        */
+        int end = lineEnd;
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+
+        int comma = -1;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == '"') {
+                return null;
+            }
+            if (b == ',') {
+                if (comma >= 0) {
+                    return null;
+                }
+                comma = i;
+            }
+        }
+        if (comma < 0) {
+            return null;
+        }
+
+        String first = decode(buffer, start, comma);
+        String second = decode(buffer, comma + 1, end);
+        int dataStart = lineEnd < buffer.limit() ? lineEnd + 1 : lineEnd;
+
+        if (isAlias(first, ClockCSVParser.TIMESTAMP_COLUMNS) && isAlias(second, ClockCSVParser.CLOCK_RATE_COLUMNS)) {
+            return new Layout(0, 1, dataStart);
+        }
+        if (isAlias(first, ClockCSVParser.CLOCK_RATE_COLUMNS) && isAlias(second, ClockCSVParser.TIMESTAMP_COLUMNS)) {
+            return new Layout(1, 0, dataStart);
+        }
+        return null;
+    }
+
+    static int parseLines(ByteBuffer buffer, int start, int end, boolean atEof, Layout layout,
+                          ClockCSVParser.ClockRateSeries series, ClockCSVParser.BlockStatistics stats) {
+        /*
+        Parses every complete line in [start, end). If atEof, a trailing line without '\n' is parsed too.
+        Returns the offset just past the last consumed line, or -1 if a row is not clean.
+        series may be null when only statistics are wanted.
+        */
+        int lineStart = start;
+        while (lineStart < end) {
+            int lineEnd = findLineEnd(buffer, lineStart, end);
+            if (lineEnd < 0) {
+                if (!atEof) {
+                    return lineStart;
+                }
+                lineEnd = end;
+            }
+
+            if (!parseRow(buffer, lineStart, lineEnd, layout, series, stats)) {
+                return -1;
+            }
+            lineStart = lineEnd < end ? lineEnd + 1 : end;
+        }
+        return lineStart;
+    }
+
+    static int findLineEnd(ByteBuffer buffer, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static boolean parseRow(ByteBuffer buffer, int start, int end, Layout layout,
+                                    ClockCSVParser.ClockRateSeries series, ClockCSVParser.BlockStatistics stats) {
+        /*
+        Parses one line [start, end) without its '\n'. Blank lines are accepted and skipped.
+        */
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        int comma = -1;
+        boolean blank = true;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == ',') {
+                if (comma >= 0) {
+                    return false;
+                }
+                comma = i;
+            } else if (b != ' ' && b != '\t') {
+                blank = false;
+            }
+        }
+        if (comma < 0) {
+            return blank;
+        }
+
+        int timestampStart = layout.timestampColumn == 0 ? start : comma + 1;
+        int timestampEnd = layout.timestampColumn == 0 ? comma : end;
+        int clockRateStart = layout.clockRateColumn == 0 ? start : comma + 1;
+        int clockRateEnd = layout.clockRateColumn == 0 ? comma : end;
+
+        long timestamp = parseLong(buffer, timestampStart, timestampEnd);
+        if (timestamp == Long.MIN_VALUE) {
+            return false;
+        }
+        double clockRate = parseDouble(buffer, clockRateStart, clockRateEnd);
+        if (Double.isNaN(clockRate)) {
+            return false;
+        }
+
+        if (series != null) {
+            series.add(timestamp, clockRate);
+        }
+        stats.update(clockRate);
+        return true;
+    }
+
+    static long parseLong(ByteBuffer buffer, int start, int end) {
+        /*
+        Parses a trimmed, optionally signed decimal integer. Returns Long.MIN_VALUE if the field is
+        not a plain integer or would overflow (Long.MIN_VALUE itself is therefore also rejected).
+        */
+        while (start < end && isBlank(buffer.get(start))) start++;
+        while (end > start && isBlank(buffer.get(end - 1))) end--;
+        if (start == end) {
+            return Long.MIN_VALUE;
+        }
+
+        boolean negative = false;
+        byte first = buffer.get(start);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            start++;
+            if (start == end) {
+                return Long.MIN_VALUE;
+            }
+        }
+
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    static double parseDouble(ByteBuffer buffer, int start, int end) {
+        /*
+        Parses a trimmed decimal number of the form [+-]digits[.digits][(e|E)[+-]digits].
+        Returns NaN if the field has any other shape.
+
+        When the significant digits fit in 2^53 and the decimal exponent is within +-22, a single
+        multiplication or division by an exact power of ten gives the correctly rounded result
+        (the same value Double.parseDouble produces). Other inputs fall back to Double.parseDouble.
+        */
+        while (start < end && isBlank(buffer.get(start))) start++;
+        while (end > start && isBlank(buffer.get(end - 1))) end--;
+        if (start == end) {
+            return Double.NaN;
+        }
+
+        int i = start;
+        boolean negative = false;
+        byte first = buffer.get(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean seenDigit = false;
+        boolean exact = true;
+
+        for (; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) break;
+            seenDigit = true;
+            if (digits < 18) {
+                mantissa = mantissa * 10 + digit;
+                if (mantissa != 0) digits++;
+            } else {
+                exact = false;
+            }
+        }
+        if (i < end && buffer.get(i) == '.') {
+            for (i++; i < end; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) break;
+                seenDigit = true;
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + digit;
+                    if (mantissa != 0) digits++;
+                    exponent--;
+                } else {
+                    exact = false;
+                }
+            }
+        }
+        if (!seenDigit) {
+            return Double.NaN;
+        }
+        if (i < end && (buffer.get(i) == 'e' || buffer.get(i) == 'E')) {
+            // parseLong trims its field, so blanks between the 'e' and the exponent are rejected here.
+            long parsed = parseLong(buffer, i + 1, end);
+            if (parsed == Long.MIN_VALUE || isBlank(buffer.get(i + 1))) {
+                return Double.NaN;
+            }
+            if (Math.abs(parsed) > 400) {
+                exact = false;
+            } else {
+                exponent += (int) parsed;
+            }
+            i = end;
+        }
+        if (i != end) {
+            return Double.NaN;
+        }
+
+        if (exact && mantissa < (1L << 53) && exponent >= -22 && exponent <= 22) {
+            double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(decode(buffer, start, end));
+    }
+
+    static long parseLong(String value) {
+        /*
+        String overload used by the Commons CSV path; non-Latin-1 characters become '?' and are rejected.
+        */
+        return parseLong(ByteBuffer.wrap(value.getBytes(StandardCharsets.ISO_8859_1)), 0, value.length());
+    }
+
+    static double parseDouble(String value) {
+        return parseDouble(ByteBuffer.wrap(value.getBytes(StandardCharsets.ISO_8859_1)), 0, value.length());
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    private static boolean isAlias(String name, String[] aliases) {
+        for (String alias : aliases) {
+            if (alias.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String decode(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8).trim();
+    }
+}
@@ -0,0 +1,232 @@
+package com.ramclock;
+
+import org.jfree.data.DomainInfo;
+import org.jfree.data.Range;
+import org.jfree.data.xy.AbstractXYDataset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+XYDataset over per-block ClockRatePyramids that only ever exposes the points needed for the
+current view (visible domain range at the current pixel width).
+
+setView() re-queries every series from the pyramid level matching the screen resolution and fires
+a single dataset change, so zoom/pan cost scales with pixels rather than samples. Domain bounds
+are reported from the full series (DomainInfo), so auto-range always restores the complete time
+span even while a zoomed-in view is loaded; range bounds follow the visible points.
+
+The dataset keeps only the view points, never the pyramids: each series is re-fetched through its
+PyramidSource when the view changes, so a lazily loaded block's samples stay under the SeriesCache
+bound. A series whose pyramid is not in memory at that point keeps its previous points and is
+marked stale; the owner loads it in the background and hands it to requery().
+*/
+public class PyramidXYDataset extends AbstractXYDataset implements DomainInfo {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Comparable<?>> keys = new ArrayList<>();
+    private final List<PyramidSource> sources = new ArrayList<>();
+    private final List<ViewBuffer> views = new ArrayList<>();
+    private double viewFrom = Double.NEGATIVE_INFINITY;
+    private double viewTo = Double.POSITIVE_INFINITY;
+    private int viewPixels = 1200;
+
+    public interface PyramidSource {
+        /*
+        The series' pyramid if it is in memory right now, else null; must never read a file.
+        */
+        ClockRatePyramid peek();
+    }
+
+    private static final class ViewBuffer implements ClockRatePyramid.PointSink {
+        /*
+        Growable x/y arrays holding one series' points for the current view; reused across views.
+        Also remembers the domain of the pyramid last queried (for DomainInfo) and whether the
+        points are from an earlier view because the pyramid was not available.
+        */
+        double[] x = new double[256];
+        double[] y = new double[256];
+        int count;
+        double first = Double.NaN;
+        double last = Double.NaN;
+        boolean stale;
+
+        void query(ClockRatePyramid pyramid, double from, double to, int pixels) {
+            count = 0;
+            pyramid.query(from, to, pixels, this);
+            first = pyramid.isEmpty() ? Double.NaN : pyramid.getFirstTimestamp();
+            last = pyramid.isEmpty() ? Double.NaN : pyramid.getLastTimestamp();
+            stale = false;
+        }
+
+        @Override
+        public void add(double xValue, double yValue) {
+            if (count == x.length) {
+                x = Arrays.copyOf(x, count * 2);
+                y = Arrays.copyOf(y, count * 2);
+            }
+            x[count] = xValue;
+            y[count] = yValue;
+            count++;
+        }
+    }
+
+    public void addSeries(Comparable<?> key, ClockRatePyramid pyramid) {
+        insertSeries(keys.size(), key, pyramid);
+    }
+
+    public void insertSeries(int index, Comparable<?> key, ClockRatePyramid pyramid) {
+        /*
+        Adds a series that is always in memory (the caller keeps its samples alive anyway).
+        */
+        insertSeries(index, key, pyramid, () -> pyramid);
+    }
+
+    public void insertSeries(int index, Comparable<?> key, ClockRatePyramid current, PyramidSource source) {
+        /*
+        Adds a series at the given position, queried from current for the current view; later
+        views fetch its pyramid through source. Only current's view points are kept.
+        Use setNotify(false)/setNotify(true) around several changes to fire a single event.
+        */
+        ViewBuffer view = new ViewBuffer();
+        view.query(current, viewFrom, viewTo, viewPixels);
+        keys.add(index, key);
+        sources.add(index, source);
+        views.add(index, view);
+        fireDatasetChanged();
+    }
+
+    public void removeSeries(int index) {
+        keys.remove(index);
+        sources.remove(index);
+        views.remove(index);
+        fireDatasetChanged();
+    }
+
+    public void removeAllSeries() {
+        keys.clear();
+        sources.clear();
+        views.clear();
+        fireDatasetChanged();
+    }
+
+    public void setView(double from, double to, int pixels) {
+        /*
+        Re-queries every series for the given visible range and pixel width, then notifies once.
+        A series whose source has no pyramid in memory keeps its points and becomes stale.
+        */
+        viewFrom = from;
+        viewTo = to;
+        viewPixels = Math.max(1, pixels);
+        for (int i = 0; i < sources.size(); i++) {
+            ClockRatePyramid pyramid = sources.get(i).peek();
+            if (pyramid != null) {
+                views.get(i).query(pyramid, viewFrom, viewTo, viewPixels);
+            } else {
+                views.get(i).stale = true;
+            }
+        }
+        fireDatasetChanged();
+    }
+
+    public void requery(int series, ClockRatePyramid pyramid) {
+        /*
+        Re-queries one series for the current view from the given pyramid (e.g. one just loaded in
+        the background, or one that grew), clearing its stale mark.
+        */
+        views.get(series).query(pyramid, viewFrom, viewTo, viewPixels);
+        fireDatasetChanged();
+    }
+
+    public boolean isStale(int series) {
+        return views.get(series).stale;
+    }
+
+    public double getColumnMean(int series, int item) {
+        /*
+        Mean clock rate over the pixel column holding a point of the current view: the samples that
+        column's min/max line stands for, from the pyramid's bucket means. NaN if the pyramid is not in
+        memory, the points are stale, no view has been set, or the column holds no sample.
+        */
+        ClockRatePyramid pyramid = sources.get(series).peek();
+        if (pyramid == null || views.get(series).stale || Double.isInfinite(viewFrom) || Double.isInfinite(viewTo)) {
+            return Double.NaN;
+        }
+        double width = (viewTo - viewFrom) / viewPixels;
+        double columnStart = viewFrom + Math.floor((getXValue(series, item) - viewFrom) / width) * width;
+        return pyramid.getMean(columnStart, Math.nextDown(columnStart + width));
+    }
+
+    public ClockRatePyramid getPyramid(int series) {
+        /*
+        The series' pyramid if it is in memory right now, else null.
+        */
+        return sources.get(series).peek();
+    }
+
+    @Override
+    public int getSeriesCount() {
+        return keys.size();
+    }
+
+    @Override
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public Comparable getSeriesKey(int series) {
+        return keys.get(series);
+    }
+
+    @Override
+    public int getItemCount(int series) {
+        return views.get(series).count;
+    }
+
+    @Override
+    public double getXValue(int series, int item) {
+        return views.get(series).x[item];
+    }
+
+    @Override
+    public double getYValue(int series, int item) {
+        return views.get(series).y[item];
+    }
+
+    @Override
+    public Number getX(int series, int item) {
+        return getXValue(series, item);
+    }
+
+    @Override
+    public Number getY(int series, int item) {
+        return getYValue(series, item);
+    }
+
+    @Override
+    public double getDomainLowerBound(boolean includeInterval) {
+        double lower = Double.NaN;
+        for (ViewBuffer view : views) {
+            if (!Double.isNaN(view.first)) {
+                lower = Double.isNaN(lower) ? view.first : Math.min(lower, view.first);
+            }
+        }
+        return lower;
+    }
+
+    @Override
+    public double getDomainUpperBound(boolean includeInterval) {
+        double upper = Double.NaN;
+        for (ViewBuffer view : views) {
+            if (!Double.isNaN(view.last)) {
+                upper = Double.isNaN(upper) ? view.last : Math.max(upper, view.last);
+            }
+        }
+        return upper;
+    }
+
+    @Override
+    public Range getDomainBounds(boolean includeInterval) {
+        double lower = getDomainLowerBound(includeInterval);
+        double upper = getDomainUpperBound(includeInterval);
+        return Double.isNaN(lower) ? null : new Range(lower, upper);
+    }
+}
@@ -3,8 +3,11 @@ package com.ramclock;
 import javax.swing.*;
 import java.awt.*;
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 /*
 GUI controller managing user interation, data loading, and interaction between data parser and visualizer.
@@ -13,43 +16,69 @@ User Action -> Method Chain:
 1. "Select Directory" clicked -> selectDataDirectory()
 2. File chooser opens -> user selects folder
 3. loadClockData(directory) called
-4. ClockCSVParser.parseDirectory(directory) processes CSVs
-5. updateBlockFilters() creates checkboxes
+4. ClockCSVParser.parseDirectory(directory) processes CSVs on a background SwingWorker
+   (progress dialog with Cancel), then results are published back on the EDT:
+5. updateBlockFilters() fills the block filter list
 6. updateFileMappingDisplay() shows file assignments
 7. refreshVisualization() updates chart
+8. A DirectoryWatcher keeps watching the directory; new or changed CSV files are parsed in the
+   background and merged in by applyWatchedFiles() without reloading the directory
 */
 
 public class RamClockerApp {
+    // Blocks selected right after a lazy load; each one drawn means reading its file.
+    private static final int LAZY_SELECTION_LIMIT = 10;
+
     private static Visualizer visualizer;
     private static List<ClockCSVParser.RAMBlockData> loadedData;
     private static JFrame mainFrame;
-    private static JPanel blockFilterPanel;
-    private static Map<String, JCheckBox> blockCheckBoxes = new HashMap<>();
+    private static BlockFilterList blockFilterList;
     private static Map<String, String> fileLabelMap;
+    private static BlockRegistry blockRegistry;
     private static JTextArea fileMappingDisplay;
+    private static SwingWorker<ClockCSVParser.ParsedResult, int[]> loadWorker;
+    private static LiveTail liveTail;
+    // A LiveTail that was stopped but has not applied its last rows yet, and whether to follow after it.
+    private static LiveTail stoppingTail;
+    private static boolean followAfterStop;
+    private static DirectoryWatcher directoryWatcher;
+    private static JToggleButton followFiles;
+    private static SeriesCache seriesCache;
+    private static JCheckBoxMenuItem cacheParsedFiles;
 
     public static void main(String[] args) {
         /*
         Generates GUI from input directory if provided as command-line argument.
         Otherwise, starts with empty GUI for user to select directory.
+        With --batch as the first argument, runs headless BatchRenderer on the remaining arguments instead.
         */
+        if (args.length > 0 && args[0].equals("--batch")) {
+            System.exit(BatchRenderer.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+
+        File inputDir = null;
         if (args.length > 0) {
-            File inputDir = new File(args[0]);
-            if (inputDir.isDirectory()) {
-                loadClockData(inputDir);
-            } else {
+            inputDir = new File(args[0]);
+            if (!inputDir.isDirectory()) {
                 System.err.println("Invalid directory: " + args[0]);
+                inputDir = null;
             }
         }
 
-        SwingUtilities.invokeLater(() -> generateGUI());
+        final File initialDir = inputDir;
+        SwingUtilities.invokeLater(() -> {
+            generateGUI();
+            if (initialDir != null) {
+                loadClockData(initialDir);
+            }
+        });
     }  
 
     private static void generateGUI() {
         /*
         Builds general GUI layout with main control, filter, and visualization panels.
         1. Control Panel (Right): Buttons for directory selection, sample loading, select/deselect all, refresh.
-        2. Filter Panel (Left): Checkboxes for each RAM block to filter displayed data.
+        2. Filter Panel (Left): Virtualized checkbox list of RAM blocks (filter, sort, regex selection).
         3. Visualization Panel (Center): Chart area for displaying clock rate data.
         4. Mapping Panel (Bottom): Text area showing file-to-block name assignments.
         */
@@ -64,11 +93,10 @@ public class RamClockerApp {
         JPanel controlPanel = generateConPanel();
         mainPanel.add(controlPanel, BorderLayout.EAST);
 
-        blockFilterPanel = new JPanel();
-        blockFilterPanel.setLayout(new BoxLayout(blockFilterPanel, BoxLayout.Y_AXIS));
-        JScrollPane scrollPane = new JScrollPane(blockFilterPanel);
-        scrollPane.setPreferredSize(new Dimension(200, 600));
-        mainPanel.add(scrollPane, BorderLayout.WEST);
+        blockFilterList = new BlockFilterList();
+        blockFilterList.setSelectionListener(RamClockerApp::refreshVisualization);
+        blockFilterList.setPreferredSize(new Dimension(200, 600));
+        mainPanel.add(blockFilterList, BorderLayout.WEST);
 
         JPanel mappingPanel = generateMappingPanel();
         mainPanel.add(mappingPanel, BorderLayout.SOUTH);
@@ -86,7 +114,8 @@ public class RamClockerApp {
         2. Load Sample Data
         3. Select/Deselect All RAM Blocks
         4. Refresh Visualization
-        5. Export Chart
+        5. Follow Files (live tail of CSVs still being written)
+        6. Export Chart
         */
         JPanel panel = new JPanel();
 
@@ -109,6 +138,10 @@ public class RamClockerApp {
         JButton refresh = new JButton("Refresh Visualization");
         refresh.addActionListener(e -> refreshVisualization());
 
+        followFiles = new JToggleButton("Follow Files");
+        followFiles.setToolTipText("Keep adding rows appended to the loaded CSV files");
+        followFiles.addActionListener(e -> setFollowing(followFiles.isSelected()));
+
         JButton export = new JButton("Export Chart");
         export.addActionListener(e -> exportVisualization());
 
@@ -122,6 +155,8 @@ public class RamClockerApp {
         panel.add(deselectAll);
         panel.add(Box.createVerticalStrut(20));
         panel.add(refresh);
+        panel.add(Box.createVerticalStrut(5));
+        panel.add(followFiles);
         panel.add(Box.createVerticalStrut(20));
         panel.add(export);
         panel.add(Box.createVerticalGlue());
@@ -132,7 +167,9 @@ public class RamClockerApp {
         /*
         Function to generate menu bar with file operations.
         1. Open Directory
-        2. Exit Application
+        2. Cache Parsed Files (binary caches in ~/.cache/ramclock, capped at ramclock.cacheMaxMB);
+           on by default unless started with -Dramclock.binaryCache=false
+        3. Exit Application
         */
         JMenuBar menuBar = new JMenuBar();
         JMenu fileMenu = new JMenu("File");
@@ -140,10 +177,15 @@ public class RamClockerApp {
         JMenuItem openDir = new JMenuItem("Open Directory");
         openDir.addActionListener(e -> selectDataDirectory());
 
+        cacheParsedFiles = new JCheckBoxMenuItem("Cache Parsed Files",
+                Boolean.parseBoolean(System.getProperty("ramclock.binaryCache", "true")));
+        cacheParsedFiles.setToolTipText("Reopen unchanged files from ~/.cache/ramclock instead of parsing them again");
+
         JMenuItem exit = new JMenuItem("Exit");
         exit.addActionListener(e -> System.exit(0));
 
         fileMenu.add(openDir);
+        fileMenu.add(cacheParsedFiles);
         fileMenu.addSeparator();
         fileMenu.add(exit);
         menuBar.add(fileMenu);
@@ -172,11 +214,11 @@ public class RamClockerApp {
         /*
         Updates the file-to-block mapping display area with current assignments.
         1. Clears existing text.
-        2. Iterates over fileLabelMap to build display string.
-        3. Appends average clock rate and range for each block.
+        2. Walks the block registry in rank order (one pass, no lookups) to build display string.
+        3. Appends average clock rate and range for each block, read from its parse-time statistics.
         4. Sets text area content.
         */
-        if (fileLabelMap == null || fileLabelMap.isEmpty()) {
+        if (blockRegistry == null || blockRegistry.isEmpty()) {
             fileMappingDisplay.setText("No files loaded; please select a directory.");
             return;
         }
@@ -185,59 +227,19 @@ public class RamClockerApp {
         mappingText.append("File -> Block  Assignment (sorted by average clock rate):\n");
         mappingText.append("=".repeat(80)).append("\n");
 
-        List<Map.Entry<String, String>> sortedEntries = new ArrayList<>(fileLabelMap.entrySet());
-        sortedEntries.sort(Map.Entry.comparingByValue());
-        
-        for (Map.Entry<String, String> record : sortedEntries) {
-            String filename = record.getKey();
-            String label = record.getValue();
-            
-            String additionalInfo = "";
-            if (loadedData != null) {
-                for (ClockCSVParser.RAMBlockData block : loadedData) {
-                    if (block.getSourceFileName().equals(filename)) {
-                        double avgRate = calculateAverageRate(block);
-                        additionalInfo = String.format(" (Avg: %.2f MHz, Range: %.2f MHz)", 
-                            avgRate, calculateRateRange(block));
-                        break;
-                    }
-                }
-            }
+        for (ClockCSVParser.RAMBlockData block : blockRegistry.getRanked()) {
+            ClockCSVParser.StatisticsSnapshot stats = block.getStatistics();
+            String additionalInfo = String.format(" (Avg: %.2f MHz, Range: %.2f MHz)", 
+                stats.getMean(), stats.getRange());
             
             mappingText.append(String.format("  %s → RAM Block %s%s\n", 
-                filename, label, additionalInfo));
+                block.getSourceFileName(), block.getBlockName(), additionalInfo));
         }
         
         fileMappingDisplay.setText(mappingText.toString());
 
     }
 
-    private static double calculateAverageRate(ClockCSVParser.RAMBlockData block) {
-        /*
-        Helper function to calculate average clock rate for a RAM block.
-        */
-        if (block.getClockRateRecords().isEmpty()) return 0;
-        double sum = 0;
-        for (ClockCSVParser.ClockRateRecord record : block.getClockRateRecords()) {
-            sum += record.getClockRate();
-        }
-        return sum / block.getClockRateRecords().size();
-    }
-
-    private static double calculateRateRange(ClockCSVParser.RAMBlockData block) {
-        /*
-        Helper function to calculate clock rate range for a RAM block.  
-        */
-        if (block.getClockRateRecords().isEmpty()) return 0;
-        double min = Double.MAX_VALUE;
-        double max = Double.MIN_VALUE;
-        for (ClockCSVParser.ClockRateRecord record : block.getClockRateRecords()) {
-            min = Math.min(min, record.getClockRate());
-            max = Math.max(max, record.getClockRate());
-        }
-        return max - min;
-    }
-
     private static void selectDataDirectory() {
         /*
         Handles user action to select input directory.
@@ -256,57 +258,254 @@ public class RamClockerApp {
     }
 
     private static void loadClockData(File directory) {
+        loadClockData(directory, null);
+    }
+
+    private static void loadClockData(File directory, Runnable onLoaded) {
+        /*
+        Loads clocking data from a directory without blocking the EDT.
+        1. Cancels any load still in progress.
+        2. Parses all CSV files in the directory on a SwingWorker, publishing per-file progress
+           to a ProgressMonitor dialog whose Cancel button stops the parse.
+        3. Back on the EDT, stores parsed data in loadedData and fileLabelMap.
+        4. Updates UI components to reflect loaded data, then runs onLoaded (if any).
+        5. Starts watching the directory for new and changed files, with the same parse options.
+        */
+        if (loadWorker != null && !loadWorker.isDone()) {
+            loadWorker.cancel(true);
+        }
+
+        ProgressMonitor progressMonitor = new ProgressMonitor(mainFrame,
+                "Loading RAM clocking data from " + directory.getName(), "Listing files...", 0, 1);
+        progressMonitor.setMillisToDecideToPopup(200);
+        progressMonitor.setMillisToPopup(200);
+
+        ClockCSVParser.ParseOptions options = new ClockCSVParser.ParseOptions();
+        options.setParallelism(Runtime.getRuntime().availableProcessors());
+        // Two readers keep a request in flight while the other file's chunks are handed over,
+        // which is what network shares need; parsing gets every core, and files above the
+        // mapped-read threshold are memory-mapped and split over every core too.
+        options.setPipeline(2, Runtime.getRuntime().availableProcessors());
+        options.setLargestFirst(true);
+        options.setLazySeries(true);
+        // With File > Cache Parsed Files on, reopening a directory skips unchanged files.
+        options.setBinaryCache(cacheParsedFiles.isSelected());
+
+        SwingWorker<ClockCSVParser.ParsedResult, int[]> worker = new SwingWorker<>() {
+            @Override
+            protected ClockCSVParser.ParsedResult doInBackground() throws Exception {
+                SwingWorker<?, ?> self = this;
+                options.setProgressListener(new ClockCSVParser.ProgressListener() {
+                    @Override
+                    public void fileParsed(File file, int completed, int total) {
+                        publish(new int[]{completed, total});
+                    }
+
+                    @Override
+                    public boolean isCancelled() {
+                        return self.isCancelled() || progressMonitor.isCanceled();
+                    }
+                });
+                return ClockCSVParser.parseDirectory(directory, options);
+            }
+
+            @Override
+            protected void process(List<int[]> chunks) {
+                int[] latest = chunks.get(chunks.size() - 1);
+                progressMonitor.setMaximum(latest[1]);
+                progressMonitor.setProgress(latest[0]);
+                progressMonitor.setNote(String.format("Parsed %d of %d files", latest[0], latest[1]));
+            }
+
+            @Override
+            protected void done() {
+                progressMonitor.close();
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    ClockCSVParser.ParsedResult result = get();
+
+                    setFollowing(false);
+                    replaceSeriesCache(options.isLazySeries() ? options.getSeriesCache() : null);
+                    blockFilterList.setDefaultSelectionLimit(options.isLazySeries()
+                            ? LAZY_SELECTION_LIMIT : Integer.MAX_VALUE);
+                    loadedData = result.getBlockDataList();
+                    fileLabelMap = result.getFileLabelMap();
+                    blockRegistry = result.getRegistry();
+                    watchDirectory(directory, options, loadedData);
+
+                    updateBlockFilters();
+                    updateFileMappingDisplay();
+                    refreshVisualization();
+
+                    mainFrame.setTitle("RAM Block Clocking Visualizer - " + directory.getName());
+
+                    JOptionPane.showMessageDialog(mainFrame,
+                        String.format("Loaded %d RAM blocks from %d files:\n%s",
+                            loadedData.size(),
+                            fileLabelMap.size(),
+                            getMappingSummary()),
+                        "Data Loaded", JOptionPane.INFORMATION_MESSAGE);
+
+                    if (onLoaded != null) {
+                        onLoaded.run();
+                    }
+                } catch (CancellationException e) {
+                    // Cancelled from the progress dialog; keep the previously loaded data.
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof CancellationException) {
+                        return;
+                    }
+                    JOptionPane.showMessageDialog(mainFrame, "Error loading data: " + cause.getMessage(),
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        loadWorker = worker;
+        worker.execute();
+    }
+
+    private static void replaceSeriesCache(SeriesCache loaded) {
         /*
-        Loads clocking data from a directory.
-        1. Parses all CSV files in the directory.
-        2. Stores parsed data in loadedData and fileLabelMap.
-        3. Updates UI components to reflect loaded data.
+        Closes the previous load's SeriesCache (its samples and load pool) once a new load replaces
+        its blocks; following has already stopped, so nothing pins series in it any more.
         */
+        if (seriesCache != null && seriesCache != loaded) {
+            seriesCache.close();
+        }
+        seriesCache = loaded;
+    }
+
+    private static void watchDirectory(File directory, ClockCSVParser.ParseOptions options,
+                                       List<ClockCSVParser.RAMBlockData> loadedBlocks) {
+        /*
+        Replaces the directory watcher with one on the newly loaded directory. Changed files are parsed
+        with the load's options, so lazily loaded blocks share its SeriesCache; files written while the
+        load was running are compared against the versions the loaded blocks were parsed from.
+        */
+        if (directoryWatcher != null) {
+            directoryWatcher.stop();
+            directoryWatcher = null;
+        }
+        DirectoryWatcher watcher = new DirectoryWatcher(directory, options, DirectoryWatcher.DEFAULT_SETTLE_MS);
+        watcher.setChangeListener(RamClockerApp::applyWatchedFiles);
         try {
-            ClockCSVParser.ParsedResult result = ClockCSVParser.parseDirectory(directory);
-            
-            loadedData = result.getBlockDataList();
-            fileLabelMap = result.getFileLabelMap();
-            
-            updateBlockFilters();
-            updateFileMappingDisplay(); 
-            refreshVisualization();
-            
-            mainFrame.setTitle("RAM Block Clocking Visualizer - " + directory.getName());
-            
-            JOptionPane.showMessageDialog(mainFrame, 
-                String.format("Loaded %d RAM blocks from %d files:\n%s",
-                    loadedData.size(),
-                    fileLabelMap.size(),
-                    getMappingSummary()),
-                "Data Loaded", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(mainFrame, "Error loading data: " + e.getMessage(),
-                    "Error", JOptionPane.ERROR_MESSAGE);
+            watcher.start(loadedBlocks);
+            directoryWatcher = watcher;
+        } catch (IOException e) {
+            System.err.println("Cannot watch " + directory.getPath() + " for new files: " + e.getMessage());
+        }
+    }
+
+    private static void applyWatchedFiles(List<ClockCSVParser.RAMBlockData> parsedBlocks) {
+        /*
+        Merges files picked up by the directory watcher into the loaded data.
+        1. A new file is added as a block; a changed file reloads its existing block in place, unless
+           the block is being followed (LiveTail already keeps it current) or a stopped LiveTail
+           has not applied its last rows yet.
+        2. The registry moves each block to its new rank; loadedData gets the same single move, and
+           fileLabelMap is updated only for the ranks that were relabelled.
+        3. The filter list keeps its selection (new blocks start selected, up to its default selection
+           limit), and the chart only replaces series of blocks that were relabelled, moved or
+           reloaded.
+        */
+        if (blockRegistry == null || loadedData == null) {
+            return;
+        }
+
+        boolean changed = false;
+        for (ClockCSVParser.RAMBlockData parsed : parsedBlocks) {
+            ClockCSVParser.RAMBlockData block = blockRegistry.getBySourceFileName(parsed.getSourceFileName());
+            if (block == null) {
+                block = parsed;
+            } else if (liveTail != null || stoppingTail != null) {
+                continue;
+            } else {
+                block.reloadFrom(parsed);
+            }
+
+            BlockRegistry.RankChange change = blockRegistry.update(block);
+            if (change.isAdded()) {
+                loadedData.add(change.getRank(), block);
+            } else {
+                // Same move as the registry's: rotate only the ranks in between.
+                int from = change.getPreviousRank();
+                int to = change.getRank();
+                Collections.rotate(loadedData.subList(Math.min(from, to), Math.max(from, to) + 1), to < from ? 1 : -1);
+                loadedData.set(to, block);
+            }
+            for (int rank = change.getFirstRelabelled(); rank <= change.getLastRelabelled(); rank++) {
+                ClockCSVParser.RAMBlockData relabelled = loadedData.get(rank);
+                fileLabelMap.put(relabelled.getSourceFileName(), relabelled.getBlockName());
+            }
+            changed = true;
+        }
+        if (!changed) {
+            return;
+        }
+
+        blockFilterList.updateBlocks(loadedData);
+        updateFileMappingDisplay();
+        refreshVisualization();
+        visualizer.refreshAppendedData();
+    }
+
+    private static void setFollowing(boolean follow) {
+        /*
+        Starts or stops following the loaded files.
+        1. Stops any running LiveTail without waiting for it. Its last parsed rows are still applied;
+           until then (or while an earlier stop is still finishing) the request is only remembered and
+           replayed once the stop completes, so a new LiveTail never re-reads rows the old one applies.
+        2. If following, starts a LiveTail over loadedData that refreshes the chart and the
+           mapping display once per publish tick; only the selected blocks' series are pinned in memory.
+        3. Keeps the toggle button in sync (e.g. when a new load stops following).
+        */
+        followAfterStop = follow;
+        if (liveTail != null) {
+            stoppingTail = liveTail;
+            liveTail = null;
+            stoppingTail.stop(() -> {
+                stoppingTail = null;
+                setFollowing(followAfterStop);
+            });
+        }
+        if (stoppingTail != null) {
+            if (followFiles != null) {
+                followFiles.setSelected(follow);
+            }
+            return;
+        }
+        if (follow && loadedData != null && !loadedData.isEmpty()) {
+            liveTail = new LiveTail(loadedData, LiveTail.DEFAULT_INTERVAL_MS);
+            liveTail.setPinnedBlocks(blockFilterList.getSelectedBlockNames());
+            liveTail.setUpdateListener(blocks -> {
+                visualizer.refreshAppendedData();
+                updateFileMappingDisplay();
+            });
+            liveTail.start();
+        }
+        if (followFiles != null) {
+            followFiles.setSelected(liveTail != null);
         }
     }
 
     private static String getMappingSummary() {
         /*
         Maps file-to-block assignments into a summary string for display.
-        1. Iterates over fileLabelMap to build summary string.
+        1. Walks the block registry in rank order to build summary string.
         2. Formats each entry as "  • filename → label".
         */
-        if (fileLabelMap == null) return "";
+        if (blockRegistry == null) return "";
         
         StringBuilder summary = new StringBuilder();
         summary.append("\n");
         
-        List<String> labels = new ArrayList<>(fileLabelMap.values());
-        Collections.sort(labels);
-        
-        for (String label : labels) {
-            for (Map.Entry<String, String> entry : fileLabelMap.entrySet()) {
-                if (entry.getValue().equals(label)) {
-                    summary.append(String.format("  • %s → %s\n", entry.getKey(), label));
-                    break;
-                }
-            }
+        for (ClockCSVParser.RAMBlockData block : blockRegistry.getRanked()) {
+            summary.append(String.format("  • %s → %s\n", block.getSourceFileName(), block.getBlockName()));
         }
         
         return summary.toString();
@@ -325,10 +524,11 @@ public class RamClockerApp {
             if(!sampleDir.exists() || !sampleDir.isDirectory()) {
                 createSampleData(sampleDir);
             }
-            loadClockData(sampleDir);
-            mainFrame.setTitle("Ram Block Clocking Visualizer - Sample Data");
-            JOptionPane.showMessageDialog(mainFrame, "Sample data loaded successfully.",
-                    "Success", JOptionPane.INFORMATION_MESSAGE);
+            loadClockData(sampleDir, () -> {
+                mainFrame.setTitle("Ram Block Clocking Visualizer - Sample Data");
+                JOptionPane.showMessageDialog(mainFrame, "Sample data loaded successfully.",
+                        "Success", JOptionPane.INFORMATION_MESSAGE);
+            });
         } catch (Exception e) {
             JOptionPane.showMessageDialog(mainFrame, "Error loading sample data: " + e.getMessage(),
                     "Error", JOptionPane.ERROR_MESSAGE);
@@ -337,68 +537,53 @@ public class RamClockerApp {
 
     private static void updateBlockFilters() {
         /*
-        Sets up checkbox filters for laoded data/
-        1. Clears existing checkboxes.
-        2. Creates new checkbox for each RAM block in loadedData.
-        3. Adds action listener to each checkbox to refresh visualization on change.
-        4. Refreshes panel display.
+        Sets up the block filter list for loaded data.
+        1. Hands the registry's blocks (rank order: A..Z, then AA.., AAA..) to the filter list.
+        2. The list starts with every block selected (the top LAZY_SELECTION_LIMIT ranks after a lazy
+           load) and only renders the rows in view; each selection change refreshes the
+           visualization through its listener.
         */
-        blockFilterPanel.removeAll();
-        blockCheckBoxes.clear();
-
-        if (loadedData == null || loadedData.isEmpty()) {
-            blockFilterPanel.add(new JLabel("No data loaded."));
+        if (loadedData == null || loadedData.isEmpty() || blockRegistry == null) {
+            blockFilterList.setBlocks(null);
             return;
         }
-
-        List<String> blockNames = new ArrayList<>();
-        for (ClockCSVParser.RAMBlockData record : loadedData) {
-            blockNames.add(record.getBlockName());
-        }
-        Collections.sort(blockNames);
-
-        for (String blockName : blockNames) {
-            JCheckBox checkBox = new JCheckBox(blockName, true);
-            checkBox.addActionListener(e -> refreshVisualization());
-            blockCheckBoxes.put(blockName, checkBox);
-            blockFilterPanel.add(checkBox);
-        }
-
-        blockFilterPanel.revalidate();
-        blockFilterPanel.repaint();
+        blockFilterList.setBlocks(blockRegistry.getRanked());
     }
 
     private static void selectAllBlocks(boolean select) {
         /*
-        Handles select/deselect all RAM block checkboxes.
-        1. Iterates over all checkboxes to set selected state.
-        2. Calls refreshVisualization() to update chart.
+        Handles select/deselect all RAM blocks.
+        1. Sets every bit of the filter list's selection.
+        2. The list's selection listener calls refreshVisualization() to update chart.
         */
-        for (JCheckBox checkBox : blockCheckBoxes.values()) {
-            checkBox.setSelected(select);
-        }
-        refreshVisualization();
+        blockFilterList.setAllSelected(select);
     }
 
     private static void refreshVisualization() {
         /*
         Changes visualizer data based on selected RAM blocks and loaded data.
-        1. Gathers list of selected RAM block names.
+        1. Gathers list of selected RAM block names from the filter list's selection bits.
         2. Calls visualizer.setData() with loadedData and selected block names.
+        3. Pins the selected blocks in the running LiveTail, if any, and releases the others.
         */
         if (loadedData == null || visualizer == null) return;
 
-        List<String> selectedBlocks = new ArrayList<>();
-        for (Map.Entry<String, JCheckBox> entry : blockCheckBoxes.entrySet()) {
-            if (entry.getValue().isSelected()) {
-                selectedBlocks.add(entry.getKey());
-            }
-        }
+        List<String> selectedBlocks = blockFilterList.getSelectedBlockNames();
 
         visualizer.setData(loadedData, selectedBlocks);
+        if (liveTail != null) {
+            liveTail.setPinnedBlocks(selectedBlocks);
+        }
     }
 
     private static void exportVisualization() {
+        /*
+        Exports the current chart to a user-chosen file.
+        1. Offers PNG (raster), SVG and PDF (vector) file types.
+        2. Picks the format from the file extension, else from the selected file type.
+        3. PNG goes through exportAsImage; SVG/PDF through exportAsVector, which keeps files small
+           for large series by reducing them to the chart's pixel width.
+        */
         if (visualizer == null) {
             JOptionPane.showMessageDialog(mainFrame, 
                 "No visualization to export. Load data first.",
@@ -406,23 +591,50 @@ public class RamClockerApp {
             return;
         }
         
+        javax.swing.filechooser.FileNameExtensionFilter pngFilter =
+            new javax.swing.filechooser.FileNameExtensionFilter("PNG Image Files", "png");
+        javax.swing.filechooser.FileNameExtensionFilter svgFilter =
+            new javax.swing.filechooser.FileNameExtensionFilter("SVG Vector Files", "svg");
+        javax.swing.filechooser.FileNameExtensionFilter pdfFilter =
+            new javax.swing.filechooser.FileNameExtensionFilter("PDF Documents", "pdf");
+
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Save Chart As Image");
-        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
-            "PNG Image Files", "png"));
+        fileChooser.addChoosableFileFilter(pngFilter);
+        fileChooser.addChoosableFileFilter(svgFilter);
+        fileChooser.addChoosableFileFilter(pdfFilter);
+        fileChooser.setFileFilter(pngFilter);
         fileChooser.setSelectedFile(new File("ram_clocking_chart.png"));
         
         int result = fileChooser.showSaveDialog(mainFrame);
         if (result == JFileChooser.APPROVE_OPTION) {
             File selectedFile = fileChooser.getSelectedFile();
             String filePath = selectedFile.getAbsolutePath();
-
-            if (!filePath.toLowerCase().endsWith(".png")) {
-                filePath = filePath + ".png";
+            String lowerPath = filePath.toLowerCase();
+
+            VectorChartExporter.Format vectorFormat = null;
+            if (lowerPath.endsWith(".svg")) {
+                vectorFormat = VectorChartExporter.Format.SVG;
+            } else if (lowerPath.endsWith(".pdf")) {
+                vectorFormat = VectorChartExporter.Format.PDF;
+            } else if (!lowerPath.endsWith(".png")) {
+                if (fileChooser.getFileFilter() == svgFilter) {
+                    vectorFormat = VectorChartExporter.Format.SVG;
+                    filePath = filePath + ".svg";
+                } else if (fileChooser.getFileFilter() == pdfFilter) {
+                    vectorFormat = VectorChartExporter.Format.PDF;
+                    filePath = filePath + ".pdf";
+                } else {
+                    filePath = filePath + ".png";
+                }
             }
             
             try {
-                visualizer.exportAsImage(filePath);
+                if (vectorFormat != null) {
+                    visualizer.exportAsVector(filePath, vectorFormat);
+                } else {
+                    visualizer.exportAsImage(filePath);
+                }
                 JOptionPane.showMessageDialog(mainFrame, 
                     "Chart saved successfully to:\n" + filePath,
                     "Export Successful", JOptionPane.INFORMATION_MESSAGE);
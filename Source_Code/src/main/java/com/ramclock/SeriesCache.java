@@ -0,0 +1,204 @@
+package com.ramclock;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+Size-bounded LRU cache of block sample series, used for blocks loaded lazily (statistics first,
+samples on first use).
+
+The bound is the total number of samples held, so memory stays flat no matter how many blocks a
+user browses through. Loading happens outside the lock, so a slow file never blocks lookups of
+series that are already cached.
+
+Each series covers the first sourceLength bytes of its file, the bytes its block's statistics
+describe. Lookups ask for a length, and an entry for a different length is a miss, so a file that
+grew (see LiveTail) is never served from a series that lacks its appended rows.
+
+With parallelism > 1, loads run on one work-stealing pool owned by the cache, so a large file is
+split over its workers and concurrent loads share them instead of each starting threads. The pool
+is started on the first such load; close() shuts it down when the cache is replaced by another
+load's, and a closed cache still answers get() (reading on the caller's thread) but keeps nothing.
+*/
+public class SeriesCache implements Closeable {
+    public static final long DEFAULT_MAX_SAMPLES = 20_000_000L;
+
+    private final long maxSamples;
+    private final int parallelism;
+    private final File binaryCacheDirectory;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedSamples = 0;
+    private ForkJoinPool loadPool;
+    private boolean closed;
+
+    private static final class Entry {
+        final ClockCSVParser.ClockRateSeries series;
+        final long sourceLength;
+
+        Entry(ClockCSVParser.ClockRateSeries series, long sourceLength) {
+            this.series = series;
+            this.sourceLength = sourceLength;
+        }
+    }
+
+    public SeriesCache() {
+        this(DEFAULT_MAX_SAMPLES, 1, null);
+    }
+
+    public SeriesCache(long maxSamples, int parallelism, File binaryCacheDirectory) {
+        /*
+        maxSamples: total samples kept across all cached series.
+        parallelism: worker count of the pool that loads large (memory-mapped) files.
+        binaryCacheDirectory: BinaryBlockCache directory loads read and write (null = no binary cache).
+        */
+        this.maxSamples = maxSamples;
+        this.parallelism = Math.max(1, parallelism);
+        this.binaryCacheDirectory = binaryCacheDirectory;
+    }
+
+    public ClockCSVParser.ClockRateSeries get(File sourceFile, long sourceLength) {
+        /*
+        Returns the series of the first sourceLength bytes of a source file, loading and caching it on a miss.
+        1. Looks the file up under the lock (marking it most recently used).
+        2. On a miss, parses those bytes outside the lock.
+        3. Inserts the result and evicts least recently used series until under the sample bound;
+           the series just loaded is never evicted, even if it alone exceeds the bound.
+        Returns null (after reporting the error) if the file can no longer be read.
+        */
+        String key = sourceFile.getAbsolutePath();
+        ClockCSVParser.ClockRateSeries cached = peek(sourceFile, sourceLength);
+        if (cached != null) {
+            return cached;
+        }
+
+        ClockCSVParser.ClockRateSeries loaded;
+        try {
+            ForkJoinPool pool = loadPool();
+            loaded = pool != null
+                    ? pool.submit(() -> ClockCSVParser.loadSeries(sourceFile, sourceLength, binaryCacheDirectory)).get()
+                    : ClockCSVParser.loadSeries(sourceFile, sourceLength, binaryCacheDirectory);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (IOException | ExecutionException e) {
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            System.err.println("Error loading samples from " + sourceFile.getName() + ": " + cause.getMessage());
+            return null;
+        }
+
+        synchronized (this) {
+            if (closed) {
+                return loaded;
+            }
+            Entry raced = entries.get(key);
+            if (raced != null && raced.sourceLength == sourceLength) {
+                return raced.series;
+            }
+            store(key, loaded, sourceLength);
+        }
+        return loaded;
+    }
+
+    private synchronized ForkJoinPool loadPool() {
+        /*
+        The load pool, started on first use; null when loads run on the caller's thread (parallelism 1,
+        or after close()).
+        */
+        if (loadPool == null && parallelism > 1 && !closed) {
+            loadPool = ClockCSVParser.newIngestPool(parallelism);
+        }
+        return loadPool;
+    }
+
+    @Override
+    public synchronized void close() {
+        /*
+        Drops every cached series and shuts down the load pool; loads already running on it finish.
+        */
+        closed = true;
+        clear();
+        if (loadPool != null) {
+            loadPool.shutdown();
+            loadPool = null;
+        }
+    }
+
+    public synchronized ClockCSVParser.ClockRateSeries peek(File sourceFile, long sourceLength) {
+        /*
+        Returns the cached series of the first sourceLength bytes of a source file (marking it most
+        recently used), or null on a miss; never reads the file, so it is safe to call on the EDT.
+        */
+        Entry entry = entries.get(sourceFile.getAbsolutePath());
+        return entry != null && entry.sourceLength == sourceLength ? entry.series : null;
+    }
+
+    public synchronized void put(File sourceFile, long sourceLength, ClockCSVParser.ClockRateSeries series) {
+        /*
+        Caches a series that is already in memory (e.g. one LiveTail stops pinning), replacing any
+        entry for the file and evicting others as needed.
+        */
+        if (closed) {
+            return;
+        }
+        store(sourceFile.getAbsolutePath(), series, sourceLength);
+    }
+
+    public synchronized ClockCSVParser.ClockRateSeries remove(File sourceFile, long sourceLength) {
+        /*
+        Takes the series of the first sourceLength bytes of a source file out of the cache, so it no
+        longer counts against the bound; returns null (removing nothing) on a miss.
+        */
+        ClockCSVParser.ClockRateSeries series = peek(sourceFile, sourceLength);
+        if (series != null) {
+            invalidate(sourceFile);
+        }
+        return series;
+    }
+
+    public synchronized boolean contains(File sourceFile) {
+        return entries.containsKey(sourceFile.getAbsolutePath());
+    }
+
+    public synchronized void invalidate(File sourceFile) {
+        Entry removed = entries.remove(sourceFile.getAbsolutePath());
+        if (removed != null) {
+            cachedSamples -= removed.series.size();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        cachedSamples = 0;
+    }
+
+    public synchronized long getCachedSamples() {
+        return cachedSamples;
+    }
+
+    private void store(String key, ClockCSVParser.ClockRateSeries series, long sourceLength) {
+        Entry replaced = entries.put(key, new Entry(series, sourceLength));
+        if (replaced != null) {
+            cachedSamples -= replaced.series.size();
+        }
+        cachedSamples += series.size();
+        evict(key);
+    }
+
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (cachedSamples > maxSamples && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            cachedSamples -= eldest.getValue().series.size();
+            iterator.remove();
+        }
+    }
+}
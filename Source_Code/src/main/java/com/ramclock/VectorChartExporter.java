@@ -0,0 +1,544 @@
+package com.ramclock;
+
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.ValueAxis;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.xy.XYItemRenderer;
+import org.jfree.data.Range;
+import org.jfree.data.xy.XYDataset;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Paint;
+import java.awt.font.FontRenderContext;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/*
+SVG and PDF export of a clock rate chart, written as a stream rather than built as a document in memory.
+
+The chart is laid out like Visualizer's JFreeChart (title, white plot with light gray gridlines, axis
+labels, legend, series palette) over the chart's current visible axis ranges, and drawn onto a small
+Canvas abstraction with one streaming implementation per format.
+
+Series from a PyramidXYDataset are reduced to the plot's pixel width before anything is written:
+ClockRatePyramid.query emits each pixel column's minimum and maximum sample in time order, so a 10M
+sample block becomes a few thousand path points and still shows every visible spike and droop.
+Points go straight from the pyramid to the output, so memory use does not depend on series length.
+*/
+public final class VectorChartExporter {
+    public enum Format { SVG, PDF }
+
+    private static final double MARGIN_LEFT = 80;
+    private static final double MARGIN_RIGHT = 20;
+    private static final double MARGIN_TOP = 50;
+    private static final double MARGIN_BOTTOM = 70;
+    private static final double LEGEND_ROW_HEIGHT = 18;
+    private static final double LEGEND_ENTRY_WIDTH = 90;
+    private static final Color GRID_COLOR = Color.LIGHT_GRAY;
+    private static final Color AXIS_COLOR = Color.GRAY;
+
+    private VectorChartExporter() {
+    }
+
+    public static void export(JFreeChart chart, File file, Format format, int width, int height) throws IOException {
+        /*
+        Writes the chart to file as SVG or PDF at the given size (pixels for SVG, points for PDF).
+        */
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(file))) {
+            Canvas canvas = format == Format.SVG ? new SvgCanvas(output) : new PdfCanvas(output);
+            draw(chart, canvas, width, height);
+        }
+    }
+
+    private static void draw(JFreeChart chart, Canvas canvas, int width, int height) throws IOException {
+        /*
+        Lays out and draws the chart.
+        1. Reserves legend rows under the plot (entries wrap across the width).
+        2. Draws title, plot background, gridlines with tick labels and axis labels.
+        3. Streams each series clipped to the plot area, reduced to its pixel width.
+        4. Draws the plot border and legend on top.
+        */
+        XYPlot plot = chart.getXYPlot();
+        XYDataset dataset = plot.getDataset();
+        XYItemRenderer renderer = plot.getRenderer();
+        int seriesCount = dataset != null ? dataset.getSeriesCount() : 0;
+
+        int legendColumns = Math.max(1, (int) ((width - MARGIN_LEFT - MARGIN_RIGHT) / LEGEND_ENTRY_WIDTH));
+        int legendRows = (seriesCount + legendColumns - 1) / legendColumns;
+        double plotX = MARGIN_LEFT;
+        double plotY = MARGIN_TOP;
+        double plotWidth = Math.max(1, width - MARGIN_LEFT - MARGIN_RIGHT);
+        double plotHeight = Math.max(1, height - MARGIN_TOP - MARGIN_BOTTOM - legendRows * LEGEND_ROW_HEIGHT);
+
+        ValueAxis domainAxis = plot.getDomainAxis();
+        ValueAxis rangeAxis = plot.getRangeAxis();
+        Range xRange = domainAxis.getRange();
+        Range yRange = rangeAxis.getRange();
+        Mapping mapping = new Mapping(xRange, yRange, plotX, plotY, plotWidth, plotHeight);
+
+        canvas.begin(width, height);
+        canvas.fillRect(0, 0, width, height, Color.WHITE);
+        String title = chart.getTitle() != null ? chart.getTitle().getText() : "";
+        canvas.text(title, width / 2.0, 30, 18, true, 0, false, Color.BLACK);
+
+        NumberFormat tickFormat = NumberFormat.getNumberInstance(Locale.ROOT);
+        tickFormat.setGroupingUsed(true);
+        for (double tick : ticks(xRange, 10, true)) {
+            double x = mapping.x(tick);
+            canvas.line(x, plotY, x, plotY + plotHeight, GRID_COLOR, 0.5f);
+            canvas.text(tickFormat.format(tick), x, plotY + plotHeight + 14, 10, false, 0, false, Color.DARK_GRAY);
+        }
+        for (double tick : ticks(yRange, 8, false)) {
+            double y = mapping.y(tick);
+            canvas.line(plotX, y, plotX + plotWidth, y, GRID_COLOR, 0.5f);
+            canvas.text(tickFormat.format(tick), plotX - 6, y + 4, 10, false, 1, false, Color.DARK_GRAY);
+        }
+        canvas.text(domainAxis.getLabel() != null ? domainAxis.getLabel() : "", plotX + plotWidth / 2,
+                plotY + plotHeight + 34, 12, true, 0, false, Color.DARK_GRAY);
+        canvas.text(rangeAxis.getLabel() != null ? rangeAxis.getLabel() : "", 20, plotY + plotHeight / 2,
+                12, true, 0, true, Color.DARK_GRAY);
+
+        canvas.clip(plotX, plotY, plotWidth, plotHeight);
+        int pixels = (int) Math.ceil(plotWidth);
+        for (int series = 0; series < seriesCount; series++) {
+            canvas.beginPath(seriesColor(renderer, series), 1f);
+            ClockRatePyramid pyramid = dataset instanceof PyramidXYDataset
+                    ? ((PyramidXYDataset) dataset).getPyramid(series) : null;
+            if (pyramid != null) {
+                pyramid.query(xRange.getLowerBound(), xRange.getUpperBound(),
+                        pixels, (x, y) -> canvas.pathPoint(mapping.x(x), mapping.y(y)));
+            } else {
+                // Plain datasets, and pyramid series evicted from the SeriesCache: the points on screen.
+                for (int item = 0; item < dataset.getItemCount(series); item++) {
+                    canvas.pathPoint(mapping.x(dataset.getXValue(series, item)), mapping.y(dataset.getYValue(series, item)));
+                }
+            }
+            canvas.endPath();
+        }
+        canvas.unclip();
+        canvas.strokeRect(plotX, plotY, plotWidth, plotHeight, AXIS_COLOR, 1f);
+
+        double legendTop = plotY + plotHeight + 50;
+        for (int series = 0; series < seriesCount; series++) {
+            double x = plotX + (series % legendColumns) * LEGEND_ENTRY_WIDTH;
+            double y = legendTop + (series / legendColumns) * LEGEND_ROW_HEIGHT;
+            canvas.line(x, y - 4, x + 16, y - 4, seriesColor(renderer, series), 2f);
+            canvas.text(String.valueOf(dataset.getSeriesKey(series)), x + 20, y, 10, false, -1, false, Color.BLACK);
+        }
+        canvas.end();
+    }
+
+    private static Color seriesColor(XYItemRenderer renderer, int series) {
+        Paint paint = renderer != null ? renderer.getItemPaint(series, 0) : null;
+        return paint instanceof Color ? (Color) paint : Color.BLACK;
+    }
+
+    static List<Double> ticks(Range range, int targetCount, boolean integerOnly) {
+        /*
+        "Nice" tick values (1, 2 or 5 times a power of ten apart) covering the range.
+        */
+        List<Double> ticks = new ArrayList<>();
+        double span = range.getLength();
+        if (!(span > 0) || Double.isInfinite(span)) {
+            return ticks;
+        }
+        double rough = span / targetCount;
+        double magnitude = Math.pow(10, Math.floor(Math.log10(rough)));
+        double step = magnitude;
+        for (double factor : new double[]{1, 2, 5, 10}) {
+            step = factor * magnitude;
+            if (step >= rough) {
+                break;
+            }
+        }
+        if (integerOnly) {
+            step = Math.max(1, Math.ceil(step));
+        }
+        // Multiply rather than accumulate, so rounding errors do not drift across ticks.
+        double first = Math.ceil(range.getLowerBound() / step);
+        for (long k = 0; (first + k) * step <= range.getUpperBound(); k++) {
+            ticks.add((first + k) * step);
+        }
+        return ticks;
+    }
+
+    private static final class Mapping {
+        /*
+        Data space -> canvas space (origin top-left, y down).
+        */
+        private final Range xRange;
+        private final Range yRange;
+        private final double left;
+        private final double top;
+        private final double width;
+        private final double height;
+
+        Mapping(Range xRange, Range yRange, double left, double top, double width, double height) {
+            this.xRange = xRange;
+            this.yRange = yRange;
+            this.left = left;
+            this.top = top;
+            this.width = width;
+            this.height = height;
+        }
+
+        double x(double value) {
+            return left + (value - xRange.getLowerBound()) / xRange.getLength() * width;
+        }
+
+        double y(double value) {
+            return top + height - (value - yRange.getLowerBound()) / yRange.getLength() * height;
+        }
+    }
+
+    private interface Canvas {
+        /*
+        Minimal drawing surface; coordinates have the origin top-left with y pointing down.
+        anchor: -1 = text starts at x, 0 = centered on x, 1 = ends at x.
+        Paths are streamed: beginPath, any number of pathPoint calls, endPath.
+        */
+        void begin(int width, int height) throws IOException;
+        void fillRect(double x, double y, double width, double height, Color color) throws IOException;
+        void strokeRect(double x, double y, double width, double height, Color color, float lineWidth) throws IOException;
+        void line(double x1, double y1, double x2, double y2, Color color, float lineWidth) throws IOException;
+        void text(String text, double x, double y, float size, boolean bold, int anchor, boolean vertical, Color color)
+                throws IOException;
+        void clip(double x, double y, double width, double height) throws IOException;
+        void unclip() throws IOException;
+        void beginPath(Color color, float lineWidth) throws IOException;
+        void pathPoint(double x, double y);
+        void endPath() throws IOException;
+        void end() throws IOException;
+    }
+
+    private static String number(double value) {
+        /*
+        Compact fixed-point coordinate (two decimals), independent of the default locale.
+        */
+        long hundredths = Math.round(value * 100);
+        StringBuilder text = new StringBuilder();
+        if (hundredths < 0) {
+            text.append('-');
+            hundredths = -hundredths;
+        }
+        text.append(hundredths / 100);
+        long fraction = hundredths % 100;
+        if (fraction != 0) {
+            text.append('.').append(fraction / 10);
+            if (fraction % 10 != 0) {
+                text.append(fraction % 10);
+            }
+        }
+        return text.toString();
+    }
+
+    private static final class SvgCanvas implements Canvas {
+        private final Writer out;
+        private boolean firstPoint;
+        private int pointsOnLine;
+        private IOException pathError;
+
+        SvgCanvas(OutputStream output) {
+            out = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void begin(int width, int height) throws IOException {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + width + "\" height=\"" + height
+                    + "\" viewBox=\"0 0 " + width + " " + height + "\" font-family=\"SansSerif, Helvetica, Arial\">\n");
+        }
+
+        @Override
+        public void fillRect(double x, double y, double width, double height, Color color) throws IOException {
+            out.write("<rect x=\"" + number(x) + "\" y=\"" + number(y) + "\" width=\"" + number(width)
+                    + "\" height=\"" + number(height) + "\" fill=\"" + rgb(color) + "\"/>\n");
+        }
+
+        @Override
+        public void strokeRect(double x, double y, double width, double height, Color color, float lineWidth)
+                throws IOException {
+            out.write("<rect x=\"" + number(x) + "\" y=\"" + number(y) + "\" width=\"" + number(width)
+                    + "\" height=\"" + number(height) + "\" fill=\"none\" stroke=\"" + rgb(color)
+                    + "\" stroke-width=\"" + number(lineWidth) + "\"/>\n");
+        }
+
+        @Override
+        public void line(double x1, double y1, double x2, double y2, Color color, float lineWidth) throws IOException {
+            out.write("<line x1=\"" + number(x1) + "\" y1=\"" + number(y1) + "\" x2=\"" + number(x2) + "\" y2=\""
+                    + number(y2) + "\" stroke=\"" + rgb(color) + "\" stroke-width=\"" + number(lineWidth) + "\"/>\n");
+        }
+
+        @Override
+        public void text(String text, double x, double y, float size, boolean bold, int anchor, boolean vertical,
+                         Color color) throws IOException {
+            String textAnchor = anchor < 0 ? "start" : anchor == 0 ? "middle" : "end";
+            out.write("<text x=\"" + number(x) + "\" y=\"" + number(y) + "\" font-size=\"" + number(size) + "\""
+                    + (bold ? " font-weight=\"bold\"" : "") + " text-anchor=\"" + textAnchor + "\" fill=\"" + rgb(color) + "\""
+                    + (vertical ? " transform=\"rotate(-90 " + number(x) + " " + number(y) + ")\"" : "") + ">"
+                    + escape(text) + "</text>\n");
+        }
+
+        @Override
+        public void clip(double x, double y, double width, double height) throws IOException {
+            out.write("<clipPath id=\"plot-clip\"><rect x=\"" + number(x) + "\" y=\"" + number(y) + "\" width=\""
+                    + number(width) + "\" height=\"" + number(height) + "\"/></clipPath>\n");
+            out.write("<g clip-path=\"url(#plot-clip)\">\n");
+        }
+
+        @Override
+        public void unclip() throws IOException {
+            out.write("</g>\n");
+        }
+
+        @Override
+        public void beginPath(Color color, float lineWidth) throws IOException {
+            out.write("<path fill=\"none\" stroke=\"" + rgb(color) + "\" stroke-width=\"" + number(lineWidth)
+                    + "\" stroke-linejoin=\"round\" d=\"");
+            firstPoint = true;
+            pointsOnLine = 0;
+        }
+
+        @Override
+        public void pathPoint(double x, double y) {
+            // PointSink cannot throw; the first write error is kept and rethrown by endPath.
+            if (pathError != null) {
+                return;
+            }
+            try {
+                out.write((firstPoint ? "M" : "L") + number(x) + " " + number(y));
+                if (++pointsOnLine == 16) {
+                    out.write('\n');
+                    pointsOnLine = 0;
+                }
+            } catch (IOException e) {
+                pathError = e;
+            }
+            firstPoint = false;
+        }
+
+        @Override
+        public void endPath() throws IOException {
+            if (pathError != null) {
+                throw pathError;
+            }
+            out.write("\"/>\n");
+        }
+
+        @Override
+        public void end() throws IOException {
+            out.write("</svg>\n");
+            out.flush();
+        }
+
+        private static String rgb(Color color) {
+            return String.format("#%02x%02x%02x", color.getRed(), color.getGreen(), color.getBlue());
+        }
+
+        private static String escape(String text) {
+            return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+        }
+    }
+
+    private static final class PdfCanvas implements Canvas {
+        /*
+        Single-page PDF 1.4 using the standard Helvetica fonts (no embedding).
+        Fixed objects are written up front; the page content is one Flate-compressed stream whose
+        length is written afterwards as an indirect object, so nothing is buffered in memory.
+        */
+        private static final FontRenderContext METRICS = new FontRenderContext(null, true, true);
+
+        private final CountingOutputStream out;
+        private final long[] offsets = new long[8];
+        private Writer content;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private DeflaterOutputStream compressed;
+        private long contentStart;
+        private int pageHeight;
+        private boolean firstPoint;
+        private IOException pathError;
+
+        PdfCanvas(OutputStream output) {
+            out = new CountingOutputStream(output);
+        }
+
+        @Override
+        public void begin(int width, int height) throws IOException {
+            pageHeight = height;
+            raw("%PDF-1.4\n%âãÏÓ\n");
+            object(1, "<< /Type /Catalog /Pages 2 0 R >>");
+            object(2, "<< /Type /Pages /Kids [3 0 R] /Count 1 >>");
+            object(3, "<< /Type /Page /Parent 2 0 R /MediaBox [0 0 " + width + " " + height + "]"
+                    + " /Resources << /Font << /F1 4 0 R /F2 5 0 R >> >> /Contents 6 0 R >>");
+            object(4, "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>");
+            object(5, "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica-Bold /Encoding /WinAnsiEncoding >>");
+
+            offsets[6] = out.getCount();
+            raw("6 0 obj\n<< /Length 7 0 R /Filter /FlateDecode >>\nstream\n");
+            out.flush();
+            contentStart = out.getCount();
+            compressed = new DeflaterOutputStream(out, deflater);
+            content = new BufferedWriter(new OutputStreamWriter(compressed, StandardCharsets.ISO_8859_1));
+        }
+
+        @Override
+        public void fillRect(double x, double y, double width, double height, Color color) throws IOException {
+            content.write(color(color, "rg") + number(x) + " " + number(pageHeight - y - height) + " "
+                    + number(width) + " " + number(height) + " re f\n");
+        }
+
+        @Override
+        public void strokeRect(double x, double y, double width, double height, Color color, float lineWidth)
+                throws IOException {
+            content.write(color(color, "RG") + number(lineWidth) + " w " + number(x) + " "
+                    + number(pageHeight - y - height) + " " + number(width) + " " + number(height) + " re S\n");
+        }
+
+        @Override
+        public void line(double x1, double y1, double x2, double y2, Color color, float lineWidth) throws IOException {
+            content.write(color(color, "RG") + number(lineWidth) + " w " + number(x1) + " " + number(pageHeight - y1)
+                    + " m " + number(x2) + " " + number(pageHeight - y2) + " l S\n");
+        }
+
+        @Override
+        public void text(String text, double x, double y, float size, boolean bold, int anchor, boolean vertical,
+                         Color color) throws IOException {
+            double advance = new Font(Font.SANS_SERIF, bold ? Font.BOLD : Font.PLAIN, Math.round(size))
+                    .getStringBounds(text, METRICS).getWidth();
+            double offset = anchor < 0 ? 0 : anchor == 0 ? advance / 2 : advance;
+            double baseY = pageHeight - y;
+            String matrix = vertical
+                    ? "0 1 -1 0 " + number(x) + " " + number(baseY - offset)
+                    : "1 0 0 1 " + number(x - offset) + " " + number(baseY);
+            content.write("BT " + color(color, "rg") + (bold ? "/F2 " : "/F1 ") + number(size) + " Tf " + matrix
+                    + " Tm (" + escape(text) + ") Tj ET\n");
+        }
+
+        @Override
+        public void clip(double x, double y, double width, double height) throws IOException {
+            content.write("q " + number(x) + " " + number(pageHeight - y - height) + " " + number(width) + " "
+                    + number(height) + " re W n\n");
+        }
+
+        @Override
+        public void unclip() throws IOException {
+            content.write("Q\n");
+        }
+
+        @Override
+        public void beginPath(Color color, float lineWidth) throws IOException {
+            content.write(color(color, "RG") + number(lineWidth) + " w 1 j\n");
+            firstPoint = true;
+        }
+
+        @Override
+        public void pathPoint(double x, double y) {
+            // PointSink cannot throw; the first write error is kept and rethrown by endPath.
+            if (pathError != null) {
+                return;
+            }
+            try {
+                content.write(number(x) + " " + number(pageHeight - y) + (firstPoint ? " m\n" : " l\n"));
+            } catch (IOException e) {
+                pathError = e;
+            }
+            firstPoint = false;
+        }
+
+        @Override
+        public void endPath() throws IOException {
+            if (pathError != null) {
+                throw pathError;
+            }
+            content.write(firstPoint ? "n\n" : "S\n");
+        }
+
+        @Override
+        public void end() throws IOException {
+            /*
+            Finishes the content stream, then writes its length, the xref table and the trailer.
+            */
+            content.flush();
+            compressed.finish();
+            deflater.end();
+            long length = out.getCount() - contentStart;
+            raw("\nendstream\nendobj\n");
+            object(7, Long.toString(length));
+
+            long xref = out.getCount();
+            StringBuilder table = new StringBuilder("xref\n0 8\n0000000000 65535 f \n");
+            for (int i = 1; i < 8; i++) {
+                table.append(String.format("%010d 00000 n \n", offsets[i]));
+            }
+            raw(table.toString());
+            raw("trailer\n<< /Size 8 /Root 1 0 R >>\nstartxref\n" + xref + "\n%%EOF\n");
+            out.flush();
+        }
+
+        private void object(int number, String body) throws IOException {
+            offsets[number] = out.getCount();
+            raw(number + " 0 obj\n" + body + "\nendobj\n");
+        }
+
+        private void raw(String text) throws IOException {
+            out.write(text.getBytes(StandardCharsets.ISO_8859_1));
+        }
+
+        private static String color(Color color, String operator) {
+            return number(color.getRed() / 255.0) + " " + number(color.getGreen() / 255.0) + " "
+                    + number(color.getBlue() / 255.0) + " " + operator + " ";
+        }
+
+        private static String escape(String text) {
+            StringBuilder escaped = new StringBuilder(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '(' || c == ')' || c == '\\') {
+                    escaped.append('\\').append(c);
+                } else {
+                    escaped.append(c < 256 ? c : '?');
+                }
+            }
+            return escaped.toString();
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
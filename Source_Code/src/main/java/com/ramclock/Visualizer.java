@@ -3,19 +3,65 @@ package com.ramclock;
 import org.jfree.chart.*;
 import org.jfree.chart.axis.NumberAxis;
 import org.jfree.chart.plot.*;
-import org.jfree.data.xy.*;
+import org.jfree.data.Range;
+import org.jfree.data.xy.XYDataset;
 import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.io.File;
 /*
 Renders interactive multi-line charts of RAM block clock rates over time using JFreeChart.
+Each block is backed by its ClockRatePyramid through a PyramidXYDataset, which only holds the
+min/max points for the visible range at the chart's pixel width. The view is re-queried whenever
+the visible domain range or the panel size changes, so zooming in brings the full detail back
+at a cost proportional to pixels, not samples.
+Series of lazily loaded blocks that are not in the SeriesCache are loaded in the background and
+added to the chart when they complete, so a Swing callback never reads a CSV file. Loads share a
+small fixed pool (LOAD_THREADS), and loads that finish together are applied in one chart update.
+The dataset keeps only view points, so a displayed series the cache evicts is not held on to; it is
+loaded again when a zoom or pan needs it (see PyramidXYDataset.setView).
 */
 public class Visualizer extends JPanel{
+    private static final int DEFAULT_BUCKETS = 1200;
+    private static final int LOAD_THREADS = 2;
+    private static final Color[] SERIES_COLORS = {Color.RED, Color.BLUE, Color.GREEN, Color.MAGENTA, Color.ORANGE, Color.CYAN,
+        Color.PINK, Color.YELLOW, new Color(128, 0, 128) /* Purple */, new Color(0, 128, 128) /* Teal */,
+        new Color(128, 128, 0) /* Olive */};
+
     private ChartPanel chartPanel;
     private JFreeChart chart;
-    private XYSeriesCollection dataset;
+    private PyramidXYDataset dataset;
+    private List<ClockCSVParser.RAMBlockData> displayedData;
+    // The block behind each dataset series, by position; a series is current only for the same block object.
+    private final List<ClockCSVParser.RAMBlockData> displayedBlocks = new ArrayList<>();
+    private List<String> displayedSelection = Collections.emptyList();
+    // Background series loads, at most LOAD_THREADS files at a time however many blocks are selected.
+    private final ExecutorService loadExecutor = Executors.newFixedThreadPool(LOAD_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "series-load");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Blocks with a load queued or running; a queued load whose block was dropped meanwhile is skipped.
+    private final Set<ClockCSVParser.RAMBlockData> loadingBlocks = ConcurrentHashMap.newKeySet();
+    // Loads finished on loader threads (null: failed), applied together by the next applyLoadedSeries.
+    private final Map<ClockCSVParser.RAMBlockData, ClockCSVParser.ClockRateSeries> finishedLoads = new IdentityHashMap<>();
+    // Loaded series not yet added to the chart.
+    private final Map<ClockCSVParser.RAMBlockData, ClockCSVParser.ClockRateSeries> loadedSeries = new IdentityHashMap<>();
+    private Range viewRange;
+    private int viewPixels;
+    private boolean viewUpdatePending;
 
     public Visualizer() {
         setLayout(new BorderLayout());
@@ -25,14 +71,41 @@ public class Visualizer extends JPanel{
     private void initializeChart() {
         /*
         Creates the initial empty chart with axes and gridlines.
-        1. Initializes an empty XYSeriesCollection dataset.
-        2. Creates an XY line chart with titles and labels.
-        3. Configures plot appearance (background, gridlines).
-        4. Sets up the ChartPanel for display and interaction.
-        5. Adds the ChartPanel to the Visualizer JPanel.
+        1. Initializes an empty PyramidXYDataset.
+        2. Creates the chart through createChart (shared with headless batch rendering).
+        3. Sets up the ChartPanel for display and interaction.
+        4. Adds the ChartPanel to the Visualizer JPanel.
         */
-        dataset = new XYSeriesCollection();
-        chart = ChartFactory.createXYLineChart(
+        dataset = new PyramidXYDataset();
+        chart = createChart(dataset);
+        NumberAxis xAxis = (NumberAxis) chart.getXYPlot().getDomainAxis();
+
+        chartPanel = new ChartPanel(chart);
+        chartPanel.setPreferredSize(new Dimension(800, 600));
+        chartPanel.setMouseWheelEnabled(true);
+        add(chartPanel, BorderLayout.CENTER);
+
+        // Zoom/pan and resizes change what one pixel covers; re-query the pyramids for it.
+        xAxis.addChangeListener(e -> scheduleViewUpdate());
+        chartPanel.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                scheduleViewUpdate();
+            }
+        });
+    }
+
+    static JFreeChart createChart(XYDataset dataset) {
+        /*
+        Builds the clock rate chart configuration without any Swing component, so it can also be
+        rendered headless (see BatchRenderer).
+        1. Creates an XY line chart with titles and labels.
+        2. Configures plot appearance (background, gridlines).
+        3. Installs a line renderer and integer ticks on the time axis.
+        4. Tooltips give the point and, for pyramid series, the mean of its pixel column, since the
+           line only shows each column's extremes.
+        */
+        JFreeChart chart = ChartFactory.createXYLineChart(
                 "RAM Block Clock Rates",
                 "Time (Cycles)",
                 "Clock Rate (MHz)",
@@ -49,66 +122,291 @@ public class Visualizer extends JPanel{
         plot.setRangeGridlinePaint(Color.LIGHT_GRAY);
 
         XYLineAndShapeRenderer renderer = new XYLineAndShapeRenderer();
+        renderer.setDefaultToolTipGenerator((data, series, item) -> {
+            String point = String.format("%s: %.0f, %.2f MHz", data.getSeriesKey(series),
+                    data.getXValue(series, item), data.getYValue(series, item));
+            double mean = data instanceof PyramidXYDataset
+                    ? ((PyramidXYDataset) data).getColumnMean(series, item) : Double.NaN;
+            return Double.isNaN(mean) ? point : point + String.format(" (pixel mean %.2f MHz)", mean);
+        });
         plot.setRenderer(renderer);
         NumberAxis xAxis = (NumberAxis) plot.getDomainAxis();
         xAxis.setStandardTickUnits(NumberAxis.createIntegerTickUnits());
         NumberAxis yAxis = (NumberAxis) plot.getRangeAxis();
         yAxis.setLabel("Clock Rate (MHz)");
+        return chart;
+    }
 
-        chartPanel = new ChartPanel(chart);
-        chartPanel.setPreferredSize(new Dimension(800, 600));
-        chartPanel.setMouseWheelEnabled(true);
-        add(chartPanel, BorderLayout.CENTER);
+    static void applySeriesColors(JFreeChart chart) {
+        /*
+        Assigns colors from the palette by series position; series past the palette use the
+        renderer's default sequence.
+        */
+        XYLineAndShapeRenderer renderer = (XYLineAndShapeRenderer) chart.getXYPlot().getRenderer();
+        int seriesCount = chart.getXYPlot().getDataset().getSeriesCount();
+        for (int i = 0; i < seriesCount; i++) {
+            renderer.setSeriesPaint(i, i < SERIES_COLORS.length ? SERIES_COLORS[i] : null, false);
+        }
     }
 
     public void setData(List<ClockCSVParser.RAMBlockData> allData, List<String> selectedBlocks) {
         /*
         Configures the chart to display clock rate data for selected RAM blocks.
-        1. Clears existing data series from the dataset.
-        2. If no data or no blocks selected, updates title and exits.
-        3. Defines a color palette for line series.
-        4. Iterates over all RAM block data:
-            a. If the block is selected, creates a new XYSeries.
-            b. Adds timestamp and clock rate data points to the series.
-            c. Adds the series to the dataset.
-            d. Assigns a color from the palette to the series.
-        5. Updates the chart title to reflect the number of selected blocks.
-        6. Repaints the chart panel to reflect changes.
+        Series persist between calls, so toggling one block only adds or removes that block, and a
+        block that was relabelled or moved in allData (see DirectoryWatcher) only replaces its own series.
+        With dataset and chart notification suspended for the whole update:
+        1. If a different data set was loaded, drops all existing series.
+        2. If no data or no blocks selected, clears the chart, updates title and exits.
+        3. Walks all RAM block data in order:
+            a. Removes series of blocks that are no longer selected.
+            b. Inserts series of newly selected blocks at their position, from their pyramid
+               (a series is kept only if it belongs to the same block object under the same label).
+               A block whose series is not in memory gets a background load instead (loadInBackground)
+               and is inserted by the next call, once the load completes; a block that is no longer
+               selected has its queued load dropped.
+            c. Drops series left over past the last position (blocks that moved or disappeared).
+        4. Assigns colors from the palette by series position (applySeriesColors).
+        5. Updates the chart title, then re-enables notification so the chart redraws once.
         */
-        dataset.removeAllSeries();
+        chart.setNotify(false);
+        dataset.setNotify(false);
+        try {
+            if (allData != displayedData) {
+                dataset.removeAllSeries();
+                displayedBlocks.clear();
+                loadingBlocks.clear();
+                loadedSeries.clear();
+                displayedData = allData;
+                viewRange = null;
+            }
+            displayedSelection = selectedBlocks;
+
+            if(allData == null || allData.isEmpty() || selectedBlocks.isEmpty()) {
+                dataset.removeAllSeries();
+                displayedBlocks.clear();
+                chart.setTitle("RAM Block Clock Rates - No Data Selected");
+                return;
+            }
+
+            Set<String> selected = new HashSet<>(selectedBlocks);
+            int position = 0;
+            for (ClockCSVParser.RAMBlockData blockData : allData) {
+                // Series are kept in allData order, so a displayed block is always at `position`.
+                String blockName = blockData.getBlockName();
+                boolean displayed = position < dataset.getSeriesCount()
+                        && displayedBlocks.get(position) == blockData
+                        && blockName.equals(dataset.getSeriesKey(position));
 
-        if(allData == null || allData.isEmpty() || selectedBlocks.isEmpty()) {
-            chart.setTitle("RAM Block Clock Rates - No Data Selected");
+                if (!selected.contains(blockName) || !blockData.hasSeries()) {
+                    if (displayed) {
+                        dataset.removeSeries(position);
+                        displayedBlocks.remove(position);
+                    }
+                    loadingBlocks.remove(blockData);
+                    loadedSeries.remove(blockData);
+                    continue;
+                }
+                if (!displayed) {
+                    ClockCSVParser.ClockRateSeries samples = availableSeries(blockData);
+                    if (samples == null) {
+                        loadInBackground(blockData);
+                        continue;
+                    }
+                    dataset.insertSeries(position, blockName, samples.getPyramid(), pyramidSource(blockData));
+                    displayedBlocks.add(position, blockData);
+                }
+                position++;
+            }
+            while (dataset.getSeriesCount() > position) {
+                dataset.removeSeries(dataset.getSeriesCount() - 1);
+                displayedBlocks.remove(displayedBlocks.size() - 1);
+            }
+
+            applySeriesColors(chart);
+
+            chart.setTitle("RAM Block Clock Rates - Selected Blocks: " + selectedBlocks.size());
+        } finally {
+            dataset.setNotify(true);
+            chart.setNotify(true);
+        }
+
+        scheduleViewUpdate();
+    }
+
+    public void refreshAppendedData() {
+        /*
+        Picks up samples appended to the displayed blocks' series since the last draw (see LiveTail),
+        or samples reloaded from a changed file (see DirectoryWatcher).
+        With dataset and chart notification suspended:
+        1. Re-queries each displayed block from its current pyramid (extended with the new samples,
+           or rebuilt if the series was replaced or re-sorted). A lazily loaded block whose series was
+           evicted keeps its current points until a background reload completes.
+        2. Re-enables notification, firing one change so an auto-ranging axis grows to the new domain,
+           which then re-queries the new visible range.
+        */
+        if (dataset.getSeriesCount() == 0) {
             return;
         }
-        
-        Color[] colors = {Color.RED, Color.BLUE, Color.GREEN, Color.MAGENTA, Color.ORANGE, Color.CYAN, Color.PINK, Color.YELLOW,
-            new Color(128, 0, 128) /* Purple */, new Color(0, 128, 128) /* Teal */, new Color(128, 128, 0) /* Olive */};
-    
-        XYPlot plot = chart.getXYPlot();
-        XYLineAndShapeRenderer renderer = (XYLineAndShapeRenderer) plot.getRenderer();
+        chart.setNotify(false);
+        dataset.setNotify(false);
+        try {
+            for (int position = 0; position < dataset.getSeriesCount(); position++) {
+                ClockCSVParser.RAMBlockData blockData = displayedBlocks.get(position);
+                ClockCSVParser.ClockRateSeries samples = availableSeries(blockData);
+                if (samples == null) {
+                    loadInBackground(blockData);
+                } else {
+                    dataset.requery(position, samples.getPyramid());
+                }
+            }
+        } finally {
+            dataset.setNotify(true);
+            chart.setNotify(true);
+        }
+
+        scheduleViewUpdate();
+    }
 
-        int colorIndex = 0;
+    private static PyramidXYDataset.PyramidSource pyramidSource(ClockCSVParser.RAMBlockData blockData) {
+        /*
+        The block's pyramid while its series is in memory (pinned, eager or cached), else null.
+        */
+        return () -> {
+            ClockCSVParser.ClockRateSeries samples = blockData.peekSeries();
+            return samples != null ? samples.getPyramid() : null;
+        };
+    }
+
+    private ClockCSVParser.ClockRateSeries availableSeries(ClockCSVParser.RAMBlockData blockData) {
+        /*
+        Returns the block's series without reading its file: the in-memory or cached series, else
+        one a background load left behind (null if neither exists).
+        */
+        ClockCSVParser.ClockRateSeries loaded = loadedSeries.remove(blockData);
+        ClockCSVParser.ClockRateSeries samples = blockData.peekSeries();
+        return samples != null ? samples : loaded;
+    }
 
-        for (ClockCSVParser.RAMBlockData blockData : allData) {
-            if (selectedBlocks.contains(blockData.getBlockName())) {
-                XYSeries series = new XYSeries(blockData.getBlockName());
-                
-                for (ClockCSVParser.ClockRateRecord dp : blockData.getClockRateRecords()) {
-                    series.add(dp.getTimestamp(), dp.getClockRate());
+    private void loadInBackground(ClockCSVParser.RAMBlockData blockData) {
+        /*
+        Queues a load of a block's series through the SeriesCache on the load pool (at most one per
+        block at a time). The loader skips blocks dropped while queued, builds the pyramid off the
+        EDT, and records the result in finishedLoads; the first result of a batch schedules one
+        applyLoadedSeries for all of them.
+        */
+        if (!loadingBlocks.add(blockData)) {
+            return;
+        }
+        loadExecutor.execute(() -> {
+            if (!loadingBlocks.contains(blockData)) {
+                return;
+            }
+            ClockCSVParser.ClockRateSeries samples = null;
+            try {
+                samples = blockData.getSeries();
+                if (samples != null) {
+                    samples.getPyramid();
                 }
-                dataset.addSeries(series);
-                
-                if (colorIndex < colors.length) {
-                    renderer.setSeriesPaint(dataset.getSeriesCount() - 1, colors[colorIndex % colors.length]);
+            } catch (RuntimeException e) {
+                System.err.println("Error loading samples of " + blockData.getBlockName() + ": " + e.getMessage());
+            }
+            boolean first;
+            synchronized (finishedLoads) {
+                first = finishedLoads.isEmpty();
+                finishedLoads.put(blockData, samples);
+            }
+            if (first) {
+                SwingUtilities.invokeLater(this::applyLoadedSeries);
+            }
+        });
+    }
+
+    private void applyLoadedSeries() {
+        /*
+        Applies every load finished since the last call, in one chart update.
+        1. Keeps each series for availableSeries (in case the cache evicts it again meanwhile); loads
+           that failed, or whose block was dropped while loading, are forgotten.
+        2. Re-queries displayed blocks from their loaded pyramid (their points were stale).
+        3. Re-applies the current selection once, inserting the other loaded blocks at their positions.
+        */
+        List<Map.Entry<ClockCSVParser.RAMBlockData, ClockCSVParser.ClockRateSeries>> finished;
+        synchronized (finishedLoads) {
+            finished = new ArrayList<>(finishedLoads.entrySet());
+            finishedLoads.clear();
+        }
+        for (Map.Entry<ClockCSVParser.RAMBlockData, ClockCSVParser.ClockRateSeries> load : finished) {
+            if (loadingBlocks.remove(load.getKey()) && load.getValue() != null) {
+                loadedSeries.put(load.getKey(), load.getValue());
+            }
+        }
+        if (loadedSeries.isEmpty()) {
+            return;
+        }
+
+        chart.setNotify(false);
+        dataset.setNotify(false);
+        try {
+            for (int position = 0; position < dataset.getSeriesCount(); position++) {
+                ClockCSVParser.ClockRateSeries samples = loadedSeries.remove(displayedBlocks.get(position));
+                if (samples != null) {
+                    dataset.requery(position, samples.getPyramid());
                 }
-                colorIndex++;
             }
+        } finally {
+            dataset.setNotify(true);
+            chart.setNotify(true);
+        }
+        if (!loadedSeries.isEmpty()) {
+            setData(displayedData, displayedSelection);
         }
+    }
+
+    private int getBucketCount() {
+        /*
+        One bucket per horizontal pixel of the chart panel (a default before it is laid out).
+        */
+        int width = chartPanel.getWidth();
+        return width > 0 ? width : DEFAULT_BUCKETS;
+    }
 
-        chart.setTitle("RAM Block Clock Rates - Selected Blocks: " + selectedBlocks.size());
+    private void scheduleViewUpdate() {
+        /*
+        Coalesces axis/size change events into a single view update on the EDT; doing it later
+        also keeps dataset changes out of JFreeChart's own axis/dataset event handling.
+        */
+        if (viewUpdatePending) {
+            return;
+        }
+        viewUpdatePending = true;
+        SwingUtilities.invokeLater(() -> {
+            viewUpdatePending = false;
+            updateView();
+        });
+    }
 
-        chartPanel.repaint();
+    private void updateView() {
+        /*
+        Re-queries every displayed pyramid for the current visible domain range and pixel width.
+        Skips the work if neither changed since the last pass; the dataset fires one change event.
+        Series whose samples were evicted from the SeriesCache keep their old points and are
+        loaded again in the background.
+        */
+        if (dataset.getSeriesCount() == 0) {
+            return;
+        }
+        Range visible = chart.getXYPlot().getDomainAxis().getRange();
+        int pixels = getBucketCount();
+        if (visible.equals(viewRange) && pixels == viewPixels) {
+            return;
+        }
+        viewRange = visible;
+        viewPixels = pixels;
+        dataset.setView(visible.getLowerBound(), visible.getUpperBound(), pixels);
+        for (int position = 0; position < dataset.getSeriesCount(); position++) {
+            if (dataset.isStale(position)) {
+                loadInBackground(displayedBlocks.get(position));
+            }
+        }
     }
 
     public void exportAsImage(String filePath) {
@@ -129,4 +427,25 @@ public class Visualizer extends JPanel{
                     "Export Error", JOptionPane.ERROR_MESSAGE);
         }
     }
+
+    public void exportAsVector(String filePath, VectorChartExporter.Format format) {
+        /*
+        Exports the current view (visible axis ranges) as SVG or PDF at 1200x800, matching exportAsImage.
+        1. Appends .svg or .pdf if the file path does not already end with it.
+        2. Streams the chart through VectorChartExporter, which reduces every series to the plot's
+           pixel width while keeping each pixel column's extremes.
+        3. Catches exceptions and shows error dialog if export fails.
+        */
+        String extension = "." + format.name().toLowerCase();
+        try {
+            File file = new File(filePath);
+            if (!filePath.toLowerCase().endsWith(extension)) {
+                file = new File(filePath + extension);
+            }
+            VectorChartExporter.export(chart, file, format, 1200, 800);
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, "Error exporting " + format + ": " + e.getMessage(),
+                    "Export Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
 }
@@ -0,0 +1,127 @@
+package com.ramclock;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+BinaryBlockCache must hand back exactly what was written, treat any change to the source (including
+a same-size rewrite whose mtime was restored) as a miss, and keep its directory under the size cap
+by deleting the least recently used caches first.
+*/
+class BinaryBlockCacheTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsStatisticsAndSamples() throws IOException {
+        File source = source("block.csv", "timestamp,clock_rate_mhz\n1,1500.5\n2,1600.25\n3,1700\n");
+        File caches = directory.resolve("cache").toFile();
+        ClockCSVParser.ClockRateSeries series = series(3);
+        ClockCSVParser.StatisticsSnapshot stats = stats(series);
+        BinaryBlockCache.write(caches, Long.MAX_VALUE, source, source.length(), source.lastModified(), stats, 2, series);
+
+        BinaryBlockCache.Entry entry = BinaryBlockCache.read(caches, source, true);
+        assertNotNull(entry);
+        assertEquals(2, entry.skippedRows);
+        assertEquals(stats.getCount(), entry.stats.getCount());
+        assertEquals(stats.getMean(), entry.stats.getMean());
+        assertEquals(stats.getPercentile(50), entry.stats.getPercentile(50));
+        assertEquals(series.size(), entry.series.size());
+        for (int i = 0; i < series.size(); i++) {
+            assertEquals(series.getTimestamp(i), entry.series.getTimestamp(i));
+            assertEquals(series.getClockRate(i), entry.series.getClockRate(i));
+        }
+        assertNull(BinaryBlockCache.read(caches, source, false).series);
+    }
+
+    @Test
+    void sameSizeRewriteWithRestoredMtimeIsAMiss() throws IOException {
+        File source = source("block.csv", "timestamp,clock_rate_mhz\n1,1500\n");
+        File caches = directory.resolve("cache").toFile();
+        long modified = source.lastModified();
+        ClockCSVParser.ClockRateSeries series = series(1);
+        BinaryBlockCache.write(caches, Long.MAX_VALUE, source, source.length(), modified, stats(series), 0, series);
+        assertNotNull(BinaryBlockCache.read(caches, source, false));
+
+        Files.writeString(source.toPath(), "timestamp,clock_rate_mhz\n1,1900\n");
+        assertTrue(source.setLastModified(modified));
+        assertNull(BinaryBlockCache.read(caches, source, false));
+    }
+
+    @Test
+    void sizeChangeIsAMiss() throws IOException {
+        File source = source("block.csv", "timestamp,clock_rate_mhz\n1,1500\n");
+        File caches = directory.resolve("cache").toFile();
+        long modified = source.lastModified();
+        ClockCSVParser.ClockRateSeries series = series(1);
+        BinaryBlockCache.write(caches, Long.MAX_VALUE, source, source.length(), modified, stats(series), 0, series);
+
+        Files.writeString(source.toPath(), "timestamp,clock_rate_mhz\n1,1500\n2,1600\n");
+        assertTrue(source.setLastModified(modified));
+        assertNull(BinaryBlockCache.read(caches, source, false));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedOverTheCap() throws IOException {
+        File caches = directory.resolve("cache").toFile();
+        ClockCSVParser.ClockRateSeries series = series(1000);
+        ClockCSVParser.StatisticsSnapshot stats = stats(series);
+        File[] sources = new File[4];
+        for (int i = 0; i < 3; i++) {
+            sources[i] = source("block" + i + ".csv", "timestamp,clock_rate_mhz\n" + i + ",1500\n");
+            BinaryBlockCache.write(caches, Long.MAX_VALUE, sources[i], sources[i].length(),
+                    sources[i].lastModified(), stats, 0, series);
+            // Distinct, increasing last-use times: block0 is the least recently used.
+            assertTrue(BinaryBlockCache.cacheFileFor(caches, sources[i]).setLastModified(1_000_000_000_000L + i * 10_000L));
+        }
+        long cacheBytes = BinaryBlockCache.cacheFileFor(caches, sources[0]).length();
+
+        sources[3] = source("block3.csv", "timestamp,clock_rate_mhz\n3,1500\n");
+        long maxBytes = 3 * cacheBytes;
+        BinaryBlockCache.write(caches, maxBytes, sources[3], sources[3].length(), sources[3].lastModified(),
+                stats, 0, series);
+
+        assertFalse(BinaryBlockCache.cacheFileFor(caches, sources[0]).exists());
+        assertFalse(BinaryBlockCache.cacheFileFor(caches, sources[1]).exists());
+        assertTrue(BinaryBlockCache.cacheFileFor(caches, sources[2]).exists());
+        assertTrue(BinaryBlockCache.cacheFileFor(caches, sources[3]).exists());
+        long total = 0;
+        for (File cache : caches.listFiles()) {
+            total += cache.length();
+        }
+        assertTrue(total <= maxBytes / 10 * 9, total + " bytes left");
+    }
+
+    private File source(String name, String content) throws IOException {
+        Path file = directory.resolve(name);
+        Files.writeString(file, content);
+        return file.toFile();
+    }
+
+    private static ClockCSVParser.ClockRateSeries series(int size) {
+        ClockCSVParser.ClockRateSeries series = new ClockCSVParser.ClockRateSeries();
+        for (int i = 0; i < size; i++) {
+            series.add(i, 1500 + i * 0.25);
+        }
+        return series;
+    }
+
+    private static ClockCSVParser.StatisticsSnapshot stats(ClockCSVParser.ClockRateSeries series) {
+        ClockCSVParser.BlockStatistics stats = new ClockCSVParser.BlockStatistics();
+        for (int i = 0; i < series.size(); i++) {
+            stats.update(series.getClockRate(i));
+        }
+        return stats.snapshot();
+    }
+}
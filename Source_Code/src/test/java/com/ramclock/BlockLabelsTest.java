@@ -0,0 +1,52 @@
+package com.ramclock;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+BlockLabels must be a bijection between ranks and labels: every rank round-trips through its label,
+and no two ranks share one, well past the two- and three-letter boundaries.
+*/
+class BlockLabelsTest {
+    private static final int RANKS = 120_000;
+
+    @Test
+    void roundTripsAndLabelsAreUnique() {
+        Set<String> labels = new HashSet<>();
+        for (int rank = 0; rank < RANKS; rank++) {
+            String label = BlockLabels.forRank(rank);
+            assertEquals(rank, BlockLabels.toRank(label), label);
+            assertTrue(labels.add(label), "Duplicate label " + label + " for rank " + rank);
+        }
+    }
+
+    @Test
+    void matchesSpreadsheetColumnNames() {
+        assertEquals("A", BlockLabels.forRank(0));
+        assertEquals("Z", BlockLabels.forRank(25));
+        assertEquals("AA", BlockLabels.forRank(26));
+        assertEquals("ZZ", BlockLabels.forRank(701));
+        assertEquals("AAA", BlockLabels.forRank(702));
+    }
+
+    @Test
+    void roundTripsLargestRank() {
+        String label = BlockLabels.forRank(Integer.MAX_VALUE);
+        assertEquals(Integer.MAX_VALUE, BlockLabels.toRank(label));
+    }
+
+    @Test
+    void rejectsInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> BlockLabels.forRank(-1));
+        assertThrows(IllegalArgumentException.class, () -> BlockLabels.toRank(""));
+        assertThrows(IllegalArgumentException.class, () -> BlockLabels.toRank("a"));
+        assertThrows(IllegalArgumentException.class, () -> BlockLabels.toRank("A1"));
+        assertThrows(IllegalArgumentException.class, () -> BlockLabels.toRank("ZZZZZZZ"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.ramclock;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+BlockRanking's bounded heap must return exactly the head of a stable full sort for every statistic
+and every k, including k = 0 and k past the block count; blocks that tie keep their input order.
+*/
+class BlockRankingTest {
+    private static final int BLOCKS = 300;
+
+    @Test
+    void matchesHeadOfStableSort() {
+        List<ClockCSVParser.RAMBlockData> blocks = blocks(BLOCKS, 7);
+        for (BlockRanking.Statistic statistic : BlockRanking.Statistic.values()) {
+            List<ClockCSVParser.RAMBlockData> highestFirst = new ArrayList<>(blocks);
+            highestFirst.sort((a, b) -> Double.compare(statistic.of(b), statistic.of(a)));
+            List<ClockCSVParser.RAMBlockData> lowestFirst = new ArrayList<>(blocks);
+            lowestFirst.sort(Comparator.comparingDouble(statistic::of));
+
+            for (int k : new int[]{1, 2, 10, 57, BLOCKS, BLOCKS + 3}) {
+                int expected = Math.min(k, BLOCKS);
+                assertEquals(names(highestFirst.subList(0, expected)),
+                        names(BlockRanking.topK(blocks, k, statistic)), statistic + " top " + k);
+                assertEquals(names(lowestFirst.subList(0, expected)),
+                        names(BlockRanking.bottomK(blocks, k, statistic)), statistic + " bottom " + k);
+            }
+        }
+    }
+
+    @Test
+    void emptySelections() {
+        List<ClockCSVParser.RAMBlockData> blocks = blocks(10, 1);
+        assertTrue(BlockRanking.topK(blocks, 0, BlockRanking.Statistic.AVERAGE).isEmpty());
+        assertTrue(BlockRanking.bottomK(blocks, -1, BlockRanking.Statistic.MAX).isEmpty());
+        assertTrue(BlockRanking.topK(List.of(), 5, BlockRanking.Statistic.MIN).isEmpty());
+    }
+
+    private static List<ClockCSVParser.RAMBlockData> blocks(int count, long seed) {
+        // Few distinct levels and spreads, so every statistic has many ties.
+        Random random = new Random(seed);
+        List<ClockCSVParser.RAMBlockData> blocks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ClockCSVParser.BlockStatistics stats = new ClockCSVParser.BlockStatistics();
+            int level = random.nextInt(20);
+            stats.update(1500 + level);
+            stats.update(1500 + level + random.nextInt(4));
+            ClockCSVParser.RAMBlockData block = new ClockCSVParser.RAMBlockData();
+            block.setSourceFileName(String.format("block_%04d.csv", i));
+            block.setStatistics(stats.snapshot());
+            blocks.add(block);
+        }
+        return blocks;
+    }
+
+    private static List<String> names(List<ClockCSVParser.RAMBlockData> blocks) {
+        List<String> names = new ArrayList<>(blocks.size());
+        for (ClockCSVParser.RAMBlockData block : blocks) {
+            names.add(block.getSourceFileName());
+        }
+        return names;
+    }
+}
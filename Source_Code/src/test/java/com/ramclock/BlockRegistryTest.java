@@ -0,0 +1,143 @@
+package com.ramclock;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+BlockRegistry must rank like a full sort (higher mean first, ties by file name) whether it ranks
+eagerly, lazily, or through a series of update() calls, and an update must report exactly the
+ranks whose label changed.
+*/
+class BlockRegistryTest {
+
+    @Test
+    void lazyRankingMatchesSort() {
+        List<ClockCSVParser.RAMBlockData> blocks = blocks(500, 1);
+        BlockRegistry lazy = BlockRegistry.unranked(blocks);
+
+        assertEquals(3, lazy.getTop(3).size());
+        assertEquals(3, lazy.getRankedCount(), "only the requested ranks are labelled");
+        ClockCSVParser.RAMBlockData byLabel = lazy.getByLabel("AB");
+        assertEquals(28, lazy.getRankedCount());
+
+        List<ClockCSVParser.RAMBlockData> expected = sorted(blocks);
+        assertEquals(names(expected), names(lazy.getRanked()));
+        assertSame(expected.get(27), byLabel);
+        assertNull(lazy.getByLabel("not a label"));
+    }
+
+    @Test
+    void updatesMatchFullSort() {
+        List<ClockCSVParser.RAMBlockData> blocks = blocks(300, 2);
+        BlockRegistry registry = BlockRegistry.unranked(blocks);
+        List<ClockCSVParser.RAMBlockData> current = new ArrayList<>(blocks);
+        Random random = new Random(3);
+
+        for (int step = 0; step < 400; step++) {
+            Map<ClockCSVParser.RAMBlockData, String> before = labels(registry.getRanked());
+            ClockCSVParser.RAMBlockData block;
+            if (random.nextInt(4) == 0) {
+                block = block(String.format("new_%03d.csv", step), random.nextInt(50));
+                current.add(block);
+            } else if (random.nextBoolean()) {
+                // Reloaded in place: same object, new statistics.
+                block = current.get(random.nextInt(current.size()));
+                block.setStatistics(statistics(random.nextInt(50)));
+            } else {
+                // Replaced by a different object for the same file.
+                int index = random.nextInt(current.size());
+                block = block(current.get(index).getSourceFileName(), random.nextInt(50));
+                current.set(index, block);
+            }
+
+            BlockRegistry.RankChange change = registry.update(block);
+
+            List<ClockCSVParser.RAMBlockData> ranked = registry.getRanked();
+            assertEquals(names(sorted(current)), names(ranked), "step " + step);
+            assertSame(block, ranked.get(change.getRank()));
+            for (int rank = 0; rank < ranked.size(); rank++) {
+                ClockCSVParser.RAMBlockData at = ranked.get(rank);
+                assertEquals(BlockLabels.forRank(rank), at.getBlockName());
+                boolean relabelled = rank >= change.getFirstRelabelled() && rank <= change.getLastRelabelled();
+                if (!relabelled) {
+                    assertEquals(before.get(at), at.getBlockName(), "rank " + rank + " outside the reported range changed");
+                }
+            }
+            assertSame(block, registry.getBySourceFileName(block.getSourceFileName()));
+            assertSame(block, registry.getByLabel(block.getBlockName()));
+        }
+        assertEquals(current.size(), registry.size());
+    }
+
+    @Test
+    void unchangedRankRelabelsOnlyItself() {
+        List<ClockCSVParser.RAMBlockData> blocks = blocks(50, 4);
+        BlockRegistry registry = BlockRegistry.unranked(blocks);
+        ClockCSVParser.RAMBlockData block = registry.getRanked(10);
+
+        BlockRegistry.RankChange change = registry.update(block);
+        assertEquals(10, change.getPreviousRank());
+        assertEquals(10, change.getRank());
+        assertEquals(10, change.getFirstRelabelled());
+        assertEquals(10, change.getLastRelabelled());
+        assertFalse(change.isAdded());
+    }
+
+    private static List<ClockCSVParser.RAMBlockData> sorted(List<ClockCSVParser.RAMBlockData> blocks) {
+        List<ClockCSVParser.RAMBlockData> sorted = new ArrayList<>(blocks);
+        sorted.sort((a, b) -> BlockRegistry.compareRank(a.getStatistics().getMean(), a.getSourceFileName(),
+                b.getStatistics().getMean(), b.getSourceFileName()));
+        return sorted;
+    }
+
+    private static List<String> names(List<ClockCSVParser.RAMBlockData> blocks) {
+        List<String> names = new ArrayList<>(blocks.size());
+        for (ClockCSVParser.RAMBlockData block : blocks) {
+            names.add(block.getSourceFileName());
+        }
+        return names;
+    }
+
+    private static Map<ClockCSVParser.RAMBlockData, String> labels(List<ClockCSVParser.RAMBlockData> blocks) {
+        Map<ClockCSVParser.RAMBlockData, String> labels = new HashMap<>();
+        for (ClockCSVParser.RAMBlockData block : blocks) {
+            labels.put(block, block.getBlockName());
+        }
+        return labels;
+    }
+
+    private static List<ClockCSVParser.RAMBlockData> blocks(int count, long seed) {
+        // Few distinct means, so many ranks are decided by the file name tie-break.
+        Random random = new Random(seed);
+        List<ClockCSVParser.RAMBlockData> blocks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            blocks.add(block(String.format("block_%04d.csv", i), random.nextInt(50)));
+        }
+        return blocks;
+    }
+
+    private static ClockCSVParser.RAMBlockData block(String sourceFileName, int level) {
+        ClockCSVParser.RAMBlockData block = new ClockCSVParser.RAMBlockData();
+        block.setSourceFileName(sourceFileName);
+        block.setStatistics(statistics(level));
+        return block;
+    }
+
+    private static ClockCSVParser.StatisticsSnapshot statistics(int level) {
+        ClockCSVParser.BlockStatistics stats = new ClockCSVParser.BlockStatistics();
+        stats.update(1500 + level);
+        stats.update(1500 + level + 0.5);
+        return stats.snapshot();
+    }
+}
@@ -0,0 +1,143 @@
+package com.ramclock;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+BlockStatistics must give the same answer however the samples are split and merged: the sum (and
+so the mean used for ranking) bit for bit, variance up to rounding (Welford / Chan merge), and
+exact percentiles while the reservoir holds every sample. Statistics resumed from a snapshot must
+continue exactly where the snapshot left off.
+*/
+class BlockStatisticsTest {
+
+    @Test
+    void sumDoesNotDependOnOrderOrSplits() {
+        double[] values = randomValues(100_000, 11);
+        ClockCSVParser.BlockStatistics serial = accumulate(values, 0, values.length);
+
+        double[] shuffled = values.clone();
+        shuffle(shuffled, new Random(12));
+        assertEquals(serial.snapshot().getSum(), accumulate(shuffled, 0, shuffled.length).snapshot().getSum());
+
+        for (int parts : new int[]{2, 7, 64}) {
+            ClockCSVParser.BlockStatistics merged = new ClockCSVParser.BlockStatistics();
+            int step = values.length / parts + 1;
+            for (int start = values.length - step; start > -step; start -= step) {
+                merged.merge(accumulate(values, Math.max(0, start), Math.min(values.length, start + step)));
+            }
+            assertEquals(serial.snapshot().getSum(), merged.snapshot().getSum(), parts + " parts");
+            assertEquals(serial.snapshot().getMean(), merged.snapshot().getMean(), parts + " parts");
+        }
+    }
+
+    @Test
+    void sumIsCorrectlyRounded() {
+        ClockCSVParser.BlockStatistics stats = new ClockCSVParser.BlockStatistics();
+        for (double value : new double[]{1e16, 1., -1e16, 0.1, 0.2, 0.3}) {
+            stats.update(value);
+        }
+        assertEquals(1.6, stats.snapshot().getSum());
+
+        ClockCSVParser.BlockStatistics special = new ClockCSVParser.BlockStatistics();
+        special.update(1.);
+        special.update(Double.POSITIVE_INFINITY);
+        assertEquals(Double.POSITIVE_INFINITY, special.snapshot().getSum());
+        special.update(Double.NEGATIVE_INFINITY);
+        assertTrue(Double.isNaN(special.snapshot().getSum()));
+    }
+
+    @Test
+    void mergedVarianceMatchesTwoPass() {
+        double[] values = randomValues(50_000, 21);
+        double mean = Arrays.stream(values).sum() / values.length;
+        double squares = 0;
+        for (double value : values) {
+            squares += (value - mean) * (value - mean);
+        }
+        double variance = squares / (values.length - 1);
+
+        ClockCSVParser.BlockStatistics merged = accumulate(values, 0, 1);
+        merged.merge(accumulate(values, 1, 30_000));
+        merged.merge(accumulate(values, 30_000, values.length));
+        ClockCSVParser.StatisticsSnapshot snapshot = merged.snapshot();
+        assertEquals(variance, snapshot.getVariance(), variance * 1e-12);
+        assertEquals(values.length, snapshot.getCount());
+        assertEquals(Arrays.stream(values).min().getAsDouble(), snapshot.getMin());
+        assertEquals(Arrays.stream(values).max().getAsDouble(), snapshot.getMax());
+    }
+
+    @Test
+    void percentilesAreExactForSmallBlocks() {
+        ClockCSVParser.BlockStatistics stats = new ClockCSVParser.BlockStatistics();
+        for (int i = 100; i >= 0; i--) {
+            stats.update(i);
+        }
+        ClockCSVParser.StatisticsSnapshot snapshot = stats.snapshot();
+        assertEquals(50., snapshot.getMedian());
+        assertEquals(1., snapshot.getPercentile(1));
+        assertEquals(99., snapshot.getPercentile(99));
+    }
+
+    @Test
+    void reservoirEstimatesPercentilesOfLargeBlocks() {
+        ClockCSVParser.BlockStatistics stats = new ClockCSVParser.BlockStatistics();
+        for (int i = 0; i < 1_000_000; i++) {
+            stats.update(i % 1000);
+        }
+        ClockCSVParser.StatisticsSnapshot snapshot = stats.snapshot();
+        assertEquals(500., snapshot.getMedian(), 50.);
+        assertEquals(950., snapshot.getPercentile(95), 25.);
+    }
+
+    @Test
+    void resumesExactlyFromSnapshot() {
+        double[] values = randomValues(20_000, 31);
+        ClockCSVParser.BlockStatistics whole = accumulate(values, 0, values.length);
+
+        ClockCSVParser.BlockStatistics resumed =
+                ClockCSVParser.BlockStatistics.fromSnapshot(accumulate(values, 0, 12_345).snapshot());
+        for (int i = 12_345; i < values.length; i++) {
+            resumed.update(values[i]);
+        }
+        ClockCSVParser.StatisticsSnapshot expected = whole.snapshot();
+        ClockCSVParser.StatisticsSnapshot actual = resumed.snapshot();
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getSum(), actual.getSum());
+        assertEquals(expected.getMean(), actual.getMean());
+        assertEquals(expected.getVariance(), actual.getVariance(), expected.getVariance() * 1e-12);
+        assertEquals(expected.getMin(), actual.getMin());
+        assertEquals(expected.getMax(), actual.getMax());
+    }
+
+    private static ClockCSVParser.BlockStatistics accumulate(double[] values, int start, int end) {
+        ClockCSVParser.BlockStatistics stats = new ClockCSVParser.BlockStatistics();
+        for (int i = start; i < end; i++) {
+            stats.update(values[i]);
+        }
+        return stats;
+    }
+
+    private static double[] randomValues(int count, long seed) {
+        Random random = new Random(seed);
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = 1500 + random.nextDouble() * 200;
+        }
+        return values;
+    }
+
+    private static void shuffle(double[] values, Random random) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            double swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+}
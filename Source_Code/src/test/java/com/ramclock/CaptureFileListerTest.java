@@ -0,0 +1,79 @@
+package com.ramclock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+CaptureFileLister must pass on exactly the files its globs accept: name globs against the file name,
+globs with '/' against the relative path, excluded subdirectories never entered, and a directory's
+files before those of its subdirectories.
+*/
+class CaptureFileListerTest {
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void writeTree() throws IOException {
+        for (String name : new String[]{"a.csv", "notes.txt", "a_old.csv", "sub/c.csv", "sub/deep/d.csv",
+                "skip/e.csv", "rack1/f.csv", "rack1/f.txt"}) {
+            Path file = directory.resolve(name);
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, "timestamp,clock_rate_mhz\n");
+        }
+    }
+
+    @Test
+    void topLevelOnlyByDefault() throws IOException {
+        assertEquals(Set.of("a.csv", "a_old.csv"), Set.copyOf(list(new ClockCSVParser.ParseOptions())));
+    }
+
+    @Test
+    void recursiveWithExcludes() throws IOException {
+        ClockCSVParser.ParseOptions options = new ClockCSVParser.ParseOptions();
+        options.setRecursive(true);
+        options.setExcludePatterns(List.of("*_old.csv", "skip"));
+        List<String> names = list(options);
+
+        assertEquals(Set.of("a.csv", "sub/c.csv", "sub/deep/d.csv", "rack1/f.csv"), new HashSet<>(names));
+        assertEquals(4, names.size());
+        assertTrue(names.indexOf("a.csv") < names.indexOf("sub/c.csv"));
+        assertTrue(names.indexOf("sub/c.csv") < names.indexOf("sub/deep/d.csv"));
+    }
+
+    @Test
+    void pathGlobsMatchTheRelativePath() throws IOException {
+        ClockCSVParser.ParseOptions options = new ClockCSVParser.ParseOptions();
+        options.setRecursive(true);
+        options.setIncludePatterns(List.of("rack1/**.csv", "sub/*/*.csv"));
+        assertEquals(Set.of("rack1/f.csv", "sub/deep/d.csv"), Set.copyOf(list(options)));
+    }
+
+    @Test
+    void unreadableRootIsAnError() {
+        CaptureFileLister lister = new CaptureFileLister(directory.resolve("missing").toFile(),
+                new ClockCSVParser.ParseOptions());
+        assertThrows(IOException.class, () -> lister.list(file -> { }));
+    }
+
+    private List<String> list(ClockCSVParser.ParseOptions options) throws IOException {
+        CaptureFileLister lister = new CaptureFileLister(directory.toFile(), options);
+        List<String> names = new ArrayList<>();
+        lister.list((File file) -> names.add(lister.relativeName(file)));
+        assertEquals(names.size(), lister.getListedCount());
+        return names;
+    }
+}
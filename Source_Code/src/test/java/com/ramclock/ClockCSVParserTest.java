@@ -0,0 +1,129 @@
+package com.ramclock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+Every load mode must label a directory exactly like the serial path (user-001 invariant), including
+blocks whose averages tie or nearly tie. The fixture's "tied" files hold the same values in
+different orders, so their exact averages are equal while a naively summed average differs between
+files and between chunkings; the rest have distinct averages.
+*/
+class ClockCSVParserTest {
+    private static final int TIED_FILES = 12;
+    private static final int ROWS = 4000;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void writeFixture() throws IOException {
+        Random random = new Random(42);
+        double[] values = new double[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            values[i] = 1500 + random.nextInt(20_000_000) / 100_000.0;
+        }
+        Set<Double> naiveMeans = new HashSet<>();
+        for (int file = 0; file < TIED_FILES; file++) {
+            shuffle(values, random);
+            double naive = 0;
+            for (double value : values) {
+                naive += value;
+            }
+            naiveMeans.add(naive / ROWS);
+            write(tiedName(TIED_FILES - file), values);
+        }
+        assertTrue(naiveMeans.size() > 1, "fixture should produce near-ties under naive summation");
+
+        for (int file = 0; file < 8; file++) {
+            double[] distinct = new double[ROWS / (file + 1)];
+            for (int i = 0; i < distinct.length; i++) {
+                distinct[i] = 1400 + file * 30 + random.nextDouble();
+            }
+            write("block_" + file + ".csv", distinct);
+        }
+    }
+
+    @Test
+    void scheduledLabelsMatchSerial() throws IOException {
+        ClockCSVParser.ParsedResult serial = ClockCSVParser.parseDirectory(directory.toFile());
+
+        ClockCSVParser.ParseOptions scheduled = new ClockCSVParser.ParseOptions();
+        scheduled.setParallelism(4);
+        scheduled.setLargestFirst(true);
+        scheduled.setMappedReadThreshold(0);
+        scheduled.setSplitChunkSize(4096);
+        assertSameLabels(serial, ClockCSVParser.parseDirectory(directory.toFile(), scheduled));
+
+        ClockCSVParser.ParseOptions parallel = new ClockCSVParser.ParseOptions();
+        parallel.setParallelism(3);
+        parallel.setMappedReadThreshold(0);
+        parallel.setSplitChunkSize(4096);
+        assertSameLabels(serial, ClockCSVParser.parseDirectory(directory.toFile(), parallel));
+    }
+
+    @Test
+    void tiesAreBrokenByFileName() throws IOException {
+        ClockCSVParser.ParsedResult result = ClockCSVParser.parseDirectory(directory.toFile());
+        Map<String, String> labels = result.getFileLabelMap();
+        for (int file = 1; file < TIED_FILES; file++) {
+            String earlier = labels.get(tiedName(file));
+            String later = labels.get(tiedName(file + 1));
+            assertTrue(BlockLabels.toRank(earlier) < BlockLabels.toRank(later), earlier + " vs " + later);
+        }
+    }
+
+    @Test
+    void lazyLabelsMatchEagerLabels() throws IOException {
+        ClockCSVParser.ParsedResult eager = ClockCSVParser.parseDirectory(directory.toFile());
+        ClockCSVParser.ParseOptions lazy = new ClockCSVParser.ParseOptions();
+        lazy.setLazyLabels(true);
+        assertSameLabels(eager, ClockCSVParser.parseDirectory(directory.toFile(), lazy));
+    }
+
+    private static void assertSameLabels(ClockCSVParser.ParsedResult expected, ClockCSVParser.ParsedResult actual) {
+        assertEquals(expected.getFileLabelMap(), actual.getFileLabelMap());
+        for (ClockCSVParser.RAMBlockData block : expected.getBlockDataList()) {
+            ClockCSVParser.RAMBlockData other = actual.getRegistry().getBySourceFileName(block.getSourceFileName());
+            assertEquals(block.getStatistics().getMean(), other.getStatistics().getMean(), block.getSourceFileName());
+            assertEquals(block.getStatistics().getCount(), other.getStatistics().getCount(), block.getSourceFileName());
+        }
+    }
+
+    private static String tiedName(int file) {
+        return String.format("tied_%02d.csv", file);
+    }
+
+    private void write(String name, double[] values) throws IOException {
+        File file = directory.resolve(name).toFile();
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath())) {
+            writer.write("timestamp,clock_rate_mhz\n");
+            for (int i = 0; i < values.length; i++) {
+                writer.write(i + "," + values[i] + "\n");
+            }
+        }
+    }
+
+    private static void shuffle(double[] values, Random random) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            double swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+}
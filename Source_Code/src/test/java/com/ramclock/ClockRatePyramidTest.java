@@ -0,0 +1,100 @@
+package com.ramclock;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ClockRatePyramid must answer a range mean from its bucket means exactly as a sample-by-sample
+mean would (up to rounding), keep every bucket's extremes in a decimated view, and give the same
+answers after incremental extend() as after a full build.
+*/
+class ClockRatePyramidTest {
+    private static final int SIZE = 50_000;
+
+    @Test
+    void rangeMeanMatchesSamples() {
+        ClockCSVParser.ClockRateSeries samples = series(SIZE, 1);
+        ClockRatePyramid pyramid = new ClockRatePyramid(samples);
+        assertTrue(pyramid.getLevelCount() > 3);
+
+        Random random = new Random(2);
+        for (int trial = 0; trial < 200; trial++) {
+            int a = random.nextInt(SIZE);
+            int b = random.nextInt(SIZE);
+            int from = Math.min(a, b);
+            int to = Math.max(a, b);
+            assertEquals(bruteMean(samples, from, to), pyramid.getMean(from, to), 1e-9, from + ".." + to);
+        }
+        assertTrue(Double.isNaN(pyramid.getMean(SIZE + 10, SIZE + 20)));
+    }
+
+    @Test
+    void extendMatchesFullBuild() {
+        ClockCSVParser.ClockRateSeries full = series(SIZE, 3);
+        ClockCSVParser.ClockRateSeries growing = new ClockCSVParser.ClockRateSeries();
+        ClockRatePyramid extended = new ClockRatePyramid(growing);
+        for (int i = 0; i < SIZE; i++) {
+            growing.add(full.getTimestamp(i), full.getClockRate(i));
+            if (i % 997 == 0) {
+                extended.extend();
+            }
+        }
+        extended.extend();
+        ClockRatePyramid built = new ClockRatePyramid(full);
+
+        assertEquals(built.getLevelCount(), extended.getLevelCount());
+        assertArrayEquals(flatten(points(built, 0, SIZE, 300)), flatten(points(extended, 0, SIZE, 300)));
+        assertEquals(built.getMean(123, 45_678), extended.getMean(123, 45_678));
+    }
+
+    @Test
+    void decimatedViewKeepsExtremes() {
+        ClockCSVParser.ClockRateSeries samples = series(SIZE, 4);
+        samples.add(SIZE, 9000);
+        samples.add(SIZE + 1, 10);
+        ClockRatePyramid pyramid = new ClockRatePyramid(samples);
+
+        List<double[]> points = points(pyramid, 0, SIZE + 1, 200);
+        assertTrue(points.size() < samples.size() / 10);
+        assertTrue(points.stream().anyMatch(p -> p[1] == 9000), "spike kept");
+        assertTrue(points.stream().anyMatch(p -> p[1] == 10), "droop kept");
+        for (int i = 1; i < points.size(); i++) {
+            assertTrue(points.get(i - 1)[0] < points.get(i)[0], "points in time order");
+        }
+    }
+
+    private static double bruteMean(ClockCSVParser.ClockRateSeries samples, int from, int to) {
+        double sum = 0;
+        for (int i = from; i <= to; i++) {
+            sum += samples.getClockRate(i);
+        }
+        return sum / (to - from + 1);
+    }
+
+    private static List<double[]> points(ClockRatePyramid pyramid, double from, double to, int pixels) {
+        List<double[]> points = new ArrayList<>();
+        pyramid.query(from, to, pixels, (x, y) -> points.add(new double[]{x, y}));
+        return points;
+    }
+
+    private static double[] flatten(List<double[]> points) {
+        return points.stream().flatMapToDouble(Arrays::stream).toArray();
+    }
+
+    private static ClockCSVParser.ClockRateSeries series(int size, long seed) {
+        Random random = new Random(seed);
+        ClockCSVParser.ClockRateSeries series = new ClockCSVParser.ClockRateSeries(size);
+        for (int i = 0; i < size; i++) {
+            series.add(i, 1500 + random.nextInt(30_000) / 100.0);
+        }
+        return series;
+    }
+}
@@ -0,0 +1,76 @@
+package com.ramclock;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/*
+ClockRateSeries keeps timestamps and clock rates as parallel columns: every operation must move
+both columns together, sorting must be stable, and the zoom pyramid must be kept for in-order
+appends and dropped when the order breaks.
+*/
+class ClockRateSeriesTest {
+
+    @Test
+    void growsPastInitialCapacity() {
+        ClockCSVParser.ClockRateSeries series = new ClockCSVParser.ClockRateSeries(1);
+        for (int i = 0; i < 100; i++) {
+            series.add(i, 1000 + i);
+        }
+        assertEquals(100, series.size());
+        assertEquals(42, series.getTimestamp(42));
+        assertEquals(1042, series.getClockRate(42));
+        assertThrows(IndexOutOfBoundsException.class, () -> series.getTimestamp(100));
+    }
+
+    @Test
+    void sortsBothColumnsStably() {
+        ClockCSVParser.ClockRateSeries series = new ClockCSVParser.ClockRateSeries();
+        series.add(3, 30);
+        series.add(1, 10);
+        series.add(3, 31);
+        series.add(2, 20);
+        series.add(1, 11);
+        series.sortByTimestamp();
+
+        long[] timestamps = {1, 1, 2, 3, 3};
+        double[] clockRates = {10, 11, 20, 30, 31};
+        for (int i = 0; i < timestamps.length; i++) {
+            assertEquals(timestamps[i], series.getTimestamp(i));
+            assertEquals(clockRates[i], series.getClockRate(i));
+        }
+    }
+
+    @Test
+    void addAllAppendsInOrder() {
+        ClockCSVParser.ClockRateSeries first = new ClockCSVParser.ClockRateSeries();
+        ClockCSVParser.ClockRateSeries second = new ClockCSVParser.ClockRateSeries();
+        for (int i = 0; i < 10; i++) {
+            first.add(i, i);
+            second.add(10 + i, 10 + i);
+        }
+        first.addAll(second);
+        assertEquals(20, first.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, first.getTimestamp(i));
+            assertEquals(i, first.getClockRate(i));
+        }
+    }
+
+    @Test
+    void keepsPyramidForInOrderAppends() {
+        ClockCSVParser.ClockRateSeries series = new ClockCSVParser.ClockRateSeries();
+        for (int i = 0; i < 100; i++) {
+            series.add(i, i);
+        }
+        ClockRatePyramid pyramid = series.getPyramid();
+        series.add(100, 100);
+        assertSame(pyramid, series.getPyramid());
+
+        series.add(50, 0);
+        assertNotSame(pyramid, series.getPyramid());
+    }
+}
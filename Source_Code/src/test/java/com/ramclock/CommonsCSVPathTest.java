@@ -0,0 +1,79 @@
+package com.ramclock;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+The Commons CSV path must resolve the column aliases from the header (first alias present, any
+case, any position), read every token Long.parseLong / Double.parseDouble accept, and skip rows
+whose columns are missing or unparseable instead of failing the file.
+*/
+class CommonsCSVPathTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void resolvesAliasesInAnyCaseAndPosition() throws IOException {
+        File csv = write("quoted.csv", "Note,MHz,Cycle\n\"a, b\",1500.5,3\n\"c\",1600,1\n");
+        ClockCSVParser.FileData data = parse(csv);
+
+        assertEquals(0, data.getSkippedRows());
+        ClockCSVParser.ClockRateSeries series = data.getSeries();
+        assertEquals(2, series.size());
+        assertEquals(1, series.getTimestamp(0));
+        assertEquals(1600, series.getClockRate(0));
+        assertEquals(3, series.getTimestamp(1));
+        assertEquals(1500.5, series.getClockRate(1));
+    }
+
+    @Test
+    void firstAliasInTheListWins() throws IOException {
+        // "timestamp" is listed before "index", and "clock_rate" before "mhz".
+        File csv = write("both.csv", "index,mhz,timestamp,clock_rate\n9,9,1,1500\n");
+        ClockCSVParser.ClockRateSeries series = parse(csv).getSeries();
+        assertEquals(1, series.getTimestamp(0));
+        assertEquals(1500, series.getClockRate(0));
+    }
+
+    @Test
+    void acceptsJavaNumberTokensAndSkipsBadRows() throws IOException {
+        File csv = write("tokens.csv", "time,frequency,extra\n1,1f,x\n2,Infinity,x\n3,NaN,x\n4,0x1p4,x\n"
+                + "5,fast,x\nsix,1500,x\n7\n");
+        ClockCSVParser.FileData data = parse(csv);
+
+        assertEquals(3, data.getSkippedRows());
+        ClockCSVParser.ClockRateSeries series = data.getSeries();
+        assertEquals(4, series.size());
+        assertEquals(1, series.getClockRate(0));
+        assertEquals(Double.POSITIVE_INFINITY, series.getClockRate(1));
+        assertTrue(Double.isNaN(series.getClockRate(2)));
+        assertEquals(16, series.getClockRate(3));
+    }
+
+    @Test
+    void missingTimestampColumnReadsZeros() throws IOException {
+        File csv = write("rates.csv", "rate,label\n1500,a\n1700,b\n");
+        ClockCSVParser.FileData data = parse(csv);
+        assertEquals(2, data.getSeries().size());
+        assertEquals(0, data.getSeries().getTimestamp(0));
+        assertEquals(1600, data.getStats().getMean());
+    }
+
+    private File write(String name, String content) throws IOException {
+        Path file = directory.resolve(name);
+        Files.writeString(file, content);
+        return file.toFile();
+    }
+
+    private static ClockCSVParser.FileData parse(File csv) throws IOException {
+        return ClockCSVParser.parseWithCommonsCSV(csv, csv.length(), new ClockCSVParser.ParseOptions());
+    }
+}
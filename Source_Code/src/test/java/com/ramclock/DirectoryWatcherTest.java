@@ -0,0 +1,96 @@
+package com.ramclock;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/*
+DirectoryWatcher must start from the versions the load parsed: files unchanged since then are never
+parsed again, while files appended to or created after the load (before watching started, or in a
+subdirectory created later) are parsed once and named by their path below the directory.
+*/
+class DirectoryWatcherTest {
+    private static final int SETTLE_MS = 50;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void parsesOnlyFilesChangedSinceTheLoad() throws Exception {
+        write("unchanged.csv", "1,1500\n2,1600\n");
+        write("grown.csv", "1,1500\n");
+        ClockCSVParser.ParseOptions options = new ClockCSVParser.ParseOptions();
+        options.setRecursive(true);
+        List<ClockCSVParser.RAMBlockData> loaded =
+                ClockCSVParser.parseDirectory(directory.toFile(), options).getBlockDataList();
+
+        Files.writeString(directory.resolve("grown.csv"), "2,1700\n", StandardOpenOption.APPEND);
+        write("sub/new.csv", "1,1800\n");
+
+        BlockingQueue<ClockCSVParser.RAMBlockData> parsed = new LinkedBlockingQueue<>();
+        DirectoryWatcher watcher = new DirectoryWatcher(directory.toFile(), options, SETTLE_MS);
+        watcher.setChangeListener(parsed::addAll);
+        watcher.start(loaded);
+        try {
+            Set<String> names = new HashSet<>();
+            names.add(next(parsed).getSourceFileName());
+            names.add(next(parsed).getSourceFileName());
+            assertEquals(Set.of("grown.csv", "sub/new.csv"), names);
+            assertNull(parsed.poll(SETTLE_MS * 6, TimeUnit.MILLISECONDS), "unchanged files are not parsed again");
+        } finally {
+            watcher.stop();
+        }
+    }
+
+    @Test
+    void parsesFilesInSubdirectoriesCreatedWhileWatching() throws Exception {
+        write("first.csv", "1,1500\n");
+        ClockCSVParser.ParseOptions options = new ClockCSVParser.ParseOptions();
+        options.setRecursive(true);
+        options.setExcludePatterns(List.of("ignored"));
+        List<ClockCSVParser.RAMBlockData> loaded =
+                ClockCSVParser.parseDirectory(directory.toFile(), options).getBlockDataList();
+
+        BlockingQueue<ClockCSVParser.RAMBlockData> parsed = new LinkedBlockingQueue<>();
+        DirectoryWatcher watcher = new DirectoryWatcher(directory.toFile(), options, SETTLE_MS);
+        watcher.setChangeListener(parsed::addAll);
+        watcher.start(loaded);
+        try {
+            write("ignored/skipped.csv", "1,1400\n");
+            write("later/deeper/added.csv", "1,1500\n2,1700\n");
+            ClockCSVParser.RAMBlockData block = next(parsed);
+            assertEquals("later/deeper/added.csv", block.getSourceFileName());
+            assertEquals(1600, block.getStatistics().getMean());
+            assertNull(parsed.poll(SETTLE_MS * 6, TimeUnit.MILLISECONDS), "excluded directories are not watched");
+        } finally {
+            watcher.stop();
+        }
+    }
+
+    private void write(String name, String rows) throws IOException {
+        Path file = directory.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "timestamp,clock_rate_mhz\n" + rows);
+    }
+
+    private static ClockCSVParser.RAMBlockData next(BlockingQueue<ClockCSVParser.RAMBlockData> parsed)
+            throws InterruptedException {
+        ClockCSVParser.RAMBlockData block = parsed.poll(10, TimeUnit.SECONDS);
+        assertNotNull(block, "no file was parsed");
+        return block;
+    }
+}
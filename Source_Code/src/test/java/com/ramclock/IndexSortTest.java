@@ -0,0 +1,49 @@
+package com.ramclock;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/*
+IndexSort must agree with a boxed stable sort for any input, including ties, already sorted runs
+and the empty and single-element cases.
+*/
+class IndexSortTest {
+
+    @Test
+    void matchesBoxedStableSort() {
+        Random random = new Random(7);
+        for (int size : new int[]{0, 1, 2, 3, 17, 1000, 4097}) {
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = random.nextInt(50);
+            }
+            Integer[] expected = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                expected[i] = i;
+            }
+            Arrays.sort(expected, (a, b) -> Long.compare(keys[a], keys[b]));
+
+            int[] order = IndexSort.stableOrder(size, (a, b) -> Long.compare(keys[a], keys[b]));
+            assertArrayEquals(Arrays.stream(expected).mapToInt(Integer::intValue).toArray(), order, "size " + size);
+        }
+    }
+
+    @Test
+    void keepsSortedInputInPlace() {
+        int[] order = IndexSort.stableOrder(10, (a, b) -> 0);
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, order);
+    }
+
+    @Test
+    void sortsDescendingKeys() {
+        long[] sizes = {5, 9, 1, 9, 3};
+        int[] order = IndexSort.stableOrder(sizes.length, (a, b) -> Long.compare(sizes[b], sizes[a]));
+        assertArrayEquals(new int[]{1, 3, 0, 4, 2}, order);
+        assertEquals(sizes.length, order.length);
+    }
+}
@@ -0,0 +1,161 @@
+package com.ramclock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+The reader/parser pipeline must give the serial path's labels and statistics even when every file
+is cut into many small chunks, must hold readers back when the parsers fall behind (queue
+capacity 1, parser stage slowed from its completion callback), must hand files above the mapped
+read threshold to its segment-parallel mapped stage with the same results, and must stop all of its
+threads when the load is cancelled.
+*/
+class IngestPipelineTest {
+    private static final int FILES = 10;
+    private static final int ROWS = 4000;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void writeFixture() throws IOException {
+        // Every file holds the same values in a different order: exactly tied averages that a
+        // chunk-by-chunk naive sum would split apart.
+        Random random = new Random(9);
+        double[] values = new double[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            values[i] = 1500 + random.nextInt(20_000_000) / 100_000.0;
+        }
+        for (int file = 0; file < FILES; file++) {
+            for (int i = ROWS - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                double swap = values[i];
+                values[i] = values[j];
+                values[j] = swap;
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve("block_" + file + ".csv"))) {
+                writer.write("timestamp,clock_rate_mhz\n");
+                for (int i = 0; i < ROWS; i++) {
+                    writer.write(i + "," + values[i] + "\n");
+                }
+            }
+        }
+        Files.writeString(directory.resolve("quoted.csv"), "\"timestamp\",\"clock_rate_mhz\"\n0,\"1450.5\"\n1,1451\n");
+    }
+
+    @Test
+    void smallChunksMatchSerial() throws IOException {
+        ClockCSVParser.ParsedResult serial = ClockCSVParser.parseDirectory(directory.toFile());
+
+        ClockCSVParser.ParseOptions options = pipelineOptions(2, 3);
+        ClockCSVParser.ParsedResult pipelined = ClockCSVParser.parseDirectory(directory.toFile(), options);
+
+        assertEquals(serial.getFileLabelMap(), pipelined.getFileLabelMap());
+        for (ClockCSVParser.RAMBlockData block : serial.getBlockDataList()) {
+            ClockCSVParser.RAMBlockData other = pipelined.getRegistry().getBySourceFileName(block.getSourceFileName());
+            assertEquals(block.getStatistics().getMean(), other.getStatistics().getMean(), block.getSourceFileName());
+            assertEquals(block.getStatistics().getCount(), other.getStatistics().getCount(), block.getSourceFileName());
+            assertEquals(block.getSeries().size(), other.getSeries().size(), block.getSourceFileName());
+        }
+        assertTrue(pipelined.getIngestTimings().getChunkCount() > FILES, "files should be cut into several chunks");
+        assertEquals(FILES + 1, pipelined.getIngestTimings().getFileCount());
+    }
+
+    @Test
+    void largeFilesAreMappedInSegments() throws IOException {
+        ClockCSVParser.ParsedResult serial = ClockCSVParser.parseDirectory(directory.toFile());
+
+        ClockCSVParser.ParseOptions options = pipelineOptions(1, 3);
+        options.setMappedReadThreshold(0);
+        options.setSplitChunkSize(4096);
+        ClockCSVParser.ParsedResult mapped = ClockCSVParser.parseDirectory(directory.toFile(), options);
+
+        assertEquals(serial.getFileLabelMap(), mapped.getFileLabelMap());
+        for (ClockCSVParser.RAMBlockData block : serial.getBlockDataList()) {
+            ClockCSVParser.RAMBlockData other = mapped.getRegistry().getBySourceFileName(block.getSourceFileName());
+            assertEquals(block.getStatistics().getMean(), other.getStatistics().getMean(), block.getSourceFileName());
+            assertEquals(block.getSeries().size(), other.getSeries().size(), block.getSourceFileName());
+        }
+        // Every file, including the quoted one that falls back to Commons CSV, went through the mapped stage.
+        assertEquals(FILES + 1, mapped.getIngestTimings().getMappedFileCount());
+        assertEquals(0, mapped.getIngestTimings().getChunkCount());
+    }
+
+    @Test
+    void readersWaitForSlowParsers() throws IOException {
+        ClockCSVParser.ParseOptions options = pipelineOptions(2, 1);
+        options.setProgressListener((file, completed, total) -> pause(30));
+
+        ClockCSVParser.ParsedResult result = ClockCSVParser.parseDirectory(directory.toFile(), options);
+
+        assertEquals(FILES + 1, result.getBlockDataList().size());
+        assertTrue(result.getIngestTimings().getReaderBlockedNanos() > 0, "readers should have been held back");
+    }
+
+    @Test
+    void cancellationStopsEveryStage() {
+        AtomicInteger parsed = new AtomicInteger();
+        ClockCSVParser.ParseOptions options = pipelineOptions(2, 1);
+        options.setProgressListener(new ClockCSVParser.ProgressListener() {
+            @Override
+            public void fileParsed(java.io.File file, int completed, int total) {
+                parsed.incrementAndGet();
+                pause(30);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return parsed.get() >= 2;
+            }
+        });
+
+        assertThrows(CancellationException.class, () -> ClockCSVParser.parseDirectory(directory.toFile(), options));
+        assertTrue(parsed.get() < FILES + 1, "cancellation should stop the load early");
+
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (pipelineThreadsAlive() && System.nanoTime() < deadline) {
+            pause(20);
+        }
+        assertFalse(pipelineThreadsAlive(), "reader, parser and mapped-pool threads should have stopped");
+    }
+
+    private static ClockCSVParser.ParseOptions pipelineOptions(int readers, int parsers) {
+        ClockCSVParser.ParseOptions options = new ClockCSVParser.ParseOptions();
+        options.setPipeline(readers, parsers);
+        options.setPipelineQueueCapacity(1);
+        options.setPipelineBufferSize(4096);
+        return options;
+    }
+
+    private static boolean pipelineThreadsAlive() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && (thread.getName().equals("csv-read") || thread.getName().equals("csv-parse")
+                    || thread.getName().startsWith("csv-ingest-"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.ramclock;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.swing.SwingUtilities;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+LiveTail must only consume complete lines: a row that is still being written stays unread (and the
+block's source length stays at the last line end) until its '\n' arrives, and a row the load stopped
+inside is skipped once, not parsed from its middle. stop() must hand control back to the EDT and
+report completion through its callback.
+*/
+class LiveTailTest {
+    private static final String HEADER = "timestamp,clock_rate_mhz\n";
+    private static final int INTERVAL_MS = 10;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void partialLineWaitsForItsNewline() throws Exception {
+        File csv = write("block.csv", HEADER + "1,1500\n2,1600\n");
+        ClockCSVParser.RAMBlockData block = ClockCSVParser.parseBlock(csv, new ClockCSVParser.ParseOptions());
+        BlockingQueue<List<ClockCSVParser.RAMBlockData>> updates = new LinkedBlockingQueue<>();
+        LiveTail tail = start(block, updates);
+        try {
+            append(csv, "3,1700\n4,18");
+            long completeLength = csv.length() - "4,18".length();
+            awaitUpdate(updates);
+            onEdt(() -> {
+                assertEquals(3, block.getSeries().size());
+                assertEquals(1700, block.getSeries().getClockRate(2));
+                assertEquals(completeLength, block.getSourceLength());
+            });
+
+            append(csv, "00\n");
+            awaitUpdate(updates);
+            onEdt(() -> {
+                assertEquals(4, block.getSeries().size());
+                assertEquals(4, block.getSeries().getTimestamp(3));
+                assertEquals(1800, block.getSeries().getClockRate(3));
+                assertEquals(csv.length(), block.getSourceLength());
+                assertEquals(0, block.getSkippedRowCount());
+            });
+        } finally {
+            stop(tail);
+        }
+    }
+
+    @Test
+    void rowTheLoadStoppedInsideIsSkippedOnce() throws Exception {
+        File csv = write("block.csv", HEADER + "1,1500\n2,1600\n3,17");
+        ClockCSVParser.RAMBlockData block = ClockCSVParser.parseBlock(csv, new ClockCSVParser.ParseOptions());
+        int loadedRows = block.getSeries().size();
+        int loadedSkipped = block.getSkippedRowCount();
+        BlockingQueue<List<ClockCSVParser.RAMBlockData>> updates = new LinkedBlockingQueue<>();
+        LiveTail tail = start(block, updates);
+        try {
+            append(csv, "00\n4,1800\n");
+            awaitUpdate(updates);
+            onEdt(() -> {
+                assertEquals(loadedSkipped + 1, block.getSkippedRowCount());
+                assertEquals(loadedRows + 1, block.getSeries().size());
+                assertEquals(4, block.getSeries().getTimestamp(loadedRows));
+                assertEquals(1800, block.getSeries().getClockRate(loadedRows));
+                assertEquals(csv.length(), block.getSourceLength());
+            });
+        } finally {
+            stop(tail);
+        }
+    }
+
+    @Test
+    void stopCompletesThroughItsCallback() throws Exception {
+        File csv = write("block.csv", HEADER + "1,1500\n");
+        ClockCSVParser.RAMBlockData block = ClockCSVParser.parseBlock(csv, new ClockCSVParser.ParseOptions());
+        LiveTail tail = start(block, new LinkedBlockingQueue<>());
+        append(csv, "2,1600\n3,1700\n");
+        stop(tail);
+        onEdt(() -> {
+            assertFalse(tail.isRunning());
+            assertThrows(IllegalStateException.class, tail::start);
+            // Whatever was parsed before the stop was applied whole: lengths only land on line ends.
+            int rows = block.getSeries().size();
+            assertEquals(HEADER.length() + 7L * rows, block.getSourceLength());
+        });
+    }
+
+    private File write(String name, String content) throws IOException {
+        Path file = directory.resolve(name);
+        Files.writeString(file, content);
+        return file.toFile();
+    }
+
+    private static void append(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+    }
+
+    private static LiveTail start(ClockCSVParser.RAMBlockData block,
+                                  BlockingQueue<List<ClockCSVParser.RAMBlockData>> updates) throws Exception {
+        LiveTail tail = new LiveTail(List.of(block), INTERVAL_MS);
+        tail.setUpdateListener(updates::add);
+        onEdt(tail::start);
+        return tail;
+    }
+
+    private static void stop(LiveTail tail) throws Exception {
+        CountDownLatch stopped = new CountDownLatch(1);
+        onEdt(() -> tail.stop(() -> {
+            assertTrue(SwingUtilities.isEventDispatchThread());
+            stopped.countDown();
+        }));
+        assertTrue(stopped.await(10, TimeUnit.SECONDS), "stop callback did not run");
+    }
+
+    private static void awaitUpdate(BlockingQueue<List<ClockCSVParser.RAMBlockData>> updates)
+            throws InterruptedException {
+        assertNotNull(updates.poll(10, TimeUnit.SECONDS), "no update was published");
+    }
+
+    private static void onEdt(Runnable check) throws Exception {
+        SwingUtilities.invokeAndWait(check);
+    }
+}
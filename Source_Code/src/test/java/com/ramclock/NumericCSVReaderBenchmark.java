@@ -0,0 +1,103 @@
+package com.ramclock;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+Throughput of the byte-level fast path (NumericCSVReader) against the Commons CSV path, on a
+generated timestamp,clock_rate_mhz file. Not part of the normal test run (the class name does not
+match surefire's includes); run it explicitly:
+
+  mvn test -Dtest=NumericCSVReaderBenchmark [-Dramclock.bench.rows=5000000] [-Dramclock.bench.rounds=5]
+
+Each path parses the whole file, keeping samples, once to warm up and then `rounds` times; the
+best round is reported in MB/s:
+  commons      ClockCSVParser.parseWithCommonsCSV (CSVParser/CSVRecord, one String per field)
+  fast         NumericCSVReader.read, one thread
+  mapped       NumericCSVReader.readMapped outside a pool (segments parsed one after another)
+  mapped-pool  NumericCSVReader.readMapped on the ingest pool, segments forked over every core
+All paths must produce the same sample count and mean.
+*/
+class NumericCSVReaderBenchmark {
+    @TempDir
+    Path directory;
+
+    @Test
+    void compareThroughput() throws Exception {
+        int rows = Integer.getInteger("ramclock.bench.rows", 5_000_000);
+        int rounds = Integer.getInteger("ramclock.bench.rounds", 5);
+        File csv = generate(directory.resolve("bench.csv"), rows);
+        double megabytes = csv.length() / 1e6;
+        System.out.printf("%d rows, %.1f MB, %d rounds%n", rows, megabytes, rounds);
+
+        ClockCSVParser.ParseOptions options = new ClockCSVParser.ParseOptions();
+        ClockCSVParser.StatisticsSnapshot expected = run("commons", megabytes, rounds,
+                () -> ClockCSVParser.parseWithCommonsCSV(csv, csv.length(), options).getStats());
+        ClockCSVParser.StatisticsSnapshot fast = run("fast", megabytes, rounds, () -> {
+            ClockCSVParser.BlockStatistics stats = new ClockCSVParser.BlockStatistics();
+            assertTrue(NumericCSVReader.read(csv, csv.length(), new ClockCSVParser.ClockRateSeries(), stats));
+            return stats.snapshot();
+        });
+        ClockCSVParser.StatisticsSnapshot mapped = run("mapped", megabytes, rounds, () -> readMapped(csv, options));
+
+        ForkJoinPool pool = ClockCSVParser.newIngestPool(Runtime.getRuntime().availableProcessors());
+        try {
+            ClockCSVParser.StatisticsSnapshot pooled = run("mapped-pool", megabytes, rounds,
+                    () -> pool.submit(() -> readMapped(csv, options)).get());
+            for (ClockCSVParser.StatisticsSnapshot actual : new ClockCSVParser.StatisticsSnapshot[]{fast, mapped, pooled}) {
+                assertEquals(expected.getCount(), actual.getCount());
+                assertEquals(expected.getMean(), actual.getMean());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static ClockCSVParser.StatisticsSnapshot readMapped(File csv, ClockCSVParser.ParseOptions options)
+            throws IOException {
+        ClockCSVParser.BlockStatistics stats = new ClockCSVParser.BlockStatistics();
+        assertTrue(NumericCSVReader.readMapped(csv, csv.length(), options.getSplitChunkSize(),
+                new ClockCSVParser.ClockRateSeries(), stats));
+        return stats.snapshot();
+    }
+
+    private static ClockCSVParser.StatisticsSnapshot run(String name, double megabytes, int rounds,
+                                                         Callable<ClockCSVParser.StatisticsSnapshot> parse)
+            throws Exception {
+        ClockCSVParser.StatisticsSnapshot result = parse.call();
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            result = parse.call();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("  %-12s %8.0f ms  %8.1f MB/s%n", name, best / 1e6, megabytes / (best / 1e9));
+        return result;
+    }
+
+    private static File generate(Path file, int rows) throws IOException {
+        Random random = new Random(1);
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("timestamp,clock_rate_mhz\n");
+            for (int i = 0; i < rows; i++) {
+                writer.write(Integer.toString(i));
+                writer.write(',');
+                writer.write(Double.toString(1500 + random.nextInt(20_000) / 100.0));
+                writer.write('\n');
+            }
+        }
+        return file.toFile();
+    }
+}
@@ -0,0 +1,175 @@
+package com.ramclock;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+Field parsing of the byte-level fast path: accepted values must parse exactly as Long.parseLong /
+Double.parseDouble would, and every shape it does not handle must be rejected (NaN or
+Long.MIN_VALUE) so the file falls back to Commons CSV. Spaces and tabs are the same blank.
+
+Parity: a file parsed through parseBlock (fast path, or the Commons CSV fallback when the fast path
+gives up) must give the same samples, skipped-row count and statistics as parsing it through
+Commons CSV directly. Throughput is compared in NumericCSVReaderBenchmark.
+*/
+class NumericCSVReaderTest {
+    private static final String PLAIN = "timestamp,clock_rate_mhz\n"
+            + "0,1615.62\n"
+            + "1, 1593.9 \r\n"
+            + "\n"
+            + "2,\t-0.5e3\n"
+            + "3,+1.25E-2\n"
+            + " 4 ,1600\n"
+            + "5,123456789012345678901234\n"
+            + "7,1601.5";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void parsesLikeJdk() {
+        String[] values = {"0", "1615.62", "-3.5", "+7", "1e3", "1E-3", "2.5e+10", "0.1", "123456789012345678901",
+                "4.9e-324", "1.7976931348623157e308", "  12.5\t", "000.000"};
+        for (String value : values) {
+            assertEquals(Double.parseDouble(value.trim()), NumericCSVReader.parseDouble(value), value);
+        }
+        assertEquals(-42L, NumericCSVReader.parseLong(" -42 "));
+        assertEquals(Long.MAX_VALUE, NumericCSVReader.parseLong(Long.toString(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void rejectsOtherShapes() {
+        String[] values = {"", " ", "abc", "1.2.3", "1e", "e5", ".", "-", "1,5", "NaN", "Infinity", "1f", "0x1p3"};
+        for (String value : values) {
+            assertTrue(Double.isNaN(NumericCSVReader.parseDouble(value)), value);
+        }
+        assertEquals(Long.MIN_VALUE, NumericCSVReader.parseLong("1.5"));
+        assertEquals(Long.MIN_VALUE, NumericCSVReader.parseLong("99999999999999999999"));
+        assertEquals(Long.MIN_VALUE, NumericCSVReader.parseLong("+"));
+    }
+
+    @Test
+    void treatsTabAndSpaceAlikeInExponent() {
+        assertTrue(Double.isNaN(NumericCSVReader.parseDouble("1e 5")));
+        assertTrue(Double.isNaN(NumericCSVReader.parseDouble("1e\t5")));
+        assertEquals(1e5, NumericCSVReader.parseDouble("\t1e5 "));
+    }
+
+    @Test
+    void fastPathMatchesCommonsCsv() throws IOException {
+        File plain = write("plain.csv", PLAIN);
+        assertTrue(readsFast(plain));
+        assertParity(plain, 0);
+
+        File swapped = write("swapped.csv", "MHz,Time\n1600.5,10\n1599.25,11\n");
+        assertTrue(readsFast(swapped));
+        assertParity(swapped, 0);
+    }
+
+    @Test
+    void fallsBackForQuotedInput() throws IOException {
+        File quoted = write("quoted.csv", "\"timestamp\",\"clock_rate_mhz\"\n\"0\",\"1615.5\"\n1,1600\n");
+        assertFalse(readsFast(quoted));
+        assertParity(quoted, 0);
+
+        File quotedRow = write("quoted_row.csv", "timestamp,clock_rate_mhz\n0,1615.5\n\"1\",\"1600\"\n");
+        assertFalse(readsFast(quotedRow));
+        assertParity(quotedRow, 0);
+    }
+
+    @Test
+    void fallsBackForExtraColumns() throws IOException {
+        File extraHeader = write("extra_header.csv", "timestamp,voltage,clock_rate_mhz\n0,1.1,1615.5\n1,1.2,1600\n");
+        assertFalse(readsFast(extraHeader));
+        assertParity(extraHeader, 0);
+
+        File extraRow = write("extra_row.csv", "timestamp,clock_rate_mhz\n0,1615.5\n1,1600,9\n2,1601\n");
+        assertFalse(readsFast(extraRow));
+        assertParity(extraRow, 0);
+    }
+
+    @Test
+    void fallsBackForUnparseableRows() throws IOException {
+        File bad = write("bad.csv", "timestamp,clock_rate_mhz\n0,1615.5\n1,abc\nx,1600\n3\n4,1602\n");
+        assertFalse(readsFast(bad));
+        assertParity(bad, 3);
+
+        File special = write("special.csv", "timestamp,clock_rate_mhz\n0,NaN\n1,Infinity\n2,1f\n3,1600\n");
+        assertFalse(readsFast(special));
+        assertParity(special, 0);
+    }
+
+    @Test
+    void mappedSegmentsMatchCommonsCsv() throws Exception {
+        Random random = new Random(3);
+        StringBuilder csv = new StringBuilder("timestamp,clock_rate_mhz\n");
+        for (int i = 0; i < 20_000; i++) {
+            csv.append(i).append(',').append(1500 + random.nextInt(200_000) / 1000.0).append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        File large = write("large.csv", csv.toString());
+        ClockCSVParser.ParseOptions options = new ClockCSVParser.ParseOptions();
+        options.setMappedReadThreshold(0);
+        options.setSplitChunkSize(4096);
+
+        ForkJoinPool pool = ClockCSVParser.newIngestPool(4);
+        try {
+            ClockCSVParser.RAMBlockData mapped = pool.submit(() -> ClockCSVParser.parseBlock(large, options)).get();
+            ClockCSVParser.FileData commons = ClockCSVParser.parseWithCommonsCSV(large, large.length(), options);
+            assertSameSamples(commons.getSeries(), mapped.getSeries());
+            assertEquals(commons.getStats().getCount(), mapped.getStatistics().getCount());
+            assertEquals(commons.getStats().getMin(), mapped.getStatistics().getMin());
+            assertEquals(commons.getStats().getMax(), mapped.getStatistics().getMax());
+            assertEquals(commons.getStats().getMean(), mapped.getStatistics().getMean());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void assertParity(File file, int expectedSkipped) throws IOException {
+        ClockCSVParser.ParseOptions options = new ClockCSVParser.ParseOptions();
+        ClockCSVParser.RAMBlockData block = ClockCSVParser.parseBlock(file, options);
+        ClockCSVParser.FileData commons = ClockCSVParser.parseWithCommonsCSV(file, file.length(), options);
+
+        assertSameSamples(commons.getSeries(), block.getSeries());
+        assertEquals(expectedSkipped, commons.getSkippedRows(), file.getName());
+        assertEquals(commons.getSkippedRows(), block.getSkippedRowCount(), file.getName());
+        ClockCSVParser.StatisticsSnapshot expected = commons.getStats();
+        ClockCSVParser.StatisticsSnapshot actual = block.getStatistics();
+        assertEquals(expected.getCount(), actual.getCount(), file.getName());
+        assertEquals(expected.getMin(), actual.getMin(), file.getName());
+        assertEquals(expected.getMax(), actual.getMax(), file.getName());
+        assertEquals(expected.getMean(), actual.getMean(), file.getName());
+        assertEquals(expected.getMedian(), actual.getMedian(), file.getName());
+    }
+
+    private static void assertSameSamples(ClockCSVParser.ClockRateSeries expected, ClockCSVParser.ClockRateSeries actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getTimestamp(i), actual.getTimestamp(i), "timestamp " + i);
+            assertEquals(expected.getClockRate(i), actual.getClockRate(i), "clock rate " + i);
+        }
+    }
+
+    private static boolean readsFast(File file) throws IOException {
+        return NumericCSVReader.read(file, file.length(), new ClockCSVParser.ClockRateSeries(),
+                new ClockCSVParser.BlockStatistics());
+    }
+
+    private File write(String name, String content) throws IOException {
+        Path file = directory.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file.toFile();
+    }
+}
@@ -0,0 +1,80 @@
+package com.ramclock;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+PyramidXYDataset only exposes the points of the current view, fetches pyramids through each
+series' source instead of holding them, and keeps the last points (marked stale) for a series
+whose pyramid is not in memory until requery() hands it one. Tooltips get the mean of the pixel
+column under a point.
+*/
+class PyramidXYDatasetTest {
+
+    @Test
+    void viewIsReducedToThePixelWidth() {
+        PyramidXYDataset dataset = new PyramidXYDataset();
+        dataset.addSeries("A", series(100_000).getPyramid());
+
+        dataset.setView(0, 99_999, 100);
+        assertTrue(dataset.getItemCount(0) <= 2 * ClockRatePyramid.FANOUT * 100, "bounded by pixels, not samples");
+        assertEquals(0, dataset.getDomainLowerBound(false));
+        assertEquals(99_999, dataset.getDomainUpperBound(false));
+
+        dataset.setView(1000, 1049, 100);
+        assertEquals(52, dataset.getItemCount(0), "zoomed in: raw samples, one past each edge");
+    }
+
+    @Test
+    void evictedSeriesKeepsItsPointsUntilRequeried() {
+        ClockCSVParser.ClockRateSeries samples = series(10_000);
+        ClockRatePyramid[] inMemory = {samples.getPyramid()};
+        PyramidXYDataset dataset = new PyramidXYDataset();
+        dataset.insertSeries(0, "A", inMemory[0], () -> inMemory[0]);
+        dataset.setView(0, 9_999, 50);
+        int wide = dataset.getItemCount(0);
+
+        inMemory[0] = null;
+        dataset.setView(0, 99, 50);
+        assertTrue(dataset.isStale(0));
+        assertNull(dataset.getPyramid(0));
+        assertEquals(wide, dataset.getItemCount(0), "the old points stay on screen");
+        assertEquals(9_999, dataset.getDomainUpperBound(false), "the domain is remembered");
+
+        dataset.requery(0, samples.getPyramid());
+        assertFalse(dataset.isStale(0));
+        int[] expected = {0};
+        samples.getPyramid().query(0, 99, 50, (x, y) -> expected[0]++);
+        assertEquals(expected[0], dataset.getItemCount(0));
+        assertTrue(expected[0] < wide);
+    }
+
+    @Test
+    void columnMeanCoversThePixelUnderThePoint() {
+        ClockCSVParser.ClockRateSeries samples = series(100_000);
+        PyramidXYDataset dataset = new PyramidXYDataset();
+        dataset.addSeries("A", samples.getPyramid());
+        assertTrue(Double.isNaN(dataset.getColumnMean(0, 0)), "no view set yet");
+
+        dataset.setView(0, 100_000, 100);
+        int item = dataset.getItemCount(0) / 2;
+        double column = Math.floor(dataset.getXValue(0, item) / 1000) * 1000;
+        double sum = 0;
+        for (int i = (int) column; i < column + 1000; i++) {
+            sum += samples.getClockRate(i);
+        }
+        assertEquals(sum / 1000, dataset.getColumnMean(0, item), 1e-9);
+    }
+
+    private static ClockCSVParser.ClockRateSeries series(int size) {
+        ClockCSVParser.ClockRateSeries series = new ClockCSVParser.ClockRateSeries(size);
+        for (int i = 0; i < size; i++) {
+            series.add(i, 1500 + (i * 7919) % 300);
+        }
+        return series;
+    }
+}
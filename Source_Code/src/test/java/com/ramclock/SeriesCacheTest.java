@@ -0,0 +1,104 @@
+package com.ramclock;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+SeriesCache keeps at most maxSamples samples, least recently used first out, never serves a series
+read up to a different length, and once closed keeps nothing and has no load pool left running.
+*/
+class SeriesCacheTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void evictsLeastRecentlyUsedPastTheBound() throws IOException {
+        File a = write("a.csv", 100);
+        File b = write("b.csv", 100);
+        File c = write("c.csv", 100);
+        SeriesCache cache = new SeriesCache(250, 1, null);
+
+        ClockCSVParser.ClockRateSeries first = cache.get(a, a.length());
+        cache.get(b, b.length());
+        assertSame(first, cache.get(a, a.length()), "a hit returns the cached series");
+        cache.get(c, c.length());
+
+        assertTrue(cache.contains(a));
+        assertFalse(cache.contains(b), "b was least recently used");
+        assertTrue(cache.contains(c));
+        assertEquals(200, cache.getCachedSamples());
+    }
+
+    @Test
+    void keepsASeriesLargerThanTheBound() throws IOException {
+        File big = write("big.csv", 500);
+        SeriesCache cache = new SeriesCache(100, 1, null);
+
+        assertEquals(500, cache.get(big, big.length()).size());
+        assertTrue(cache.contains(big));
+    }
+
+    @Test
+    void otherLengthIsAMiss() throws IOException {
+        File file = write("grow.csv", 100);
+        long firstLength = file.length();
+        SeriesCache cache = new SeriesCache();
+        cache.get(file, firstLength);
+
+        Files.writeString(file.toPath(), "100,1600.5\n", java.nio.file.StandardOpenOption.APPEND);
+        assertNull(cache.peek(file, file.length()));
+        assertEquals(101, cache.get(file, file.length()).size());
+        assertNull(cache.peek(file, firstLength), "the entry now covers the new length");
+    }
+
+    @Test
+    void closedCacheLoadsWithoutKeeping() throws IOException, InterruptedException {
+        File file = write("pooled.csv", 1000);
+        SeriesCache cache = new SeriesCache(SeriesCache.DEFAULT_MAX_SAMPLES, 2, null);
+        assertNotNull(cache.get(file, file.length()));
+
+        cache.close();
+        assertEquals(0, cache.getCachedSamples());
+        assertEquals(1000, cache.get(file, file.length()).size());
+        assertFalse(cache.contains(file));
+
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (loadPoolAlive() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertFalse(loadPoolAlive(), "the load pool should have shut down");
+    }
+
+    private static boolean loadPoolAlive() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && thread.getName().startsWith("csv-ingest-")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private File write(String name, int rows) throws IOException {
+        Path file = directory.resolve(name);
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("timestamp,clock_rate_mhz\n");
+            for (int i = 0; i < rows; i++) {
+                writer.write(i + "," + (1500 + i % 50) + "\n");
+            }
+        }
+        return file.toFile();
+    }
+}
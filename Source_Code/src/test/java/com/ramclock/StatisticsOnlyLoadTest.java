@@ -0,0 +1,101 @@
+package com.ramclock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+Statistics-only and lazy loads must produce the statistics and labels of a full load without
+keeping samples: statistics-only blocks have no series at all, while lazy blocks load exactly the
+samples a full load would have kept on their first getSeries() call.
+*/
+class StatisticsOnlyLoadTest {
+    private static final int FILES = 6;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void writeFixture() throws IOException {
+        Random random = new Random(3);
+        for (int file = 0; file < FILES; file++) {
+            try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve("block_" + file + ".csv"))) {
+                writer.write("timestamp,clock_rate_mhz\n");
+                for (int row = 0; row < 2000 + file * 300; row++) {
+                    writer.write(row + "," + (1500 + file * 20 + random.nextInt(10_000) / 100.0) + "\n");
+                }
+            }
+        }
+    }
+
+    @Test
+    void statisticsOnlyMatchesFullLoadWithoutSamples() throws IOException {
+        ClockCSVParser.ParsedResult full = ClockCSVParser.parseDirectory(directory.toFile());
+        ClockCSVParser.ParseOptions options = new ClockCSVParser.ParseOptions();
+        options.setStatisticsOnly(true);
+        ClockCSVParser.ParsedResult statisticsOnly = ClockCSVParser.parseDirectory(directory.toFile(), options);
+
+        assertEquals(full.getFileLabelMap(), statisticsOnly.getFileLabelMap());
+        Map<String, ClockCSVParser.RAMBlockData> fullBlocks = bySourceFile(full.getBlockDataList());
+        for (ClockCSVParser.RAMBlockData block : statisticsOnly.getBlockDataList()) {
+            assertFalse(block.hasSeries(), block.getSourceFileName());
+            assertNull(block.peekSeries());
+            assertSameStatistics(fullBlocks.get(block.getSourceFileName()), block);
+        }
+    }
+
+    @Test
+    void lazySeriesLoadsTheFullLoadsSamples() throws IOException {
+        ClockCSVParser.ParsedResult full = ClockCSVParser.parseDirectory(directory.toFile());
+        ClockCSVParser.ParseOptions options = new ClockCSVParser.ParseOptions();
+        options.setLazySeries(true);
+        ClockCSVParser.ParsedResult lazy = ClockCSVParser.parseDirectory(directory.toFile(), options);
+
+        assertEquals(full.getFileLabelMap(), lazy.getFileLabelMap());
+        Map<String, ClockCSVParser.RAMBlockData> fullBlocks = bySourceFile(full.getBlockDataList());
+        for (ClockCSVParser.RAMBlockData block : lazy.getBlockDataList()) {
+            ClockCSVParser.RAMBlockData expected = fullBlocks.get(block.getSourceFileName());
+            assertTrue(block.isLazy(), block.getSourceFileName());
+            assertNull(block.peekSeries(), "nothing is loaded before the first getSeries()");
+            assertSameStatistics(expected, block);
+
+            ClockCSVParser.ClockRateSeries series = block.getSeries();
+            assertEquals(expected.getSeries().size(), series.size());
+            for (int i = 0; i < series.size(); i++) {
+                assertEquals(expected.getSeries().getTimestamp(i), series.getTimestamp(i));
+                assertEquals(expected.getSeries().getClockRate(i), series.getClockRate(i));
+            }
+        }
+    }
+
+    private static void assertSameStatistics(ClockCSVParser.RAMBlockData expected, ClockCSVParser.RAMBlockData actual) {
+        assertEquals(expected.getBlockName(), actual.getBlockName());
+        assertEquals(expected.getStatistics().getCount(), actual.getStatistics().getCount());
+        assertEquals(expected.getStatistics().getMean(), actual.getStatistics().getMean());
+        assertEquals(expected.getStatistics().getMin(), actual.getStatistics().getMin());
+        assertEquals(expected.getStatistics().getMax(), actual.getStatistics().getMax());
+        assertEquals(expected.getStatistics().getMedian(), actual.getStatistics().getMedian());
+    }
+
+    private static Map<String, ClockCSVParser.RAMBlockData> bySourceFile(List<ClockCSVParser.RAMBlockData> blocks) {
+        Map<String, ClockCSVParser.RAMBlockData> bySourceFile = new HashMap<>();
+        for (ClockCSVParser.RAMBlockData block : blocks) {
+            bySourceFile.put(block.getSourceFileName(), block);
+        }
+        return bySourceFile;
+    }
+}
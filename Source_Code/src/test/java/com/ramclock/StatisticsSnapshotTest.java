@@ -0,0 +1,67 @@
+package com.ramclock;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/*
+A StatisticsSnapshot must freeze its accumulator's state: later samples do not change it, the
+derived values (range, standard deviation, median) follow from the stored ones, and an empty block
+reports zeros.
+*/
+class StatisticsSnapshotTest {
+
+    @Test
+    void derivedValuesOfSmallBlock() {
+        ClockCSVParser.BlockStatistics stats = new ClockCSVParser.BlockStatistics();
+        for (int value = 1; value <= 101; value++) {
+            stats.update(value);
+        }
+        ClockCSVParser.StatisticsSnapshot snapshot = stats.snapshot();
+
+        assertEquals(101, snapshot.getCount());
+        assertEquals(5151, snapshot.getSum());
+        assertEquals(51, snapshot.getMean());
+        assertEquals(1, snapshot.getMin());
+        assertEquals(101, snapshot.getMax());
+        assertEquals(100, snapshot.getRange());
+        assertEquals(101 * 102 / 12.0, snapshot.getVariance(), 1e-9);
+        assertEquals(Math.sqrt(snapshot.getVariance()), snapshot.getStandardDeviation());
+        // Exact percentiles while every sample is in the reservoir: rank p/100 * (n - 1).
+        assertEquals(2, snapshot.getPercentile(1));
+        assertEquals(26, snapshot.getPercentile(25));
+        assertEquals(51, snapshot.getMedian());
+        assertEquals(100, snapshot.getPercentile(99));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getPercentile(10));
+    }
+
+    @Test
+    void laterSamplesDoNotChangeASnapshot() {
+        ClockCSVParser.BlockStatistics stats = new ClockCSVParser.BlockStatistics();
+        stats.update(1500);
+        stats.update(1600);
+        ClockCSVParser.StatisticsSnapshot before = stats.snapshot();
+        stats.update(9000);
+
+        assertEquals(2, before.getCount());
+        assertEquals(1550, before.getMean());
+        assertEquals(1600, before.getMax());
+        assertEquals(1550, before.getMedian());
+        assertEquals(3, stats.snapshot().getCount());
+    }
+
+    @Test
+    void emptyBlockReportsZeros() {
+        ClockCSVParser.StatisticsSnapshot snapshot = new ClockCSVParser.BlockStatistics().snapshot();
+        assertSame(ClockCSVParser.StatisticsSnapshot.EMPTY, snapshot);
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMean());
+        assertEquals(0, snapshot.getRange());
+        assertEquals(0, snapshot.getStandardDeviation());
+        for (int percent : ClockCSVParser.StatisticsSnapshot.PERCENTILES) {
+            assertEquals(0, snapshot.getPercentile(percent));
+        }
+    }
+}